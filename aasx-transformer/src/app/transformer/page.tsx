@@ -6,7 +6,7 @@ import { Card, CardContent, CardHeader, CardTitle } from "@/components/ui/card";
 import Link from "next/link";
 import { listUploadedFiles } from "@/lib/api/fileUpload";
 // packageFileName을 인자로 받도록 변경된 listAttachmentFileMetas 함수
-import { downloadEnvironment, downloadFile, listAttachmentFileMetasByPackageFile, previewFile } from "@/lib/api/fileDownload";
+import { downloadAttachmentBundle, downloadEnvironment, downloadFile, listAttachmentFileMetasByPackageFile, previewFile } from "@/lib/api/fileDownload";
 
 // 코드의 가독성과 유지보수성
 export interface FileMeta {
@@ -119,6 +119,11 @@ return (
           <CardContent>
             {attachmentFileMetas.length > 0 ? (
               <div className="overflow-x-auto">
+                <div className="flex justify-end mb-4">
+                  <Button size="sm" onClick={() => downloadAttachmentBundle(selectedPackageFile)}>
+                    Download All (ZIP)
+                  </Button>
+                </div>
                 <table className="w-full table-auto border-collapse">
                   <thead>
                     <tr className="border-b">
@@ -1,6 +1,7 @@
 import { FileMeta } from "@/app/admin/file-meta/page";
 import { FileEntry } from "@/app/admin/uploaded/page";
 import axios from "axios";
+import "./workspace";
 
 // ✅ 특정 패키지 파일 내의 첨부파일 목록 조회 API 호출 함수
 export async function listAttachmentFileMetasByPackageFile(packageFileName: string) {
@@ -125,6 +126,40 @@ export const downloadFile = async (hash: string) => {
   }
 };
 
+// ✅ 패키지의 모든 첨부파일을 ZIP 하나로 다운로드 (파일별 요청 대신 한 번에 스트리밍)
+export const downloadAttachmentBundle = async (packageFileName: string) => {
+  try {
+    const response = await axios.get(
+      `${process.env.NEXT_PUBLIC_API_URL}/api/transformer/download/bundle/${encodeURIComponent(packageFileName)}`,
+      { responseType: "blob" }
+    );
+
+    // Content-Disposition 헤더에서 파일명 추출 (없으면 "{패키지명}-attachments.zip")
+    const contentDisposition = response.headers["content-disposition"];
+    let downloadFileName = `${packageFileName.replace(/\.[^.]+$/, "")}-attachments.zip`;
+    if (contentDisposition) {
+      const fileNameMatch = contentDisposition.match(/filename="(.+?)"/);
+      if (fileNameMatch && fileNameMatch[1]) {
+        downloadFileName = fileNameMatch[1];
+      }
+    }
+
+    const blobUrl = window.URL.createObjectURL(
+      new Blob([response.data], { type: "application/zip" })
+    );
+    const link = document.createElement("a");
+    link.href = blobUrl;
+    link.setAttribute("download", downloadFileName);
+    document.body.appendChild(link);
+    link.click();
+    document.body.removeChild(link);
+    window.URL.revokeObjectURL(blobUrl);
+  } catch (error) {
+    console.error("첨부파일 묶음 다운로드 실패:", error);
+    throw new Error("첨부파일 묶음 다운로드에 실패했습니다.");
+  }
+};
+
 // ✅ 첨부파일 메타 삭제 API 호출
 export async function deleteAttachmentMeta(compositeKey: string) {
   await axios.delete(
@@ -1,5 +1,6 @@
 import axios from "axios";
 import { Environment } from "./Environment";
+import "./workspace";
 
 /**
  * .aasx 파일 업로드 → URL이 반영된 Environment 를 JSON 문자열로 받고
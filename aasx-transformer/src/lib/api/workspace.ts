@@ -0,0 +1,34 @@
+import axios from "axios";
+
+// 서버가 업로드 목록을 구분하는 작업 공간 헤더
+export const WORKSPACE_HEADER = "X-Workspace-Id";
+
+const STORAGE_KEY = "aasx-transformer-workspace-id";
+
+/**
+ * ✅ 브라우저 탭(세션) 단위 작업 공간 ID
+ * - sessionStorage에 보관하여 새로고침 후에도 같은 업로드 목록을 사용
+ * - 다른 탭/사용자는 서로 다른 ID를 가지므로 업로드 목록이 섞이지 않음
+ */
+export const getWorkspaceId = (): string | undefined => {
+  if (typeof window === "undefined") return undefined;
+
+  let id = window.sessionStorage.getItem(STORAGE_KEY);
+  if (!id) {
+    id =
+      typeof crypto !== "undefined" && "randomUUID" in crypto
+        ? crypto.randomUUID()
+        : `${Date.now().toString(36)}-${Math.random().toString(36).slice(2, 12)}`;
+    window.sessionStorage.setItem(STORAGE_KEY, id);
+  }
+  return id;
+};
+
+// 모든 axios 요청에 작업 공간 헤더 추가
+axios.interceptors.request.use((config) => {
+  const id = getWorkspaceId();
+  if (id) {
+    config.headers.set(WORKSPACE_HEADER, id);
+  }
+  return config;
+});
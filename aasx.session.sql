@@ -20,16 +20,31 @@ CREATE TABLE files_meta
   FOREIGN KEY (hash) REFERENCES files(hash)
 );
 
+/* 팩 저장소(storage.backend=pack) 색인: 팩에 저장된 작은 첨부파일의 위치 (없으면 기동 시 자동 생성) */
+CREATE TABLE pack_index
+(
+  hash        TEXT    NOT NULL,
+  extension   TEXT    NOT NULL,
+  pack_id     INTEGER NOT NULL,
+  data_offset INTEGER NOT NULL,
+  length      INTEGER NOT NULL,
+  created_at  INTEGER NOT NULL,
+  codec       TEXT    NOT NULL DEFAULT 'identity',
+  PRIMARY KEY (hash, extension)
+);
+
 /* 외래 키 기능을 활성화 */
 PRAGMA foreign_keys = ON;
 
 /* drop table */
 DROP TABLE files;
 DROP TABLE files_meta;
+DROP TABLE pack_index;
 
 /* test */
 SELECT * FROM files;
 SELECT * FROM files_meta;
+SELECT * FROM pack_index;
 
 SELECT
     f.hash,
@@ -1,5 +1,7 @@
 package com.aasx.transformer.admin.controller;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,8 +11,11 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.aasx.transformer.admin.dto.PageResponse;
 import com.aasx.transformer.admin.service.AdminService;
+import com.aasx.transformer.storage.ChunkStoreStats;
 import com.aasx.transformer.upload.dto.Files;
 import com.aasx.transformer.upload.dto.FilesMeta;
+import com.aasx.transformer.upload.dto.PackageCacheStats;
+import com.aasx.transformer.upload.dto.StageTiming;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -42,4 +47,22 @@ public class AdminController {
         return ResponseEntity.ok(result);
     }
 
+    // ✅ AASX 처리 단계별(parse/extract/register/rewrite) 누적 소요 시간 반환
+    @GetMapping("/ingest-timings")
+    public ResponseEntity<List<StageTiming>> listIngestStageTimings() {
+        return ResponseEntity.ok(adminService.getIngestStageTimings());
+    }
+
+    // ✅ 업로드 패키지 바이트 캐시 현황 반환
+    @GetMapping("/package-cache-stats")
+    public ResponseEntity<PackageCacheStats> getPackageCacheStats() {
+        return ResponseEntity.ok(adminService.getPackageCacheStats());
+    }
+
+    // ✅ 청크 저장소 중복 제거 현황(청크 수, 원본/고유 크기, 중복 제거 비율) 반환
+    @GetMapping("/chunk-store-stats")
+    public ResponseEntity<ChunkStoreStats> getChunkStoreStats() {
+        return ResponseEntity.ok(adminService.getChunkStoreStats());
+    }
+
 }
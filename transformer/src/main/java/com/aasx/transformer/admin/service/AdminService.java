@@ -6,9 +6,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.aasx.transformer.admin.dto.PageResponse;
+import com.aasx.transformer.storage.ChunkStoreStats;
+import com.aasx.transformer.storage.ChunkedBlobStore;
 import com.aasx.transformer.upload.dto.Files;
 import com.aasx.transformer.upload.dto.FilesMeta;
+import com.aasx.transformer.upload.dto.PackageCacheStats;
+import com.aasx.transformer.upload.dto.StageTiming;
 import com.aasx.transformer.upload.mapper.UploadMapper;
+import com.aasx.transformer.upload.service.IngestMetrics;
+import com.aasx.transformer.upload.service.PackageByteCache;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -19,6 +25,16 @@ public class AdminService {
     @Autowired
     private UploadMapper uploadMapper;
 
+    @Autowired
+    private IngestMetrics ingestMetrics;
+
+    @Autowired
+    private PackageByteCache packageByteCache;
+
+    // storage.backend=chunked일 때만 존재
+    @Autowired(required = false)
+    private ChunkedBlobStore chunkedBlobStore;
+
     // ✅ DB에 저장된 모든 파일 해시와 ref_count, size를 조회
     public PageResponse<Files> getPagedFileHashes(int offset, int limit) {
         List<Files> files = uploadMapper.selectAllFileHash(offset, limit);
@@ -32,4 +48,19 @@ public class AdminService {
         int total = uploadMapper.countFileMetas();
         return new PageResponse<>(metas, total);
     }
+
+    // ✅ AASX 처리 단계별 소요 시간 조회 (워커 풀 크기 조정용)
+    public List<StageTiming> getIngestStageTimings() {
+        return ingestMetrics.snapshot();
+    }
+
+    // ✅ 업로드 패키지 바이트 캐시 현황 (힙/내보낸 크기, 적중/미스/내보내기 횟수)
+    public PackageCacheStats getPackageCacheStats() {
+        return packageByteCache.snapshot();
+    }
+
+    // ✅ 청크 저장소 중복 제거 현황 (청크로 나눈 첨부파일 원본 크기 합 / 고유 청크 크기 합)
+    public ChunkStoreStats getChunkStoreStats() {
+        return chunkedBlobStore != null ? chunkedBlobStore.snapshot() : ChunkStoreStats.disabled();
+    }
 }
@@ -0,0 +1,119 @@
+package com.aasx.transformer.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ AASX 처리용 워커 풀 설정
+ * - packageIngestExecutor: 패키지 단위 병렬 처리 (역직렬화, 첨부파일 추출, DB 등록)
+ * - attachmentIngestExecutor: 패키지 내부 첨부파일 단위 병렬 처리 (스트리밍 해시 + 디스크 저장)
+ * - 두 풀을 분리하여 패키지 작업이 첨부파일 작업을 기다리며 같은 풀을 점유하는 교착을 방지
+ * - 큐가 가득 차면 호출 스레드에서 직접 실행 (CallerRunsPolicy) → 작업 유실 없이 자연스럽게 속도 조절
+ * - ingestJobExecutor: 비동기 업로드 작업(job) 실행, 큐가 가득 차면 거절(AbortPolicy) → 요청 스레드를 점유하지 않고 503 응답
+ * - ingestEventExecutor: 작업 진행 상황 SSE 전송 (느린 구독자가 작업 스레드를 막지 않도록 분리)
+ *
+ * ✅ 실행 모드 (spring.threads.virtual.enabled, JDK 21)
+ * - false (기본): 위의 고정 크기 플랫폼 스레드 풀
+ * - true: Tomcat 요청 처리와 함께 패키지/첨부파일 작업도 가상 스레드에서 실행
+ *   (작업마다 가상 스레드, 동시 실행 수는 ingest.virtual-concurrency-limit으로 제한 → 초과 시 제출 스레드가 대기)
+ * - ingestJobExecutor는 가상 스레드 모드에서도 동시 작업 수/대기 큐 제한을 유지 (스레드만 가상 스레드로 생성)
+ */
+@Slf4j
+@Configuration
+public class IngestExecutorConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${ingest.package-pool-size:4}")
+    private int packagePoolSize;
+
+    @Value("${ingest.attachment-pool-size:4}")
+    private int attachmentPoolSize;
+
+    @Value("${ingest.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${ingest.virtual-concurrency-limit:64}")
+    private int virtualConcurrencyLimit;
+
+    @Value("${ingest.job-pool-size:2}")
+    private int jobPoolSize;
+
+    @Value("${ingest.job-queue-capacity:20}")
+    private int jobQueueCapacity;
+
+    @Value("${ingest.job-event-pool-size:2}")
+    private int jobEventPoolSize;
+
+    @Bean(name = "packageIngestExecutor")
+    public AsyncTaskExecutor packageIngestExecutor() {
+        return createExecutor("ingest-pkg-", packagePoolSize);
+    }
+
+    @Bean(name = "attachmentIngestExecutor")
+    public AsyncTaskExecutor attachmentIngestExecutor() {
+        return createExecutor("ingest-att-", attachmentPoolSize);
+    }
+
+    @Bean(name = "ingestJobExecutor")
+    public AsyncTaskExecutor ingestJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(jobPoolSize);
+        executor.setMaxPoolSize(jobPoolSize);
+        executor.setQueueCapacity(jobQueueCapacity);
+        executor.setThreadNamePrefix("ingest-job-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("ingest-job-", 0).factory());
+        }
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "ingestEventExecutor")
+    public AsyncTaskExecutor ingestEventExecutor() {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ingest-event-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        // 작업마다 예약된 전송은 최대 1건이므로 대기 큐는 제한하지 않음
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(jobEventPoolSize);
+        executor.setMaxPoolSize(jobEventPoolSize);
+        executor.setThreadNamePrefix("ingest-event-");
+        executor.initialize();
+        return executor;
+    }
+
+    private AsyncTaskExecutor createExecutor(String threadNamePrefix, int poolSize) {
+        if (virtualThreads) {
+            log.info("{} 가상 스레드 모드 (동시 실행 제한 {})", threadNamePrefix, virtualConcurrencyLimit);
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(virtualConcurrencyLimit);
+            executor.setTaskTerminationTimeout(30_000);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,12 @@
+package com.aasx.transformer.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * ✅ 주기 작업 활성화 (업로드 작업 공간 만료 정리 등)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,32 +1,140 @@
 package com.aasx.transformer.deserializer;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.commons.io.input.BOMInputStream;
 import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
 import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.openxml4j.util.ZipInputStreamZipEntrySource;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.AASXDeserializer;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.internal.AASXUtils;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.SerializationException;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.internal.visitor.AssetAdministrationShellElementWalkerVisitor;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.json.JsonSerializer;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.xml.XmlDeserializer;
 import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.aasx.transformer.storage.BlobCompressionPolicy;
+import com.aasx.transformer.storage.BlobStore;
+import com.aasx.transformer.storage.StoredBlob;
+
+import jakarta.annotation.PostConstruct;
+
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
 public class AASXFileDeserializer {
 
+    // AASX origin / aas-spec 관계 타입 (구버전 www.admin-shell.io 네임스페이스 포함)
+    private static final String[] AASX_ORIGIN_RELTYPES = {
+            "http://admin-shell.io/aasx/relationships/aasx-origin",
+            "http://www.admin-shell.io/aasx/relationships/aasx-origin" };
+    private static final String[] AAS_SPEC_RELTYPES = {
+            "http://admin-shell.io/aasx/relationships/aas-spec",
+            "http://www.admin-shell.io/aasx/relationships/aas-spec" };
+
+    // 이 크기를 넘는 ZIP 엔트리는 OPCPackage 오픈 시 힙 대신 임시 파일에 보관
+    @Value("${upload.zip-entry-temp-threshold:1048576}")
+    private int zipEntryTempThreshold;
+
+    @Autowired
+    private BlobCompressionPolicy compressionPolicy;
+
+    @PostConstruct
+    void configureZipEntrySource() {
+        ZipInputStreamZipEntrySource.setThresholdBytesForTempFiles(zipEntryTempThreshold);
+    }
+
+    /**
+     * ✅ AASX 단일 패스 처리
+     * - 패키지를 한 번만 열어 XML Environment 역직렬화
+     * - 같은 OPCPackage에서 참조된 첨부파일을 스트리밍으로 해시 계산하며 저장소에 저장
+     *
+     * @param inputStream   AASX 패키지 스트림
+     * @param blobStore     첨부파일을 {hash}{ext}로 저장할 저장소
+     * @param executor      첨부파일 단위 병렬 추출에 사용할 워커 풀
+     * @return Environment와 추출된 첨부파일 목록
+     */
+    public IngestedPackage ingestAASXPackage(InputStream inputStream, BlobStore blobStore, Executor executor) {
+        return ingestAASXPackage(inputStream, blobStore, executor, environment -> UnchangedPartLookup.NONE);
+    }
+
+    /**
+     * ✅ AASX 단일 패스 처리 (증분)
+     * - Environment 역직렬화 직후 lookupFactory로 이전 리비전 비교기를 얻어,
+     *   내용이 바뀌지 않은 첨부파트는 추출/해시 없이 이전 결과를 재사용
+     *
+     * @param lookupFactory 새 Environment → 변경되지 않은 파트 조회기
+     */
+    public IngestedPackage ingestAASXPackage(InputStream inputStream, BlobStore blobStore, Executor executor,
+            Function<Environment, UnchangedPartLookup> lookupFactory) {
+        log.info("AASX 단일 패스 처리 시작");
+        try (InputStream is = inputStream;
+                OPCPackage pkg = OPCPackage.open(is)) {
+            // 1) origin → aas-spec 관계를 따라 XML 파트를 찾아 Environment 역직렬화
+            long parseStart = System.nanoTime();
+            Environment environment = readEnvironment(pkg);
+            long parseNanos = System.nanoTime() - parseStart;
+            log.info("▶ .aasx → Environment 변환 완료: assetAdministrationShells={}, submodels={}",
+                    environment.getAssetAdministrationShells().size(),
+                    environment.getSubmodels().size());
+
+            // 2) 같은 패키지에서 참조 파일 추출 (외부 URL 제외)
+            List<String> paths = parseReferencedFilePathsFromAASX(environment);
+            paths.removeIf(p -> p.startsWith("http://") || p.startsWith("https://"));
+            long extractStart = System.nanoTime();
+            List<ExtractedFile> files = extractFiles(pkg, paths, blobStore, executor,
+                    lookupFactory.apply(environment));
+            long extractNanos = System.nanoTime() - extractStart;
+
+            return new IngestedPackage(environment, files, parseNanos, extractNanos);
+        } catch (Exception e) {
+            log.error("AASX ingest failed", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    // 열린 OPCPackage에서 aas-spec XML 파트를 찾아 Environment로 역직렬화
+    private Environment readEnvironment(OPCPackage pkg) throws Exception {
+        PackagePart originPart = findRelatedPart(pkg.getRelationships(), AASX_ORIGIN_RELTYPES, pkg, null);
+        if (originPart == null) {
+            throw new InvalidFormatException("AASX origin 파트를 찾을 수 없습니다.");
+        }
+        PackagePart xmlPart = findRelatedPart(originPart.getRelationships(), AAS_SPEC_RELTYPES, pkg, originPart);
+        if (xmlPart == null) {
+            throw new InvalidFormatException("AAS XML(aas-spec) 파트를 찾을 수 없습니다.");
+        }
+        try (InputStream xml = BOMInputStream.builder().setInputStream(xmlPart.getInputStream()).get()) {
+            return new XmlDeserializer().read(xml);
+        }
+    }
+
+    // 관계 타입 후보 중 첫 번째로 일치하는 관계의 대상 파트 반환
+    private PackagePart findRelatedPart(PackageRelationshipCollection relationships, String[] relTypes,
+            OPCPackage pkg, PackagePart source) throws InvalidFormatException {
+        for (String relType : relTypes) {
+            for (PackageRelationship rel : relationships) {
+                if (!relType.equals(rel.getRelationshipType())) {
+                    continue;
+                }
+                return source == null ? pkg.getPart(rel) : source.getRelatedPart(rel);
+            }
+        }
+        return null;
+    }
+
     // AASX 파일을 읽고 Environment 객체로 변환
     public Environment deserializeAASXFile(InputStream inputStream) {
         log.info("AASX 파일 Deserializer 시작");
@@ -49,30 +157,6 @@ public class AASXFileDeserializer {
         }
     }
 
-    // environment 객체를 JSON 문자열로 직렬화하여 반환 -> JSON 다운로드 시 활용
-    public String serializeEnvironmentToJson(Environment env) {
-        JsonSerializer jser = new JsonSerializer();
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try {
-            jser.write(baos, env);
-        } catch (SerializationException e) {
-            log.error("Environment JSON serialization failed", e);
-            throw new RuntimeException(e);
-        }
-        String json = baos.toString(StandardCharsets.UTF_8);
-
-        // modelType 포함 확인
-        String snippet = json.length() > 300
-                ? json.substring(0, 300) + "…"
-                : json;
-        log.info("▶ JSON snippet:\n{}", snippet);
-        log.info(json.contains("\"modelType\"")
-                ? "✔ modelType 포함"
-                : "✖ modelType 없음");
-
-        return json;
-    }
-
     // AASX 파일에서 참조된 파일 경로 추출
     public List<String> parseReferencedFilePathsFromAASX(Environment environment) {
         List<String> paths = new ArrayList<>();
@@ -116,12 +200,28 @@ public class AASXFileDeserializer {
         return paths;
     }
 
-    // InMemoryFile로 변환
-    public List<InMemoryFile> readFiles(OPCPackage aasxRoot, List<String> paths)
-            throws InvalidFormatException, IOException {
-        List<InMemoryFile> inMemoryFiles = new ArrayList<>();
+    /**
+     * ✅ 첨부파일 스트리밍 추출
+     * - 각 PackagePart를 SHA-256 다이제스트에 통과시키며 저장소 임시 파일로 기록
+     * - 해시가 정해지면 샤드 경로의 {hash}{ext}로 원자적 rename (이미 있으면 임시 파일만 삭제)
+     * - 첨부파일 전체를 바이트 배열로 힙에 올리지 않음
+     * - 파트 조회는 호출 스레드에서 순차로, 내용 추출은 executor에서 병렬로 수행하고
+     *   결과는 paths 순서대로 모음 (결과 순서 결정적)
+     */
+    public List<ExtractedFile> extractFiles(OPCPackage aasxRoot, List<String> paths, BlobStore blobStore,
+            Executor executor) {
+        return extractFiles(aasxRoot, paths, blobStore, executor, UnchangedPartLookup.NONE);
+    }
+
+    /**
+     * ✅ 첨부파일 스트리밍 추출 (증분)
+     * - unchanged가 이전 추출 결과를 돌려주는 파트는 다시 읽지 않고 그 결과를 그대로 사용
+     */
+    public List<ExtractedFile> extractFiles(OPCPackage aasxRoot, List<String> paths, BlobStore blobStore,
+            Executor executor, UnchangedPartLookup unchanged) {
+        List<CompletableFuture<ExtractedFile>> futures = new ArrayList<>();
+        int reused = 0;
         for (String path : paths) {
-            // 경로를 정제(조정)
             String adjustedPath = AASXUtils.removeFilePartOfURI(path);
 
             if (adjustedPath == null || adjustedPath.isEmpty()) {
@@ -129,17 +229,61 @@ public class AASXFileDeserializer {
                 continue;
             }
 
-            PackagePart part = aasxRoot.getPart(PackagingURIHelper.createPartName(adjustedPath));
-            try (InputStream stream = part.getInputStream()) {
-                byte[] fileData = stream.readAllBytes();
-                // 단일 파일 경로 문자열을 인자로 전달하여 InMemoryFile 객체 생성
-                InMemoryFile inMemoryFile = new InMemoryFile(fileData, path);
-                inMemoryFiles.add(inMemoryFile);
+            PackagePart part;
+            try {
+                part = aasxRoot.getPart(PackagingURIHelper.createPartName(adjustedPath));
             } catch (Exception e) {
-                log.error("InMemoryFile 변환 실패. path={}, adjustedPath={}, 원인: {}", path, adjustedPath, e.getMessage(),
-                        e);
+                log.error("첨부파일 파트 조회 실패. path={}, adjustedPath={}, 원인: {}", path, adjustedPath, e.getMessage(), e);
+                continue;
+            }
+            if (part == null) {
+                log.error("첨부파일 파트 없음. path={}, adjustedPath={}", path, adjustedPath);
+                continue;
+            }
+
+            ExtractedFile previous = unchanged.find(path, part.getPartName().getName());
+            if (previous != null) {
+                futures.add(CompletableFuture.completedFuture(previous));
+                reused++;
+                continue;
+            }
+
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return extractPart(part, path, blobStore);
+                } catch (Exception e) {
+                    log.error("첨부파일 추출 실패. path={}, adjustedPath={}, 원인: {}", path, adjustedPath, e.getMessage(), e);
+                    return null;
+                }
+            }, executor));
+        }
+
+        List<ExtractedFile> files = new ArrayList<>();
+        for (CompletableFuture<ExtractedFile> future : futures) {
+            ExtractedFile file = future.join();
+            if (file != null) {
+                files.add(file);
             }
         }
-        return inMemoryFiles;
+        if (reused > 0) {
+            log.info("변경되지 않은 첨부파트 재사용: {}/{}개", reused, futures.size());
+        }
+        return files;
+    }
+
+    // 단일 파트를 저장소에 스트리밍하며 해시 계산 ({hash}{ext}로 확정, 콘텐츠 타입별 정책에 따라 압축 저장)
+    private ExtractedFile extractPart(PackagePart part, String path, BlobStore blobStore) throws IOException {
+        String extension = extensionOf(path);
+        try (InputStream stream = part.getInputStream()) {
+            StoredBlob blob = blobStore.put(stream, extension, compressionPolicy.codecFor(extension));
+            return new ExtractedFile(path, blob.getHash(), blob.getSize(), extension);
+        }
+    }
+
+    // 파일 메타의 extension 규칙과 동일하게 경로의 파일명에서 확장자 추출 (".png", 없으면 "")
+    public static String extensionOf(String path) {
+        String baseName = new java.io.File(path).getName();
+        int dotIndex = baseName.lastIndexOf('.');
+        return dotIndex > 0 ? baseName.substring(dotIndex) : "";
     }
 }
@@ -0,0 +1,140 @@
+package com.aasx.transformer.deserializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.SerializationException;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.json.JsonSerializer;
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ Environment JSON 스트리밍 직렬화
+ * - 중간 String / byte[] 없이 응답 OutputStream에 바로 기록 → 다운로드당 메모리 사용량 일정
+ * - 클라이언트가 gzip을 허용하고 download.json-gzip=true 이면 기록하면서 바로 압축
+ * - ETag용 SHA-256도 버퍼 없이 직렬화 스트림에서 계산
+ */
+@Slf4j
+@Component
+public class EnvironmentJsonWriter {
+
+    private static final int GZIP_BUFFER_SIZE = 8 * 1024;
+
+    // ObjectMapper 기반, 스레드 안전
+    private final JsonSerializer jsonSerializer = new JsonSerializer();
+
+    @Value("${download.json-gzip:true}")
+    private boolean gzipEnabled;
+
+    /**
+     * Environment JSON을 out에 기록 (out은 닫지 않음)
+     */
+    public void write(Environment environment, OutputStream out) throws IOException {
+        try {
+            // JsonSerializer는 기록 후 스트림을 닫으므로 close 차단
+            jsonSerializer.write(CloseShieldOutputStream.wrap(out), environment);
+        } catch (SerializationException e) {
+            log.error("Environment JSON serialization failed", e);
+            throw new IOException("Environment JSON 직렬화 실패", e);
+        }
+    }
+
+    /**
+     * 응답용 기록: gzip 여부에 따라 압축하며 기록
+     */
+    public void write(Environment environment, OutputStream out, boolean gzip) throws IOException {
+        if (!gzip) {
+            write(environment, out);
+            return;
+        }
+        // out은 close가 차단되므로 gzip 스트림을 닫아 trailer 기록 + Deflater 해제 (예외 시에도)
+        try (GZIPOutputStream gz = new GZIPOutputStream(CloseShieldOutputStream.wrap(out), GZIP_BUFFER_SIZE)) {
+            write(environment, gz);
+        }
+    }
+
+    /**
+     * Environment들을 "JSON 문자열 배열"(string[]) 형태로 기록
+     * - 업로드 응답 형식 유지: 각 원소는 Environment JSON을 담은 문자열
+     */
+    public void writeAsJsonStringArray(List<Environment> environments, OutputStream out, boolean gzip) throws IOException {
+        if (!gzip) {
+            writeJsonStringArray(environments, out);
+            return;
+        }
+        try (GZIPOutputStream gz = new GZIPOutputStream(CloseShieldOutputStream.wrap(out), GZIP_BUFFER_SIZE)) {
+            writeJsonStringArray(environments, gz);
+        }
+    }
+
+    private void writeJsonStringArray(List<Environment> environments, OutputStream target) throws IOException {
+        target.write('[');
+        for (int i = 0; i < environments.size(); i++) {
+            if (i > 0) {
+                target.write(',');
+            }
+            target.write('"');
+            write(environments.get(i), new JsonStringEscapingOutputStream(target));
+            target.write('"');
+        }
+        target.write(']');
+    }
+
+    /**
+     * 직렬화된 JSON의 SHA-256 기반 강한 ETag (본문을 메모리에 모으지 않음)
+     */
+    public String etag(Environment environment) throws IOException {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        try (DigestOutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            write(environment, out);
+        }
+        return "\"" + Hex.encodeHexString(digest.digest()) + "\"";
+    }
+
+    // gzip 응답 ETag: 표현(인코딩)이 다르므로 다른 태그 사용
+    public static String gzipEtag(String etag) {
+        return encodedEtag(etag, "gzip");
+    }
+
+    // 인코딩된 표현의 ETag ("abc" → "abc-gzip")
+    public static String encodedEtag(String etag, String coding) {
+        return etag.substring(0, etag.length() - 1) + "-" + coding + "\"";
+    }
+
+    /**
+     * 요청의 Accept-Encoding에 gzip이 있고(q=0 제외) 설정이 켜져 있으면 true
+     */
+    public boolean shouldGzip(HttpHeaders requestHeaders) {
+        return gzipEnabled && acceptsEncoding(requestHeaders, "gzip");
+    }
+
+    /**
+     * 요청의 Accept-Encoding에 coding이 있으면(q=0 제외) true
+     */
+    public static boolean acceptsEncoding(HttpHeaders requestHeaders, String coding) {
+        for (String value : requestHeaders.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String candidate : value.split(",")) {
+                String[] parts = candidate.trim().split(";");
+                if (!parts[0].trim().equalsIgnoreCase(coding)) {
+                    continue;
+                }
+                boolean rejected = parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+                if (!rejected) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
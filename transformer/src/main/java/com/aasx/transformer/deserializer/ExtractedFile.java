@@ -0,0 +1,22 @@
+package com.aasx.transformer.deserializer;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * ✅ AASX 패키지에서 추출된 첨부파일
+ * - 패키지를 여는 같은 패스에서 SHA-256 해시를 계산하며 업로드 디렉토리에 {hash}{ext}로 저장된 상태
+ * - 파일 내용은 힙에 올리지 않고 해시/크기/저장 확장자만 전달
+ */
+@Getter
+@AllArgsConstructor
+public class ExtractedFile {
+    // AASX 내부 원본 경로 (File 요소의 value / defaultThumbnail path)
+    private final String path;
+    // 파일 내용의 SHA-256 해시 (16진수)
+    private final String hash;
+    // 파일 크기 (bytes)
+    private final long size;
+    // 저장된 물리 파일의 확장자 (예: ".png", 없으면 "")
+    private final String extension;
+}
@@ -0,0 +1,22 @@
+package com.aasx.transformer.deserializer;
+
+import java.util.List;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * ✅ AASX 패키지 단일 패스 처리 결과
+ * - 패키지를 한 번만 열어 역직렬화한 Environment와 참조 첨부파일 목록
+ */
+@Getter
+@AllArgsConstructor
+public class IngestedPackage {
+    private final Environment environment;
+    private final List<ExtractedFile> files;
+    // 단계별 소요 시간 (XML 역직렬화 / 첨부파일 추출)
+    private final long parseNanos;
+    private final long extractNanos;
+}
@@ -0,0 +1,77 @@
+package com.aasx.transformer.deserializer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ✅ UTF-8 바이트를 JSON 문자열 리터럴 내용으로 이스케이프하며 전달하는 스트림
+ * - '"' / '\' / 제어 문자(0x00~0x1F)만 이스케이프, 그 외 바이트(멀티바이트 포함)는 그대로 전달
+ * - 따옴표는 호출 측에서 앞뒤로 직접 기록
+ * - close()는 하위 스트림을 닫지 않음 (배열 안에 여러 문자열을 이어 쓰기 위함)
+ */
+public class JsonStringEscapingOutputStream extends FilterOutputStream {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    public JsonStringEscapingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        byte[] escaped = escape((byte) b);
+        if (escaped == null) {
+            out.write(b);
+        } else {
+            out.write(escaped);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        // 이스케이프가 필요 없는 구간은 한 번에 전달
+        int runStart = off;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            byte[] escaped = escape(b[i]);
+            if (escaped != null) {
+                if (i > runStart) {
+                    out.write(b, runStart, i - runStart);
+                }
+                out.write(escaped);
+                runStart = i + 1;
+            }
+        }
+        if (end > runStart) {
+            out.write(b, runStart, end - runStart);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    // 이스케이프 시퀀스, 필요 없으면 null
+    private static byte[] escape(byte b) {
+        switch (b) {
+            case '"':
+                return new byte[] { '\\', '"' };
+            case '\\':
+                return new byte[] { '\\', '\\' };
+            case '\n':
+                return new byte[] { '\\', 'n' };
+            case '\r':
+                return new byte[] { '\\', 'r' };
+            case '\t':
+                return new byte[] { '\\', 't' };
+            default:
+                if (b >= 0 && b < 0x20) {
+                    return new byte[] { '\\', 'u', '0', '0', HEX[b >> 4], HEX[b & 0x0F] };
+                }
+                return null;
+        }
+    }
+}
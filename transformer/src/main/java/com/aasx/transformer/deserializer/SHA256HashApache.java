@@ -1,5 +1,11 @@
 package com.aasx.transformer.deserializer;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
 import lombok.extern.slf4j.Slf4j;
@@ -7,6 +13,8 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SHA256HashApache {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public static String computeSHA256Hash(InMemoryFile file) {
         try {
             byte[] fileContent = file.getFileContent();
@@ -21,4 +29,27 @@ public class SHA256HashApache {
             throw new RuntimeException("SHA-256 해시 계산 중 오류 발생", e);
         }
     }
+
+    /**
+     * 스트림을 copyTo로 복사하면서 SHA-256 해시 계산
+     * - 전체 내용을 바이트 배열로 올리지 않고 고정 크기 버퍼로 처리
+     *
+     * @return 16진수 해시 문자열, copied[0]에 복사된 바이트 수 기록
+     */
+    public static String computeSHA256Hash(InputStream in, OutputStream copyTo, long[] copied) throws IOException {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            copyTo.write(buffer, 0, read);
+            total += read;
+        }
+        copied[0] = total;
+
+        String sha256Hex = Hex.encodeHexString(digest.digest());
+        log.info("SHA-256 해시 결과 (streaming): {}", sha256Hex);
+        return sha256Hex;
+    }
 }
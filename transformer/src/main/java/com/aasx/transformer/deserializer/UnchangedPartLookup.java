@@ -0,0 +1,19 @@
+package com.aasx.transformer.deserializer;
+
+/**
+ * ✅ 이전 리비전과 내용이 같은 첨부파트 조회 (증분 업로드)
+ * - 파트가 바뀌지 않았고 저장된 물리 파일이 남아 있으면 이전 추출 결과(해시/크기)를 반환 → 추출/해시 생략
+ * - 바뀌었거나 이전 리비전이 없으면 null → 평소대로 스트리밍 추출
+ */
+@FunctionalInterface
+public interface UnchangedPartLookup {
+
+    UnchangedPartLookup NONE = (path, partName) -> null;
+
+    /**
+     * @param path     File 요소 value / defaultThumbnail path (AASX 내부 원본 경로)
+     * @param partName OPC 파트 이름 (예: "/aasx/files/manual.pdf")
+     * @return 재사용할 추출 결과, 없으면 null
+     */
+    ExtractedFile find(String path, String partName);
+}
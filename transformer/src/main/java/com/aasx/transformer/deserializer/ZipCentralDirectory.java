@@ -0,0 +1,111 @@
+package com.aasx.transformer.deserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ ZIP 중앙 디렉토리 읽기 (AASX 패키지 파트별 CRC-32 / 크기)
+ * - 패키지 바이트 끝의 EOCD 레코드에서 중앙 디렉토리 위치를 찾아 엔트리 헤더만 읽음 (압축 해제 없음)
+ * - 파트 내용이 이전 리비전과 같은지 CRC-32 + 원본 크기로 판별하는 데 사용
+ * - ZIP64 또는 손상된 패키지는 빈 맵 반환 → 호출 측은 모든 파트를 새로 처리
+ */
+@Slf4j
+public final class ZipCentralDirectory {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int EOCD_MIN_LENGTH = 22;
+    private static final int CENTRAL_HEADER_LENGTH = 46;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final int UTF8_FLAG = 0x800;
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class PartChecksum {
+        private final long crc;
+        private final long size;
+    }
+
+    private ZipCentralDirectory() {
+    }
+
+    /**
+     * 파트 이름(partKey) → CRC-32 / 원본 크기
+     */
+    public static Map<String, PartChecksum> read(byte[] zip) {
+        int eocd = findEndOfCentralDirectory(zip);
+        if (eocd < 0) {
+            log.warn("ZIP 중앙 디렉토리(EOCD)를 찾을 수 없음 → 파트 비교 생략");
+            return Collections.emptyMap();
+        }
+        int count = u16(zip, eocd + 10);
+        long offset = u32(zip, eocd + 16);
+        if (count == 0xFFFF || offset == 0xFFFFFFFFL || offset >= zip.length) {
+            log.info("ZIP64 또는 잘못된 중앙 디렉토리 → 파트 비교 생략");
+            return Collections.emptyMap();
+        }
+
+        Map<String, PartChecksum> checksums = new HashMap<>(count * 2);
+        int pos = (int) offset;
+        for (int i = 0; i < count; i++) {
+            if (pos + CENTRAL_HEADER_LENGTH > zip.length || s32(zip, pos) != CENTRAL_HEADER_SIGNATURE) {
+                log.warn("ZIP 중앙 디렉토리 엔트리 손상 ({}번째) → 파트 비교 생략", i);
+                return Collections.emptyMap();
+            }
+            int flags = u16(zip, pos + 8);
+            long crc = u32(zip, pos + 16);
+            long size = u32(zip, pos + 24);
+            int nameLength = u16(zip, pos + 28);
+            int extraLength = u16(zip, pos + 30);
+            int commentLength = u16(zip, pos + 32);
+            if (pos + CENTRAL_HEADER_LENGTH + nameLength > zip.length) {
+                return Collections.emptyMap();
+            }
+            String name = new String(zip, pos + CENTRAL_HEADER_LENGTH, nameLength,
+                    (flags & UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+            checksums.put(partKey("/" + name), new PartChecksum(crc, size));
+            pos += CENTRAL_HEADER_LENGTH + nameLength + extraLength + commentLength;
+        }
+        return checksums;
+    }
+
+    /**
+     * OPC 파트 이름 비교용 키 (OPC 파트 이름은 대소문자를 구분하지 않음)
+     */
+    public static String partKey(String partName) {
+        String name = partName.startsWith("/") ? partName : "/" + partName;
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // 끝에서부터 EOCD 서명 탐색 (주석 최대 길이만큼)
+    private static int findEndOfCentralDirectory(byte[] zip) {
+        int lowest = Math.max(0, zip.length - EOCD_MIN_LENGTH - MAX_COMMENT_LENGTH);
+        for (int i = zip.length - EOCD_MIN_LENGTH; i >= lowest; i--) {
+            if (s32(zip, i) == EOCD_SIGNATURE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int u16(byte[] b, int off) {
+        return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8;
+    }
+
+    private static int s32(byte[] b, int off) {
+        return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24;
+    }
+
+    private static long u32(byte[] b, int off) {
+        return s32(b, off) & 0xFFFFFFFFL;
+    }
+}
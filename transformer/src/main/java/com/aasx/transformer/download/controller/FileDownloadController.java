@@ -1,42 +1,56 @@
 package com.aasx.transformer.download.controller;
 
+import com.aasx.transformer.deserializer.EnvironmentJsonWriter;
+import com.aasx.transformer.download.service.AttachmentBundleService;
+import com.aasx.transformer.download.service.ByteRangeService;
 import com.aasx.transformer.download.service.FileDownloadService;
+import com.aasx.transformer.storage.BlobCodec;
+import com.aasx.transformer.storage.BlobStore;
 import com.aasx.transformer.upload.dto.FilesMeta;
+import com.aasx.transformer.upload.service.EnvironmentCache;
 import com.aasx.transformer.upload.service.FileUploadService;
 import com.aasx.transformer.upload.service.JsonToAASXService;
+import com.aasx.transformer.upload.service.UploadWorkspaceRegistry;
 
 import lombok.extern.slf4j.Slf4j;
 
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.AASXSerializer;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.xml.XmlSerializer;
-import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/transformer")
 public class FileDownloadController {
 
-    @Value("${upload.temp-path}")
-    private String tempPath;
+    // 내용 주소 첨부파일: 1년 캐시 + immutable (재검증 불필요)
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-fA-F]{64}");
 
     @Autowired
     private FileUploadService fileUploadService;
@@ -47,6 +61,18 @@ public class FileDownloadController {
     @Autowired
     private FileDownloadService fileDownloadService;
 
+    @Autowired
+    private ByteRangeService byteRangeService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private AttachmentBundleService attachmentBundleService;
+
+    @Autowired
+    private EnvironmentJsonWriter environmentJsonWriter;
+
     /**
      * ✅ 특정 패키지 파일에 속하는 첨부파일 메타 정보를 조회하는 엔드포인트
      * 
@@ -55,17 +81,18 @@ public class FileDownloadController {
      */
     @GetMapping("/package/{packageFileName:.+}")
     public ResponseEntity<List<FilesMeta>> listAttachmentFileMetasByPackageFile(
-            @PathVariable String packageFileName) {
+            @PathVariable String packageFileName,
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String workspaceId) {
 
         // 1) AASX 업로드된 이름이면 기존 로직 실행
-        if (fileUploadService.getUploadedFileNames().contains(packageFileName)) {
-            List<FilesMeta> metas = fileDownloadService.getFileMetasByPackageFileName(packageFileName);
+        if (fileUploadService.getUploadedEnvironment(workspaceId, packageFileName) != null) {
+            List<FilesMeta> metas = fileDownloadService.getFileMetasByPackageFileName(workspaceId, packageFileName);
             return ResponseEntity.ok(metas);
         }
 
         // 2) JSON→AASX 변환된 이름이면 JsonToAASXService 로직 실행
-        if (jsonToAasxService.getUploadedJsonFileNames().contains(packageFileName)) {
-            List<FilesMeta> metas = fileDownloadService.getJsonConvertedFileMetas(packageFileName);
+        if (jsonToAasxService.getUploadedEnvironment(workspaceId, packageFileName) != null) {
+            List<FilesMeta> metas = fileDownloadService.getJsonConvertedFileMetas(workspaceId, packageFileName);
             return ResponseEntity.ok(metas);
         }
 
@@ -73,38 +100,102 @@ public class FileDownloadController {
         return ResponseEntity.ok(Collections.emptyList());
     }
 
+    /**
+     * ✅ 패키지의 모든 첨부파일을 ZIP 하나로 다운로드
+     * 예시 URL: /api/transformer/download/bundle/{packageFileName}
+     *
+     * 메타는 한 번에 일괄 조회하고, 저장소의 원본 파일을 응답 스트림에 바로 ZIP으로 기록
+     */
+    @GetMapping("/download/bundle/{packageFileName:.+}")
+    public ResponseEntity<StreamingResponseBody> downloadPackageBundle(@PathVariable String packageFileName,
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String workspaceId) {
+        List<FilesMeta> metas;
+        if (fileUploadService.getUploadedEnvironment(workspaceId, packageFileName) != null) {
+            metas = fileDownloadService.getFileMetasByPackageFileName(workspaceId, packageFileName);
+        } else if (jsonToAasxService.getUploadedEnvironment(workspaceId, packageFileName) != null) {
+            metas = fileDownloadService.getJsonConvertedFileMetas(workspaceId, packageFileName);
+        } else {
+            log.warn("첨부파일 묶음 요청: 업로드되지 않은 패키지 '{}'", packageFileName);
+            return ResponseEntity.notFound().build();
+        }
+
+        int dot = packageFileName.lastIndexOf('.');
+        String baseName = dot > 0 ? packageFileName.substring(0, dot) : packageFileName;
+        log.info("첨부파일 묶음 다운로드: {} ({}개)", packageFileName, metas.size());
+        return bundleResponse(baseName + "-attachments.zip", metas);
+    }
+
+    /**
+     * ✅ 선택한 첨부파일(복합키 목록)을 ZIP 하나로 다운로드
+     * 요청 본문: ["aasId::submodelId::idShort", ...]
+     */
+    @PostMapping("/download/bundle")
+    public ResponseEntity<StreamingResponseBody> downloadSelectedBundle(@RequestBody List<String> compositeKeys) {
+        List<FilesMeta> metas = fileDownloadService.getFileMetasByCompositeKeys(compositeKeys);
+        log.info("선택 첨부파일 묶음 다운로드: 요청 {}개, 조회 {}개", compositeKeys.size(), metas.size());
+        return bundleResponse("attachments.zip", metas);
+    }
+
+    private ResponseEntity<StreamingResponseBody> bundleResponse(String downloadName, List<FilesMeta> metas) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + downloadName + "\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(attachmentBundleService.stream(metas));
+    }
+
     /**
      * ✅ 특정 파일의 업데이트된 Environment JSON 다운로드
      * 예시 URL: /api/transformer/download/environment/{fileName}
      */
     @GetMapping("/download/environment/{fileName:.+}")
-    public ResponseEntity<Resource> downloadEnvironment(@PathVariable String fileName) {
+    public ResponseEntity<StreamingResponseBody> downloadEnvironment(@PathVariable String fileName,
+            @RequestHeader HttpHeaders requestHeaders) {
+        String workspaceId = requestHeaders.getFirst(UploadWorkspaceRegistry.HEADER);
         log.info("다운로드 요청된 파일 이름: {}", fileName);
 
-        // computeSHA256HashesForInMemoryFiles() 로 해시 URL이 바인딩된 Environment map 을 구하고
-        Map<String, Environment> updatedEnvironmentMap = fileUploadService.computeSHA256HashesForInMemoryFiles();
+        // 업로드 시 캐시된 해시 URL 바인딩 Environment 조회 (캐시 무효화 시 해당 패키지만 재처리)
+        EnvironmentCache.CachedEnvironment cached = fileUploadService.getUpdatedEnvironment(workspaceId, fileName);
 
         // 해당 파일명이 없으면 404
-        if (!updatedEnvironmentMap.containsKey(fileName)) {
+        if (cached == null) {
             log.warn("요청된 파일 이름 '{}'에 해당하는 Environment 정보가 존재하지 않습니다.", fileName);
             return ResponseEntity.notFound().build();
         }
 
-        // Environment 꺼내서 JSON Resource 로 직렬화
-        Environment env = updatedEnvironmentMap.get(fileName);
-        Resource jsonResource = fileDownloadService.downloadEnvironmentAsJson(env, fileName);
+        // gzip 허용 시 압축 표현으로 전송 (표현별로 ETag 구분)
+        boolean gzip = environmentJsonWriter.shouldGzip(requestHeaders);
+        String etag = fileDownloadService.environmentEtag(cached);
+        if (gzip) {
+            etag = EnvironmentJsonWriter.gzipEtag(etag);
+        }
+
+        // ETag 일치 시 직렬화 없이 304 (캐시된 Environment가 있으므로 "*"도 일치)
+        if (isNotModified(requestHeaders, etag, true)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING, UploadWorkspaceRegistry.HEADER)
+                    .build();
+        }
 
         String baseName = fileName.toLowerCase().endsWith(".aasx")
                 ? fileName.substring(0, fileName.length() - 5)
                 : fileName;
         String downloadName = baseName + ".json";
 
-        // Content-Disposition 헤더 등 붙여서 ResponseEntity로 반환
-        return ResponseEntity.ok()
+        // Content-Disposition 헤더 등 붙여서 ResponseEntity로 반환 (본문은 응답 스트림에 바로 직렬화)
+        // 패키지 재업로드/메타 삭제 시 내용이 바뀌므로 no-cache (매번 ETag로 재검증)
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
                         "attachment; filename=\"" + downloadName + "\"")
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(jsonResource);
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING, UploadWorkspaceRegistry.HEADER)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(fileDownloadService.downloadEnvironmentAsJson(cached.getEnvironment(), fileName, gzip));
     }
 
     /**
@@ -114,9 +205,11 @@ public class FileDownloadController {
      * @return 파일을 포함한 ResponseEntity
      *
      *         브라우저에서 바로 파일을 열거나 저장
+     *         Range 요청 시 요청 범위만 206 Partial Content로 전송 (동영상/CAD 뷰어 탐색)
      */
     @GetMapping("/download/{hashAndExt:.+}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String hashAndExt) {
+    public ResponseEntity<StreamingResponseBody> downloadFile(@PathVariable String hashAndExt,
+            @RequestHeader HttpHeaders requestHeaders) {
         // 1) 해시/확장자 분리
         int dot = hashAndExt.lastIndexOf('.');
         String hash, ext;
@@ -125,11 +218,25 @@ public class FileDownloadController {
             ext = hashAndExt.substring(dot); // ".png" 등
         } else {
             hash = hashAndExt;
-            FilesMeta meta0 = fileDownloadService.getMetaByHash(hash);
-            if (meta0 == null) {
-                return ResponseEntity.notFound().build();
+            ext = null;
+        }
+        // 저장된 해시는 소문자 hex → 대소문자만 다른 요청도 같은 ETag/파일로 응답
+        hash = hash.toLowerCase(Locale.ROOT);
+
+        // 내용 주소(SHA-256) 파일은 변하지 않으므로 해시가 곧 강한 ETag
+        // If-None-Match 일치 시 DB/디스크 접근 없이 304 ("*"는 파일이 존재할 때만 일치하므로 여기서는 제외)
+        // (압축 저장된 첨부파일을 인코딩된 그대로 받은 클라이언트는 "{hash}-gzip" 등 표현별 ETag로 재검증)
+        String etag = "\"" + hash + "\"";
+        if (SHA256_HEX.matcher(hash).matches()) {
+            for (BlobCodec codec : BlobCodec.values()) {
+                String candidate = codec == BlobCodec.IDENTITY
+                        ? etag
+                        : EnvironmentJsonWriter.encodedEtag(etag, codec.getContentEncoding());
+                if (isNotModified(requestHeaders, candidate, false)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(candidate).cacheControl(IMMUTABLE)
+                            .build();
+                }
             }
-            ext = meta0.getExtension(); // ".jpg" 등
         }
 
         // 2) DB에서 메타 조회
@@ -137,17 +244,34 @@ public class FileDownloadController {
         if (meta == null) {
             return ResponseEntity.notFound().build();
         }
+        if (ext == null) {
+            ext = meta.getExtension(); // ".jpg" 등
+        }
 
         // contentType을 확인
         String contentType = meta.getContentType();
         log.info("==> FilesMeta.getContentType() = [{}]", contentType);
 
-        // 3) 물리 파일 로드
-        Resource resource = fileDownloadService.downloadFileByHash(hash);
-        if (!resource.exists()) {
+        // 3) 물리 파일 확인
+        if (!fileDownloadService.isStored(meta)) {
             return ResponseEntity.notFound().build();
         }
 
+        // If-None-Match: * → 표현이 존재하므로 304 (선택될 표현의 ETag 사용)
+        if (isNotModified(requestHeaders, etag, true)) {
+            String current = etag;
+            try {
+                BlobCodec codec = blobStore.codec(meta.getHash(), meta.getExtension());
+                if (codec != BlobCodec.IDENTITY
+                        && EnvironmentJsonWriter.acceptsEncoding(requestHeaders, codec.getContentEncoding())) {
+                    current = EnvironmentJsonWriter.encodedEtag(etag, codec.getContentEncoding());
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("파일 응답 처리 중 오류", e);
+            }
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current).cacheControl(IMMUTABLE).build();
+        }
+
         // 4) 올바른 MIME 타입
         MediaType mediaType;
         try {
@@ -157,24 +281,33 @@ public class FileDownloadController {
             mediaType = MediaType.APPLICATION_OCTET_STREAM;
         }
 
-        // 5) inline 으로 보내되, Accept-Ranges를 함께 달아서 브라우저에 “바이너리 원격 다운로드” 기능을 알려준다
+        // 5) inline 으로 보내되, Range 요청이면 요청 범위만 전송
         HttpHeaders headers = new HttpHeaders();
         // inline → 브라우저 뷰어(이미지/PDF 뷰어 등)를 사용하도록 요청
         headers.add(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + hash + ext + "\"");
-        // 바이트 단위 범위 요청을 허용하도록
-        headers.add("Accept-Ranges", "bytes");
+        headers.setETag(etag);
+        headers.setCacheControl(IMMUTABLE);
 
         try {
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .contentLength(resource.contentLength())
-                    .contentType(mediaType)
-                    .body(resource);
+            return byteRangeService.respond(blobStore, meta.getHash(), meta.getExtension(), mediaType, headers,
+                    requestHeaders);
         } catch (IOException e) {
             throw new RuntimeException("파일 응답 처리 중 오류", e);
         }
     }
 
+    // If-None-Match 약한 비교 (W/ 접두어 무시, "*"는 matchAny일 때만 일치 → 표현 존재를 확인한 뒤에만 사용)
+    private static boolean isNotModified(HttpHeaders requestHeaders, String etag, boolean matchAny) {
+        String target = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : requestHeaders.getIfNoneMatch()) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) ? matchAny : target.equals(tag.startsWith("W/") ? tag.substring(2) : tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * ✅ 첨부파일 메타 삭제
      *
@@ -194,22 +327,13 @@ public class FileDownloadController {
      * 프론트엔드에서는 이미 “{base}-url.aasx” 형태로 호출함.
      */
     @GetMapping("/json/download/url/{aasxFileName:.+}")
-    public ResponseEntity<Resource> downloadWithUrlAasx(@PathVariable String aasxFileName) throws IOException {
+    public ResponseEntity<Resource> downloadWithUrlAasx(@PathVariable String aasxFileName,
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String workspaceId)
+            throws IOException {
         log.info("URL AASX 다운로드 요청, aasxFileName: {}", aasxFileName);
         // note: aasxFileName 예시 → "BALL_END_BOSS_ONE_DPP_demo_edited_v3-url.aasx"
-        Path filePath = Path.of(tempPath, aasxFileName);
-        if (!Files.exists(filePath)) {
-            log.warn("Temp에 AASX 파일이 없습니다: {}", filePath);
-            return ResponseEntity.notFound().build();
-        }
-
-        Resource resource = new FileSystemResource(filePath.toFile());
-        return ResponseEntity.ok()
-                // attachment 헤더: 브라우저가 “파일 저장” 대화상자를 띄우도록 함
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + aasxFileName + "\"")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .contentLength(Files.size(filePath))
-                .body(resource);
+        // 최초 요청 시 생성, 이후에는 디스크 캐시에서 바로 전송
+        return variantResponse(workspaceId, aasxFileName, false);
     }
 
     /**
@@ -217,21 +341,53 @@ public class FileDownloadController {
      * 프론트엔드에서는 이미 “{base}-revert.aasx” 형태로 호출함.
      */
     @GetMapping("/json/download/revert/{aasxFileName:.+}")
-    public ResponseEntity<Resource> downloadRevertedAasx(@PathVariable String aasxFileName) throws IOException {
+    public ResponseEntity<Resource> downloadRevertedAasx(@PathVariable String aasxFileName,
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String workspaceId)
+            throws IOException {
         log.info("Revert AASX 다운로드 요청, aasxFileName: {}", aasxFileName);
         // aasxFileName 예시 → "BALL_END_BOSS_ONE_DPP_demo_edited_v3-revert.aasx"
-        Path filePath = Path.of(tempPath, aasxFileName);
-        if (!Files.exists(filePath)) {
-            log.warn("Temp에 AASX 파일이 없습니다: {}", filePath);
-            return ResponseEntity.notFound().build();
-        }
+        // 최초 요청 시 생성, 이후에는 디스크 캐시에서 바로 전송
+        return variantResponse(workspaceId, aasxFileName, true);
+    }
 
-        Resource resource = new FileSystemResource(filePath.toFile());
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + aasxFileName + "\"")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .contentLength(Files.size(filePath))
-                .body(resource);
+    /**
+     * AASX 변형 파일 전송
+     * - 파일을 먼저 연 뒤 열린 채널에서 크기를 읽고 전송 (이후 캐시 정리로 삭제되어도 열린 파일은 끝까지 전송)
+     * - 경로를 받은 직후 캐시 정리로 삭제되었으면 한 번 더 resolveVariant (다시 생성)
+     */
+    private ResponseEntity<Resource> variantResponse(String workspaceId, String aasxFileName, boolean includeFiles)
+            throws IOException {
+        for (int attempt = 0;; attempt++) {
+            Path filePath = jsonToAasxService.resolveVariant(workspaceId, aasxFileName, includeFiles);
+            if (filePath == null) {
+                log.warn("등록되지 않은 AASX 파일입니다: {}", aasxFileName);
+                return ResponseEntity.notFound().build();
+            }
+
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(filePath, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                if (attempt > 0) {
+                    throw e;
+                }
+                log.info("AASX 변형이 전송 전에 캐시에서 삭제됨 → 다시 조회: {}", aasxFileName);
+                continue;
+            }
+            long size;
+            try {
+                size = channel.size();
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return ResponseEntity.ok()
+                    // attachment 헤더: 브라우저가 “파일 저장” 대화상자를 띄우도록 함
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + aasxFileName + "\"")
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(size)
+                    .body(new InputStreamResource(Channels.newInputStream(channel)));
+        }
     }
 
 }
@@ -0,0 +1,157 @@
+package com.aasx.transformer.download.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.aasx.transformer.storage.BlobCompressionPolicy;
+import com.aasx.transformer.storage.BlobStore;
+import com.aasx.transformer.upload.dto.FilesMeta;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 첨부파일 묶음(ZIP) 스트리밍
+ * - 저장소의 원본 파일({hash}{ext})을 읽어 응답 스트림에 바로 ZIP으로 기록 (임시 파일 없음)
+ * - 파일마다 고정 크기 버퍼 하나로 복사 → 첨부파일 수/크기와 무관하게 메모리 사용량 일정
+ * - 이미 압축된 형식(이미지, 동영상, PDF, ZIP 계열 등)은 STORED로 저장하여 재압축 CPU를 쓰지 않음
+ *   (STORED 엔트리는 헤더에 크기와 CRC가 필요하므로 파일을 한 번 더 읽어 CRC32와 원본 크기만 계산)
+ * - 같은 이름의 엔트리는 "이름 (2).ext" 형식으로 구분, 같은 이름 + 같은 해시는 한 번만 포함
+ */
+@Slf4j
+@Service
+public class AttachmentBundleService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    /**
+     * 메타 목록의 첨부파일을 ZIP으로 기록하는 응답 본문
+     * 물리 파일이 없는 메타는 건너뜀
+     */
+    public StreamingResponseBody stream(List<FilesMeta> metas) {
+        // 응답 전에 물리 파일 존재 여부와 엔트리 이름을 확정 (DB/디스크 조회 없이 스트리밍만 남김)
+        List<BundleEntry> entries = resolveEntries(metas);
+        return out -> write(entries, out);
+    }
+
+    private List<BundleEntry> resolveEntries(List<FilesMeta> metas) {
+        List<BundleEntry> entries = new ArrayList<>();
+        Set<String> usedNames = new HashSet<>();
+        Set<String> included = new HashSet<>();
+        for (FilesMeta meta : metas) {
+            if (!fileDownloadService.isStored(meta)) {
+                continue;
+            }
+            String fileName = entryFileName(meta);
+            // 같은 이름 + 같은 내용이면 한 번만 포함
+            if (!included.add(fileName + "\n" + meta.getHash())) {
+                continue;
+            }
+            entries.add(new BundleEntry(uniqueName(fileName, usedNames), meta.getHash(), meta.getExtension(),
+                    BlobCompressionPolicy.isCompressedFormat(meta.getExtension(), meta.getContentType())));
+        }
+        return entries;
+    }
+
+    private void write(List<BundleEntry> entries, OutputStream responseOut) throws IOException {
+        long start = System.nanoTime();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int stored = 0;
+        // 응답 스트림은 서블릿 컨테이너가 닫으므로 finish()만 호출
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(responseOut, BUFFER_SIZE));
+        for (BundleEntry entry : entries) {
+            ZipEntry zipEntry = new ZipEntry(entry.name);
+            if (entry.compressed) {
+                // STORED는 원본 크기와 CRC를 엔트리 앞에 기록해야 함 (압축 저장된 첨부파일도 원본 기준)
+                CRC32 crc = new CRC32();
+                long size = checksum(entry, crc, buffer);
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(size);
+                zipEntry.setCompressedSize(size);
+                zipEntry.setCrc(crc.getValue());
+                stored++;
+            } else {
+                zipEntry.setMethod(ZipEntry.DEFLATED);
+            }
+            zip.putNextEntry(zipEntry);
+            try (InputStream in = blobStore.openStream(entry.hash, entry.extension)) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    zip.write(buffer, 0, n);
+                }
+            }
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+        log.info("첨부파일 ZIP 전송 완료: {}개 (STORED {}개), {} ms", entries.size(), stored,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // 원본 내용을 한 번 읽어 CRC를 계산하고 원본 크기 반환
+    private long checksum(BundleEntry entry, CRC32 crc, byte[] buffer) throws IOException {
+        long size = 0;
+        try (InputStream in = blobStore.openStream(entry.hash, entry.extension)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, n);
+                size += n;
+            }
+        }
+        return size;
+    }
+
+    // 원래 파일 이름(name + extension), 없으면 해시 (경로 구분자는 ZIP 폴더로 해석되지 않도록 치환)
+    private static String entryFileName(FilesMeta meta) {
+        String extension = meta.getExtension() == null ? "" : meta.getExtension();
+        String name = meta.getName() == null || meta.getName().isBlank() ? meta.getHash() : meta.getName();
+        return (name + extension).replace('/', '_').replace('\\', '_');
+    }
+
+    private static String uniqueName(String fileName, Set<String> usedNames) {
+        if (usedNames.add(fileName)) {
+            return fileName;
+        }
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        for (int i = 2;; i++) {
+            String candidate = base + " (" + i + ")" + extension;
+            if (usedNames.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static class BundleEntry {
+        final String name;
+        final String hash;
+        final String extension;
+        final boolean compressed;
+
+        BundleEntry(String name, String hash, String extension, boolean compressed) {
+            this.name = name;
+            this.hash = hash;
+            this.extension = extension;
+            this.compressed = compressed;
+        }
+    }
+}
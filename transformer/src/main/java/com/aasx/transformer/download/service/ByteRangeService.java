@@ -0,0 +1,326 @@
+package com.aasx.transformer.download.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.aasx.transformer.deserializer.EnvironmentJsonWriter;
+import com.aasx.transformer.storage.BlobCodec;
+import com.aasx.transformer.storage.BlobStore;
+import com.aasx.transformer.storage.ByteBufferChannel;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ HTTP Range 요청 처리 (RFC 9110 §14)
+ * - Range 헤더가 없거나 If-Range 검증자가 일치하지 않으면 200 + 전체 본문
+ * - 단일 범위: 206 + Content-Range
+ * - 다중 범위: 206 + multipart/byteranges
+ * - 만족할 수 없는 범위: 416 + 전체 길이만 담은 Content-Range
+ * - 압축 저장된 첨부파일은 Range를 무시하고 저장된 압축 바이트(Content-Encoding) 또는 해제한 원본을 전송
+ * - 본문은 FileChannel.transferTo로 파일 → 응답 채널에 직접 전송
+ *   (팩/메모리 저장소의 버퍼 채널은 매핑/힙 영역을 중간 복사 없이 응답에 기록, 그 밖의 채널은 고정 크기 버퍼로 복사)
+ */
+@Slf4j
+@Service
+public class ByteRangeService {
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 응답 본문을 쓸 때마다 새로 여는 읽기 채널
+    @FunctionalInterface
+    private interface ChannelSource {
+        SeekableByteChannel open() throws IOException;
+    }
+
+    /**
+     * 파일을 Range 요청에 맞춰 응답
+     *
+     * @param file           전송할 파일
+     * @param mediaType      파일 MIME 타입
+     * @param headers        응답에 포함할 헤더 (Content-Disposition, ETag 등). ETag가 있으면 If-Range 비교에 사용
+     * @param requestHeaders 요청 헤더 (Range, If-Range)
+     */
+    public ResponseEntity<StreamingResponseBody> respond(Path file, MediaType mediaType,
+            HttpHeaders headers, HttpHeaders requestHeaders) throws IOException {
+        return respond(() -> FileChannel.open(file, StandardOpenOption.READ), Files.size(file),
+                Files.getLastModifiedTime(file).toMillis(), mediaType, headers, requestHeaders);
+    }
+
+    /**
+     * 저장소의 첨부파일을 Range 요청에 맞춰 응답
+     *
+     * @param blobStore 첨부파일 저장소
+     * @param hash      첨부파일 해시
+     * @param extension 저장된 확장자
+     */
+    public ResponseEntity<StreamingResponseBody> respond(BlobStore blobStore, String hash, String extension,
+            MediaType mediaType, HttpHeaders headers, HttpHeaders requestHeaders) throws IOException {
+        BlobCodec codec = blobStore.codec(hash, extension);
+        if (codec != BlobCodec.IDENTITY) {
+            return encoded(blobStore, hash, extension, codec, mediaType, headers, requestHeaders);
+        }
+        return respond(() -> blobStore.open(hash, extension), blobStore.size(hash, extension),
+                blobStore.lastModified(hash, extension), mediaType, headers, requestHeaders);
+    }
+
+    private ResponseEntity<StreamingResponseBody> respond(ChannelSource file, long length, long lastModified,
+            MediaType mediaType, HttpHeaders headers, HttpHeaders requestHeaders) {
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.putAll(headers);
+        responseHeaders.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (responseHeaders.getLastModified() < 0) {
+            responseHeaders.setLastModified(lastModified);
+        }
+
+        String rangeHeader = requestHeaders.getFirst(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(requestHeaders.getFirst(HttpHeaders.IF_RANGE),
+                responseHeaders.getETag(), lastModified)) {
+            return full(file, mediaType, length, responseHeaders);
+        }
+
+        // 형식이 잘못된 Range는 무시하고 전체 전송 (RFC 9110 14.2), 빈 파일도 부분 응답할 내용이 없으므로 전체 전송
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            log.info("잘못된 Range 헤더 무시: '{}' ({})", rangeHeader, e.getMessage());
+            return full(file, mediaType, length, responseHeaders);
+        }
+        if (httpRanges.isEmpty() || length == 0) {
+            return full(file, mediaType, length, responseHeaders);
+        }
+
+        // 만족할 수 있는 범위만 전송, 하나도 없을 때만 416
+        List<long[]> ranges = toByteRanges(httpRanges, length);
+        if (ranges.isEmpty()) {
+            log.info("만족할 수 없는 Range 요청: '{}' (length={})", rangeHeader, length);
+            responseHeaders.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(responseHeaders).build();
+        }
+
+        // 범위 합계가 파일 크기를 넘으면(중복 범위 남용) Range 무시하고 전체 전송
+        long total = 0;
+        for (long[] r : ranges) {
+            total += r[1] - r[0] + 1;
+        }
+        if (total > length) {
+            log.info("Range 합계({})가 파일 크기({})를 초과하여 전체 전송", total, length);
+            return full(file, mediaType, length, responseHeaders);
+        }
+
+        if (ranges.size() == 1) {
+            long[] r = ranges.get(0);
+            long count = r[1] - r[0] + 1;
+            responseHeaders.set(HttpHeaders.CONTENT_RANGE, "bytes " + r[0] + "-" + r[1] + "/" + length);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(responseHeaders)
+                    .contentType(mediaType)
+                    .contentLength(count)
+                    .body(out -> transfer(file, r[0], count, out));
+        }
+
+        return multipart(file, mediaType, length, ranges, responseHeaders);
+    }
+
+    /**
+     * 압축 저장된 첨부파일: Range 없이 200 + 전체 본문 (Accept-Ranges: none)
+     * - 클라이언트가 저장 인코딩을 허용하면 저장된 바이트를 Content-Encoding과 함께 그대로 전송 (표현별 ETag)
+     * - 아니면 읽으면서 해제해 원본 전송 (원본 길이를 미리 알 수 없어 chunked)
+     */
+    private ResponseEntity<StreamingResponseBody> encoded(BlobStore blobStore, String hash, String extension,
+            BlobCodec codec, MediaType mediaType, HttpHeaders headers, HttpHeaders requestHeaders)
+            throws IOException {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.putAll(headers);
+        responseHeaders.set(HttpHeaders.ACCEPT_RANGES, "none");
+        responseHeaders.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        if (responseHeaders.getLastModified() < 0) {
+            responseHeaders.setLastModified(blobStore.lastModified(hash, extension));
+        }
+
+        String coding = codec.getContentEncoding();
+        if (!EnvironmentJsonWriter.acceptsEncoding(requestHeaders, coding)) {
+            return ResponseEntity.ok()
+                    .headers(responseHeaders)
+                    .contentType(mediaType)
+                    .body(out -> {
+                        try (InputStream in = blobStore.openStream(hash, extension)) {
+                            in.transferTo(out);
+                        }
+                    });
+        }
+        if (responseHeaders.getETag() != null) {
+            responseHeaders.setETag(EnvironmentJsonWriter.encodedEtag(responseHeaders.getETag(), coding));
+        }
+        responseHeaders.set(HttpHeaders.CONTENT_ENCODING, coding);
+        long length = blobStore.size(hash, extension);
+        return ResponseEntity.ok()
+                .headers(responseHeaders)
+                .contentType(mediaType)
+                .contentLength(length)
+                .body(out -> transfer(() -> blobStore.open(hash, extension), 0, length, out));
+    }
+
+    // 200 + 전체 본문
+    private ResponseEntity<StreamingResponseBody> full(ChannelSource file, MediaType mediaType, long length,
+            HttpHeaders headers) {
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(mediaType)
+                .contentLength(length)
+                .body(out -> transfer(file, 0, length, out));
+    }
+
+    // 206 + multipart/byteranges
+    private ResponseEntity<StreamingResponseBody> multipart(ChannelSource file, MediaType mediaType, long length,
+            List<long[]> ranges, HttpHeaders headers) {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>();
+        long contentLength = 0;
+        for (long[] r : ranges) {
+            byte[] partHeader = ("--" + boundary + "\r\n"
+                    + "Content-Type: " + mediaType + "\r\n"
+                    + "Content-Range: bytes " + r[0] + "-" + r[1] + "/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += CRLF.length + partHeader.length + (r[1] - r[0] + 1);
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                .contentLength(contentLength)
+                .body(out -> {
+                    try (SeekableByteChannel channel = file.open()) {
+                        WritableByteChannel target = Channels.newChannel(out);
+                        for (int i = 0; i < ranges.size(); i++) {
+                            long[] r = ranges.get(i);
+                            out.write(CRLF);
+                            out.write(partHeaders.get(i));
+                            out.flush();
+                            transferFully(channel, r[0], r[1] - r[0] + 1, target);
+                        }
+                        out.write(closing);
+                    }
+                });
+    }
+
+    // HttpRange 목록을 [start, end] (inclusive) 목록으로 변환. 시작 위치가 파일 크기 이상인 범위는 제외
+    static List<long[]> toByteRanges(List<HttpRange> httpRanges, long length) {
+        List<long[]> ranges = new ArrayList<>(httpRanges.size());
+        for (HttpRange range : httpRanges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (start < length && start <= end) {
+                ranges.add(new long[] { start, end });
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * If-Range 검증
+     * - 헤더가 없으면 true
+     * - 엔티티 태그면 강한 비교(약한 태그는 불일치)
+     * - HTTP-date면 Last-Modified와 초 단위로 정확히 일치해야 함
+     */
+    static boolean ifRangeMatches(String ifRange, String etag, long lastModifiedMillis) {
+        if (ifRange == null || ifRange.isBlank()) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return etag != null && !etag.startsWith("W/") && value.equals(etag);
+        }
+        try {
+            long date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return date / 1000 == lastModifiedMillis / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static void transfer(ChannelSource file, long position, long count, OutputStream out)
+            throws IOException {
+        try (SeekableByteChannel channel = file.open()) {
+            transferFully(channel, position, count, Channels.newChannel(out));
+        }
+    }
+
+    // transferTo는 요청보다 적게 전송할 수 있으므로 남은 바이트가 없을 때까지 반복
+    private static void transferFully(SeekableByteChannel channel, long position, long count,
+            WritableByteChannel target) throws IOException {
+        if (channel instanceof ByteBufferChannel buffered) {
+            if (buffered.transferTo(position, count, target) < count) {
+                throw new IOException("파일 전송 중단: " + position + " / " + (position + count));
+            }
+            return;
+        }
+        if (!(channel instanceof FileChannel fileChannel)) {
+            copyFully(channel, position, count, target);
+            return;
+        }
+        long sent = 0;
+        while (sent < count) {
+            long n = fileChannel.transferTo(position + sent, count - sent, target);
+            if (n <= 0) {
+                throw new IOException("파일 전송 중단: " + (position + sent) + " / " + (position + count));
+            }
+            sent += n;
+        }
+    }
+
+    // 파일이 아닌 채널: position 이동 후 버퍼로 복사
+    private static void copyFully(SeekableByteChannel channel, long position, long count,
+            WritableByteChannel target) throws IOException {
+        channel.position(position);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(count, 1)));
+        long sent = 0;
+        while (sent < count) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), count - sent));
+            int n = channel.read(buffer);
+            if (n < 0) {
+                throw new IOException("파일 전송 중단: " + (position + sent) + " / " + (position + count));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            sent += n;
+        }
+    }
+}
@@ -8,26 +8,30 @@ import org.eclipse.digitaltwin.aas4j.v3.model.Submodel;
 import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElement;
 import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElementCollection;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.aasx.transformer.deserializer.AASXFileDeserializer;
+import com.aasx.transformer.deserializer.EnvironmentJsonWriter;
+import com.aasx.transformer.storage.BlobStore;
 import com.aasx.transformer.upload.dto.FilesMeta;
 import com.aasx.transformer.upload.mapper.UploadMapper;
+import com.aasx.transformer.upload.service.EnvironmentCache;
+import com.aasx.transformer.upload.service.FileMetaRegistrationService;
 import com.aasx.transformer.upload.service.FileUploadService;
 import com.aasx.transformer.upload.service.JsonToAASXService;
+import com.aasx.transformer.upload.service.ThumbnailResolver;
 
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Slf4j
@@ -39,27 +43,28 @@ public class FileDownloadService {
     @Autowired
     private FileUploadService fileUploadService;
 
+    @Autowired
+    private ThumbnailResolver thumbnailResolver;
+
     @Autowired
     private JsonToAASXService jsonToAasxService;
 
     @Autowired
-    private AASXFileDeserializer aasxFileDeserializer;
+    private EnvironmentJsonWriter environmentJsonWriter;
 
-    @Value("${upload.path}")
-    private String uploadPath;
+    @Autowired
+    private BlobStore blobStore;
 
     /**
      * ✅ JSON→AASX 변환된 환경 전용 메소드
-     *    주어진 JSON 파일명에 해당하는 Environment에서 메타를 조회
+     *    작업 공간에서 주어진 JSON 파일명에 해당하는 Environment에서 메타를 조회
      */
-    public List<FilesMeta> getJsonConvertedFileMetas(String packageFileName) {
-        List<String> jsonNames = jsonToAasxService.getUploadedJsonFileNames();
-        int idx = jsonNames.indexOf(packageFileName);
-        if (idx < 0) {
+    public List<FilesMeta> getJsonConvertedFileMetas(String workspaceId, String packageFileName) {
+        Environment env = jsonToAasxService.getUploadedEnvironment(workspaceId, packageFileName);
+        if (env == null) {
             log.warn("JSON→AASX 변환 환경에서 '{}' 을(를) 찾을 수 없습니다.", packageFileName);
             return Collections.emptyList();
         }
-        Environment env = jsonToAasxService.getUploadedEnvironments().get(idx);
         return collectMetas(env);
     }
 
@@ -67,83 +72,97 @@ public class FileDownloadService {
      * ✅ 특정 패키지 파일 이름에 해당하는 Environment의 첨부파일 메타 정보를 조회
      *    (기존 AASX 업로드 환경에서 처리)
      */
-    public List<FilesMeta> getFileMetasByPackageFileName(String packageFileName) {
-        List<String> fileNames = fileUploadService.getUploadedFileNames();
-        List<Environment> environments = fileUploadService.getUploadedEnvironments();
-
-        int index = fileNames.indexOf(packageFileName);
-        if (index < 0) {
+    public List<FilesMeta> getFileMetasByPackageFileName(String workspaceId, String packageFileName) {
+        Environment environment = fileUploadService.getUploadedEnvironment(workspaceId, packageFileName);
+        if (environment == null) {
             log.warn("패키지 파일 '{}' 에 해당하는 Environment를 찾을 수 없습니다.", packageFileName);
             return Collections.emptyList();
         }
-        Environment environment = environments.get(index);
         return collectMetas(environment);
     }
 
+    /**
+     * ✅ 복합키("aasId::submodelId::idShort") 목록에 해당하는 메타를 한 번에 조회 (요청 순서 유지)
+     *    형식이 잘못되었거나 등록되지 않은 복합키는 건너뜀
+     */
+    public List<FilesMeta> getFileMetasByCompositeKeys(List<String> compositeKeys) {
+        List<FilesMeta> keys = new ArrayList<>();
+        for (String compositeKey : compositeKeys) {
+            String[] parts = compositeKey == null ? new String[0] : compositeKey.split("::");
+            if (parts.length < 3) {
+                log.warn("복합키 형식이 올바르지 않음: {}", compositeKey);
+                continue;
+            }
+            keys.add(FileMetaRegistrationService.metaKey(parts[0], parts[1], parts[2]));
+        }
+
+        Map<String, FilesMeta> metaByKey = new HashMap<>();
+        for (FilesMeta found : uploadMapper.selectFileMetasByKeysChunked(keys)) {
+            metaByKey.put(FileMetaRegistrationService.compositeKey(found), found);
+        }
+        List<FilesMeta> metas = new ArrayList<>();
+        for (FilesMeta key : keys) {
+            FilesMeta meta = metaByKey.get(FileMetaRegistrationService.compositeKey(key));
+            if (meta != null) metas.add(meta);
+        }
+        return metas;
+    }
+
     /**
      * ✅ Environment 객체로부터 Submodel 순회, File 요소 추출, DefaultThumbnail 처리까지
      *    공통 메타 추출 로직
+     *    - Environment 순회 중에는 복합키만 수집하고, DB는 복합키 목록으로 일괄 조회
+     *    - 조회 결과를 메모리에서 요소 순서대로 결합 → 요소 수와 무관하게 조회 횟수 일정
      */
     private List<FilesMeta> collectMetas(Environment environment) {
-        List<FilesMeta> metas = new ArrayList<>();
-
+        // 1) File 요소 복합키 수집 (DB 조회 없음)
+        List<FilesMeta> fileKeys = new ArrayList<>();
         if (environment.getSubmodels() != null) {
             for (Submodel submodel : environment.getSubmodels()) {
                 String submodelId = submodel.getId();
                 String aasId = findAasIdForSubmodel(environment, submodelId);
-                collectFileMetasRecursive(submodel.getSubmodelElements(), aasId, submodelId, metas);
+                collectFileKeysRecursive(submodel.getSubmodelElements(), aasId, submodelId, fileKeys);
             }
         }
 
-        // --- Asset default thumbnail (reflection) 처리 ---
-        try {
-            for (AssetAdministrationShell shell : environment.getAssetAdministrationShells()) {
-                Object assetInfo = shell.getAssetInformation();
-                if (assetInfo == null) continue;
+        // 2) Asset default thumbnail 복합키
+        ThumbnailResolver.Thumbnail thumbnail = thumbnailResolver.resolveFirst(environment);
+        FilesMeta thumbKey = thumbnail == null ? null
+                : FileMetaRegistrationService.metaKey(thumbnail.getAasId(), thumbnail.getGlobalAssetId(),
+                        new File(thumbnail.getPath()).getName());
 
-                Method mThumb = assetInfo.getClass().getMethod("getDefaultThumbnail");
-                Object dataRes = mThumb.invoke(assetInfo);
-                if (dataRes == null) continue;
-
-                String thumbPath = null;
-                try {
-                    Method mVal = dataRes.getClass().getMethod("getValue");
-                    Object raw = mVal.invoke(dataRes);
-                    if (raw instanceof String) thumbPath = (String) raw;
-                } catch (Exception e1) {
-                    try {
-                        Method mP = dataRes.getClass().getMethod("getPath");
-                        Object raw2 = mP.invoke(dataRes);
-                        if (raw2 instanceof String) thumbPath = (String) raw2;
-                    } catch (Exception ignored) {}
-                }
-                if (thumbPath == null) continue;
+        // 3) 복합키 목록으로 메타 일괄 조회 후 복합키 → 메타 인덱스 구성
+        List<FilesMeta> lookupKeys = new ArrayList<>(fileKeys);
+        if (thumbKey != null) lookupKeys.add(thumbKey);
+        Map<String, FilesMeta> metaByKey = new HashMap<>();
+        for (FilesMeta found : uploadMapper.selectFileMetasByKeysChunked(lookupKeys)) {
+            metaByKey.put(FileMetaRegistrationService.compositeKey(found), found);
+        }
 
-                String aasId = shell.getId();
-                Method mGlobal = assetInfo.getClass().getMethod("getGlobalAssetId");
-                String globalAssetId = (String) mGlobal.invoke(assetInfo);
-                String idShort = new File(thumbPath).getName();
+        // 4) 요소 순서대로 결합
+        List<FilesMeta> metas = new ArrayList<>();
+        for (FilesMeta key : fileKeys) {
+            FilesMeta meta = metaByKey.get(FileMetaRegistrationService.compositeKey(key));
+            if (meta != null) metas.add(meta);
+            else log.warn("DB에서 메타를 찾지 못함 (aasId={}, submodelId={}, idShort={})",
+                    key.getAasId(), key.getSubmodelId(), key.getIdShort());
+        }
 
-                FilesMeta thumbMeta = uploadMapper.selectFileMetaByPath(aasId, globalAssetId, idShort);
-                if (thumbMeta != null && metas.stream().noneMatch(m -> m.getHash().equals(thumbMeta.getHash()))) {
-                    try {
-                        Method mCT = dataRes.getClass().getMethod("getContentType");
-                        Object ctRaw = mCT.invoke(dataRes);
-                        if (ctRaw instanceof String) thumbMeta.setContentType((String) ctRaw);
-                    } catch (NoSuchMethodException | ClassCastException ignored) {}
+        if (thumbKey != null) {
+            FilesMeta thumbMeta = metaByKey.get(FileMetaRegistrationService.compositeKey(thumbKey));
+            if (thumbMeta != null && metas.stream().noneMatch(m -> m.getHash().equals(thumbMeta.getHash()))) {
+                if (thumbnail.getContentType() != null) thumbMeta.setContentType(thumbnail.getContentType());
 
-                    int dot = thumbPath.lastIndexOf('.');
-                    if (dot >= 0) thumbMeta.setExtension(thumbPath.substring(dot));
+                String thumbPath = thumbnail.getPath();
+                int dot = thumbPath.lastIndexOf('.');
+                if (dot >= 0) thumbMeta.setExtension(thumbPath.substring(dot));
 
-                    metas.add(thumbMeta);
-                }
-                break;
+                metas.add(thumbMeta);
             }
-        } catch (Exception e) {
-            log.warn("DefaultThumbnail reflection 처리 중 오류: {}", e.toString());
         }
 
-        log.info("Environment '{}' 에서 추출된 메타 총 {}건", environment.getAssetAdministrationShells().get(0).getId(), metas.size());
+        log.info("Environment '{}' 에서 추출된 메타 총 {}건 (일괄 조회 키 {}개)",
+                environment.getAssetAdministrationShells().get(0).getId(), metas.size(), lookupKeys.size());
         return metas;
     }
 
@@ -166,10 +185,10 @@ public class FileDownloadService {
     }
 
     /**
-     * ✅ SubmodelElement 재귀 순회하며 File 요소를 찾아 DB 메타 조회
+     * ✅ SubmodelElement 재귀 순회하며 File 요소의 복합키 수집 (DB 조회는 collectMetas에서 일괄 수행)
      */
     @SuppressWarnings("unchecked")
-    private void collectFileMetasRecursive(List<SubmodelElement> elements, String aasId, String submodelId, List<FilesMeta> metas) {
+    private void collectFileKeysRecursive(List<SubmodelElement> elements, String aasId, String submodelId, List<FilesMeta> keys) {
         if (elements == null) return;
         for (SubmodelElement element : elements) {
             if (element instanceof org.eclipse.digitaltwin.aas4j.v3.model.File) {
@@ -179,17 +198,15 @@ public class FileDownloadService {
                     log.info("빈 file value 건너뜀, idShort: {}", idShort);
                     continue;
                 }
-                FilesMeta meta = uploadMapper.selectFileMetaByPath(aasId, submodelId, idShort);
-                if (meta != null) metas.add(meta);
-                else log.warn("DB에서 메타를 찾지 못함 (aasId={}, submodelId={}, idShort={})", aasId, submodelId, idShort);
+                keys.add(FileMetaRegistrationService.metaKey(aasId, submodelId, idShort));
             } else if (element instanceof SubmodelElementCollection) {
-                collectFileMetasRecursive(((SubmodelElementCollection) element).getValue(), aasId, submodelId, metas);
+                collectFileKeysRecursive(((SubmodelElementCollection) element).getValue(), aasId, submodelId, keys);
             } else {
                 try {
                     Method gv = element.getClass().getMethod("getValue");
                     if (List.class.isAssignableFrom(gv.getReturnType())) {
                         List<SubmodelElement> child = (List<SubmodelElement>) gv.invoke(element);
-                        collectFileMetasRecursive(child, aasId, submodelId, metas);
+                        collectFileKeysRecursive(child, aasId, submodelId, keys);
                     }
                 } catch (Exception e) {
                     log.warn("자식 요소 탐색 중 예외 발생: {}", e.getMessage());
@@ -199,35 +216,39 @@ public class FileDownloadService {
     }
 
     /**
-     * ✅ Environment 객체를 JSON으로 직렬화 후 Resource 반환
+     * ✅ Environment 객체를 JSON으로 직렬화하여 응답 스트림에 바로 기록하는 본문 반환
+     *    (gzip=true 이면 기록하면서 압축)
      */
-    public Resource downloadEnvironmentAsJson(Environment environment, String originalFileName) {
-        log.info("downloadEnvironmentAsJson 호출 - originalFileName: {}", originalFileName);
-        try {
-            String json = aasxFileDeserializer.serializeEnvironmentToJson(environment);
-            return new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8));
-        } catch (Exception e) {
-            log.error("Environment JSON 파일 생성 실패", e);
-            throw new RuntimeException("Environment JSON 파일 생성 실패", e);
-        }
+    public StreamingResponseBody downloadEnvironmentAsJson(Environment environment, String originalFileName, boolean gzip) {
+        log.info("downloadEnvironmentAsJson 호출 - originalFileName: {}, gzip: {}", originalFileName, gzip);
+        return out -> environmentJsonWriter.write(environment, out, gzip);
     }
 
     /**
-     * ✅ 해시로 파일 조회 후 Resource 반환
+     * ✅ 캐시된 Environment의 JSON ETag (최초 1회 계산 후 캐시 엔트리에 보관)
      */
-    public Resource downloadFileByHash(String hash) {
-        FilesMeta meta = uploadMapper.selectOneFileMetaByHash(hash);
-        if (meta == null) {
-            log.error("해당 해시의 파일 메타 정보가 없습니다: {}", hash);
-            throw new RuntimeException("파일을 찾을 수 없습니다.");
+    public String environmentEtag(EnvironmentCache.CachedEnvironment cached) {
+        String etag = cached.getJsonEtag();
+        if (etag == null) {
+            try {
+                etag = environmentJsonWriter.etag(cached.getEnvironment());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Environment JSON ETag 계산 실패", e);
+            }
+            cached.setJsonEtag(etag);
         }
-        File file = new File(uploadPath, hash + meta.getExtension());
-        if (!file.exists()) {
-            log.error("물리 파일이 존재하지 않습니다: {}", file.getAbsolutePath());
-            throw new RuntimeException("파일을 찾을 수 없습니다.");
+        return etag;
+    }
+
+    /**
+     * ✅ 메타에 해당하는 첨부파일({hash}{ext})이 저장소에 있는지 확인
+     */
+    public boolean isStored(FilesMeta meta) {
+        if (!blobStore.exists(meta.getHash(), meta.getExtension())) {
+            log.error("물리 파일이 존재하지 않습니다: {}{}", meta.getHash(), meta.getExtension());
+            return false;
         }
-        log.info("다운로드할 파일 경로: {}", file.getAbsolutePath());
-        return new FileSystemResource(file);
+        return true;
     }
 
     /**
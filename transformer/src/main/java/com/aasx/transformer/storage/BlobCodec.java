@@ -0,0 +1,89 @@
+package com.aasx.transformer.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * ✅ 첨부파일 저장 인코딩
+ * - 이름은 HTTP Content-Encoding 값과 같음 → 클라이언트가 허용하면 저장된 바이트를 그대로 전송
+ * - deflate는 HTTP 규약대로 zlib 형식 (RFC 1950)
+ */
+public enum BlobCodec {
+
+    IDENTITY("identity", ""),
+    GZIP("gzip", ".gz"),
+    DEFLATE("deflate", ".zz");
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final String contentEncoding;
+    // 파일 시스템 저장소에서 저장 파일 이름 뒤에 붙이는 접미사
+    private final String suffix;
+
+    BlobCodec(String contentEncoding, String suffix) {
+        this.contentEncoding = contentEncoding;
+        this.suffix = suffix;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * 원본 바이트를 기록하면 이 인코딩으로 out에 기록하는 스트림 (닫으면 out도 닫힘)
+     */
+    public OutputStream encode(OutputStream out) throws IOException {
+        return switch (this) {
+            case IDENTITY -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE);
+            case DEFLATE -> new DeflaterOutputStream(out);
+        };
+    }
+
+    // 힙에 있는 작은 내용 인코딩 (메모리/팩 저장소)
+    byte[] encode(byte[] content) throws IOException {
+        if (this == IDENTITY) {
+            return content;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, content.length / 4));
+        try (OutputStream out = encode(buffer)) {
+            out.write(content);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 이 인코딩으로 저장된 바이트를 원본으로 읽는 스트림
+     */
+    public InputStream decode(InputStream in) throws IOException {
+        return switch (this) {
+            case IDENTITY -> in;
+            case GZIP -> new GZIPInputStream(in, BUFFER_SIZE);
+            case DEFLATE -> new InflaterInputStream(in);
+        };
+    }
+
+    /**
+     * Content-Encoding 이름 → 인코딩 ("gzip", "deflate", "identity"), 모르는 이름이면 IllegalArgumentException
+     */
+    public static BlobCodec of(String contentEncoding) {
+        String name = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        for (BlobCodec codec : values()) {
+            if (codec.contentEncoding.equals(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("지원하지 않는 압축 방식: " + contentEncoding);
+    }
+}
@@ -0,0 +1,113 @@
+package com.aasx.transformer.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 콘텐츠 타입별 첨부파일 압축 저장 정책
+ * - storage.compression.policies: "콘텐츠 타입:인코딩" 목록 (예: text/*:gzip,application/xml:deflate), 먼저 일치한 항목 사용
+ * - 콘텐츠 타입은 확장자로 판별 (Spring mime.types + CAD 형식 보완)
+ * - 이미 압축된 형식(PNG, JPEG, ZIP, PDF, 동영상 등)은 정책과 무관하게 압축하지 않음
+ */
+@Slf4j
+@Component
+public class BlobCompressionPolicy {
+
+    // 이미 압축된 형식: 다시 압축해도 줄지 않음 (ZIP 묶음 전송에서도 STORED로 사용)
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            ".jpg", ".jpeg", ".png", ".gif", ".webp", ".heic", ".avif",
+            ".mp4", ".m4v", ".mov", ".webm", ".mkv", ".avi", ".mp3", ".m4a", ".aac", ".ogg", ".opus", ".flac",
+            ".zip", ".gz", ".tgz", ".bz2", ".xz", ".7z", ".rar", ".zst",
+            ".pdf", ".aasx", ".docx", ".xlsx", ".pptx", ".odt", ".ods", ".3mf", ".glb", ".jar");
+
+    // mime.types에 없는 CAD 형식
+    private static final Map<String, String> EXTRA_CONTENT_TYPES = Map.of(
+            ".step", "model/step",
+            ".stp", "model/step",
+            ".stl", "model/stl",
+            ".obj", "model/obj",
+            ".iges", "model/iges",
+            ".igs", "model/iges");
+
+    @Value("${storage.compression.policies:}")
+    private String policies;
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    private static class Rule {
+        final MediaType type;
+        final BlobCodec codec;
+
+        Rule(MediaType type, BlobCodec codec) {
+            this.type = type;
+            this.codec = codec;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        rules.clear();
+        for (String entry : policies.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("storage.compression.policies 형식 오류 (타입:인코딩): " + entry);
+            }
+            rules.add(new Rule(MediaType.parseMediaType(entry.substring(0, colon).trim()),
+                    BlobCodec.of(entry.substring(colon + 1))));
+        }
+        log.info("첨부파일 압축 저장 정책: {}", rules.isEmpty() ? "사용 안 함" : policies);
+    }
+
+    /**
+     * 확장자(".xml" 등)로 저장 인코딩 결정, 정책에 없거나 이미 압축된 형식이면 IDENTITY
+     */
+    public BlobCodec codecFor(String extension) {
+        if (rules.isEmpty() || isCompressedFormat(extension, null)) {
+            return BlobCodec.IDENTITY;
+        }
+        MediaType type = contentTypeOf(extension);
+        for (Rule rule : rules) {
+            if (rule.type.includes(type)) {
+                return rule.codec;
+            }
+        }
+        return BlobCodec.IDENTITY;
+    }
+
+    /**
+     * 이미 압축된 형식인지 (확장자 또는 메타 contentType 기준)
+     */
+    public static boolean isCompressedFormat(String extension, String contentType) {
+        String ext = extension == null ? "" : extension.toLowerCase(Locale.ROOT);
+        if (COMPRESSED_EXTENSIONS.contains(ext)) {
+            return true;
+        }
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("image/jpeg") || type.startsWith("image/png")
+                || type.startsWith("video/") || type.startsWith("application/zip")
+                || type.startsWith("application/pdf");
+    }
+
+    static MediaType contentTypeOf(String extension) {
+        String ext = extension == null ? "" : extension.toLowerCase(Locale.ROOT);
+        String extra = EXTRA_CONTENT_TYPES.get(ext);
+        if (extra != null) {
+            return MediaType.parseMediaType(extra);
+        }
+        return MediaTypeFactory.getMediaType("file" + ext).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+}
@@ -0,0 +1,13 @@
+package com.aasx.transformer.storage;
+
+/**
+ * ✅ 첨부파일 저장 시 디스크 동기화(fsync) 정책 (storage.fsync)
+ */
+public enum BlobDurability {
+    // OS 페이지 캐시에 맡김 (가장 빠름, 전원 장애 시 최근 파일 유실 가능)
+    NONE,
+    // rename 전에 임시 파일 내용을 fsync → 최종 경로에는 완전한 파일만 나타남
+    FILE,
+    // FILE + rename 후 샤드 디렉토리 fsync → 새 파일의 디렉토리 엔트리까지 보존
+    FILE_AND_DIRECTORY
+}
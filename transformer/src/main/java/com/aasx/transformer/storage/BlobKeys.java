@@ -0,0 +1,26 @@
+package com.aasx.transformer.storage;
+
+import java.util.regex.Pattern;
+
+/**
+ * 저장소 공통 키 규칙
+ */
+final class BlobKeys {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private BlobKeys() {
+    }
+
+    // 경로/키로 쓰기 전에 해시 형식 검증 (경로 조작 방지)
+    static String requireHash(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("잘못된 해시: " + hash);
+        }
+        return hash;
+    }
+
+    static String key(String hash, String extension) {
+        return requireHash(hash) + (extension == null ? "" : extension);
+    }
+}
@@ -0,0 +1,70 @@
+package com.aasx.transformer.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * ✅ 내용 주소(SHA-256 + 확장자) 첨부파일 저장소
+ * - 구현은 storage.backend로 선택: filesystem(기본, 샤드 디렉토리) / pack(팩 파일) / memory(테스트·벤치마크용)
+ * - 서비스는 물리 경로를 직접 만들지 않고 이 인터페이스로만 첨부파일에 접근
+ * - 압축 저장(BlobCodec)해도 해시와 StoredBlob 크기는 압축 전 원본 기준
+ */
+public interface BlobStore {
+
+    /**
+     * 스트림 내용을 SHA-256을 계산하며 codec으로 인코딩해 저장 (같은 해시 + 확장자가 이미 있으면 새로 쓰지 않음)
+     */
+    StoredBlob put(InputStream in, String extension, BlobCodec codec) throws IOException;
+
+    default StoredBlob put(InputStream in, String extension) throws IOException {
+        return put(in, extension, BlobCodec.IDENTITY);
+    }
+
+    /**
+     * 저장된 그대로의 바이트를 읽는 채널 (압축 저장이면 압축된 바이트, position 지정 가능), 없으면 NoSuchFileException
+     */
+    SeekableByteChannel open(String hash, String extension) throws IOException;
+
+    /**
+     * 저장 인코딩, 없으면 NoSuchFileException
+     */
+    BlobCodec codec(String hash, String extension) throws IOException;
+
+    boolean exists(String hash, String extension);
+
+    /**
+     * 저장된 바이트 크기(bytes, 압축 저장이면 압축된 크기), 없으면 NoSuchFileException
+     */
+    long size(String hash, String extension) throws IOException;
+
+    /**
+     * 저장 시각(ms), Last-Modified / If-Range 비교용. 없으면 NoSuchFileException
+     */
+    long lastModified(String hash, String extension) throws IOException;
+
+    /**
+     * 삭제, 삭제했으면 true
+     */
+    boolean delete(String hash, String extension) throws IOException;
+
+    /**
+     * 원본 내용을 읽는 스트림 (압축 저장이면 읽으면서 해제)
+     */
+    default InputStream openStream(String hash, String extension) throws IOException {
+        return codec(hash, extension).decode(Channels.newInputStream(open(hash, extension)));
+    }
+
+    /**
+     * 같은 내용을 다른 확장자로도 저장 (메타 확장자가 추출 시 확장자와 다른 경우, 저장 인코딩 유지)
+     */
+    default void copy(String hash, String fromExtension, String toExtension) throws IOException {
+        if (exists(hash, toExtension)) {
+            return;
+        }
+        try (InputStream in = openStream(hash, fromExtension)) {
+            put(in, toExtension, codec(hash, fromExtension));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.aasx.transformer.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 읽기 전용 ByteBuffer(힙 배열 또는 메모리 매핑 영역)를 SeekableByteChannel로 노출
+ * - transferTo: 중간 버퍼 복사 없이 버퍼 영역을 대상 채널에 바로 기록 (팩 매핑 영역 → 응답)
+ */
+public final class ByteBufferChannel implements SeekableByteChannel {
+
+    private final ByteBuffer buffer;
+    private int position;
+    private boolean open = true;
+
+    ByteBufferChannel(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws ClosedChannelException {
+        ensureOpen();
+        int remaining = buffer.limit() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int n = Math.min(remaining, dst.remaining());
+        dst.put(dst.position(), buffer, position, n);
+        dst.position(dst.position() + n);
+        position += n;
+        return n;
+    }
+
+    /**
+     * position부터 count 바이트를 대상 채널에 기록 (채널 position은 바꾸지 않음), 기록한 바이트 수 반환
+     */
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        ensureOpen();
+        if (position >= buffer.limit()) {
+            return 0;
+        }
+        int start = (int) position;
+        ByteBuffer region = buffer.slice(start, (int) Math.min(count, buffer.limit() - start));
+        int length = region.remaining();
+        while (region.hasRemaining()) {
+            target.write(region);
+        }
+        return length;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws ClosedChannelException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws ClosedChannelException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("position < 0");
+        }
+        position = (int) Math.min(newPosition, buffer.limit());
+        return this;
+    }
+
+    @Override
+    public long size() throws ClosedChannelException {
+        ensureOpen();
+        return buffer.limit();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
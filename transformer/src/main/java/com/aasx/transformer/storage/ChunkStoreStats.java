@@ -0,0 +1,29 @@
+package com.aasx.transformer.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ✅ 청크 저장소 중복 제거 현황 (storage.backend=chunked가 아니면 enabled=false, 나머지 0)
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChunkStoreStats {
+    private boolean enabled;
+    // 청크로 나눠 저장된 첨부파일 수
+    private int chunkedFiles;
+    // 저장된 고유 청크 수
+    private long uniqueChunks;
+    // 청크로 나눠 저장된 첨부파일 원본 크기 합 (bytes)
+    private long logicalBytes;
+    // 고유 청크 원본 크기 합 (bytes, 압축 저장 전)
+    private long uniqueBytes;
+    // logicalBytes / uniqueBytes (1.0 = 중복 없음)
+    private double dedupRatio;
+
+    public static ChunkStoreStats disabled() {
+        return new ChunkStoreStats(false, 0, 0, 0, 0, 1.0);
+    }
+}
@@ -0,0 +1,607 @@
+package com.aasx.transformer.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 청크 중복 제거 첨부파일 저장소 (storage.backend=chunked)
+ * - storage.chunk.file-threshold 이상 첨부파일은 내용 기반 청킹(ContentDefinedChunker)으로 나눠
+ *   고유 청크만 {upload.path}/chunks/{hash 앞 2자}/{다음 2자}/{청크 hash}(+ 인코딩 접미사)에 한 번 저장
+ *   → 몇 KB만 다른 CAD 모델/매뉴얼 리비전은 바뀐 청크만 새로 저장
+ * - 첨부파일별 청크 목록(레시피)은 {upload.path}/recipes/{hash 앞 2자}/{다음 2자}/{hash}{ext}
+ *   레시피: MAGIC | 원본 크기 | 저장 시각 | 청크 수 | (청크 SHA-256(32B) | 청크 길이) × 청크 수
+ * - 청크 해시/경계는 원본 기준, 청크는 요청된 codec으로 압축 저장 (읽을 때 해제)
+ * - 작은 첨부파일과 chunked로 바꾸기 전에 저장된 파일은 파일 시스템 저장소(샤드 경로)에 그대로 저장/조회
+ * - 청크 참조 수는 기동 시 레시피를 읽어 재구성, 레시피가 없는 청크(레시피 확정 전에 종료)는 삭제
+ * - 읽기: 레시피 순서대로 청크를 이어 읽는 채널 (position 지정 가능 → Range 요청도 해당 청크부터 읽음)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "chunked")
+public class ChunkedBlobStore implements BlobStore {
+
+    private static final String CHUNK_DIR = "chunks";
+    private static final String RECIPE_DIR = "recipes";
+    private static final String TEMP_DIR = ".tmp";
+    // 청크는 확장자 없이 해시로만 저장
+    private static final String CHUNK_EXTENSION = "";
+    private static final int MAGIC = 0x41415843;
+    private static final Pattern CHUNK_NAME = Pattern.compile("([0-9a-f]{64})(\\..*)?");
+    private static final Pattern RECIPE_NAME = Pattern.compile("([0-9a-f]{64})(.*)");
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Value("${upload.path}")
+    private String uploadPath;
+
+    @Value("${storage.fsync:FILE}")
+    private BlobDurability durability;
+
+    @Value("${storage.chunk.file-threshold:1048576}")
+    private int fileThreshold;
+
+    @Value("${storage.chunk.min-size:16384}")
+    private int minChunkSize;
+
+    @Value("${storage.chunk.avg-size:65536}")
+    private int avgChunkSize;
+
+    @Value("${storage.chunk.max-size:262144}")
+    private int maxChunkSize;
+
+    @Value("${storage.migrate-flat-layout:true}")
+    private boolean migrateFlatLayout;
+
+    @Value("${storage.verify-on-migrate:false}")
+    private boolean verifyOnMigrate;
+
+    private ContentDefinedChunker chunker;
+    private Path recipeDir;
+    private Path recipeTempDir;
+    // 청크로 나누지 않는 첨부파일 보관
+    private FileSystemBlobStore files;
+    // 고유 청크 보관 (청크 해시 = 파일 이름이라 같은 청크는 한 번만 기록)
+    private FileSystemBlobStore chunks;
+
+    // 해시 + 확장자 → 레시피
+    private final Map<String, Recipe> recipes = new ConcurrentHashMap<>();
+    // 청크 해시 → 참조 수 / 원본 길이, refLock으로 보호
+    private final Map<String, ChunkRef> chunkRefs = new HashMap<>();
+    // 레시피 확정/삭제와 청크 참조 수 변경은 한 번에 하나 (가상 스레드 고정을 피하기 위해 ReentrantLock)
+    private final ReentrantLock refLock = new ReentrantLock();
+    private long logicalBytes;
+    private long uniqueBytes;
+
+    private static class ChunkRef {
+        int count;
+        final int length;
+
+        ChunkRef(int length) {
+            this.length = length;
+        }
+    }
+
+    private static class Recipe {
+        final long size;
+        final long lastModified;
+        final String[] chunkHashes;
+        // offsets[i] = i번째 청크의 시작 위치, offsets[청크 수] = size
+        final long[] offsets;
+
+        Recipe(long size, long lastModified, String[] chunkHashes, long[] offsets) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.chunkHashes = chunkHashes;
+            this.offsets = offsets;
+        }
+
+        int chunkLength(int index) {
+            return (int) (offsets[index + 1] - offsets[index]);
+        }
+
+        // position을 포함하는 청크 번호
+        int chunkAt(long position) {
+            int found = Arrays.binarySearch(offsets, 0, chunkHashes.length, position);
+            return found >= 0 ? found : -found - 2;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        chunker = new ContentDefinedChunker(minChunkSize, avgChunkSize, maxChunkSize);
+        Path root = Paths.get(uploadPath);
+        recipeDir = root.resolve(RECIPE_DIR);
+        recipeTempDir = recipeDir.resolve(TEMP_DIR);
+        files = new FileSystemBlobStore(uploadPath, durability, migrateFlatLayout, verifyOnMigrate);
+        files.init();
+        chunks = new FileSystemBlobStore(root.resolve(CHUNK_DIR).toString(), durability, false, false);
+        chunks.init();
+        try {
+            Files.createDirectories(recipeTempDir);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(recipeTempDir)) {
+                for (Path file : stream) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            long start = System.nanoTime();
+            loadRecipes();
+            int orphans = deleteOrphanChunks(root.resolve(CHUNK_DIR));
+            log.info("청크 레시피 적재: 첨부파일 {}개, 고유 청크 {}개, 미참조 청크 {}개 삭제 ({} ms)", recipes.size(),
+                    chunkRefs.size(), orphans, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("청크 저장소 초기화 실패: " + recipeDir, e);
+        }
+        log.info("청크 첨부파일 저장소: {} ({} bytes 이상 청크 저장, 청크 {}/{}/{} bytes, fsync={})",
+                root.resolve(CHUNK_DIR).toAbsolutePath(), fileThreshold, minChunkSize, avgChunkSize, maxChunkSize,
+                durability);
+    }
+
+    /**
+     * file-threshold 미만은 파일 시스템 저장소에 저장,
+     * 이상은 원본 SHA-256을 계산하며 청크로 나눠 없는 청크만 기록하고 마지막에 레시피 확정
+     */
+    @Override
+    public StoredBlob put(InputStream in, String extension, BlobCodec codec) throws IOException {
+        String ext = extension == null ? "" : extension;
+        byte[] head = in.readNBytes(fileThreshold);
+        if (head.length < fileThreshold) {
+            return files.put(new ByteArrayInputStream(head), ext, codec);
+        }
+        InputStream source = new SequenceInputStream(new ByteArrayInputStream(head), in);
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        List<String> chunkHashes = new ArrayList<>();
+        List<Integer> chunkLengths = new ArrayList<>();
+        byte[] buffer = new byte[chunker.getMaxSize()];
+        int filled = 0;
+        long size = 0;
+        try {
+            while (true) {
+                filled += source.readNBytes(buffer, filled, buffer.length - filled);
+                if (filled == 0) {
+                    break;
+                }
+                int length = chunker.cut(buffer, filled);
+                digest.update(buffer, 0, length);
+                chunkHashes.add(storeChunk(buffer, length, codec));
+                chunkLengths.add(length);
+                size += length;
+                System.arraycopy(buffer, length, buffer, 0, filled - length);
+                filled -= length;
+            }
+        } catch (IOException | RuntimeException e) {
+            release(chunkHashes);
+            throw e;
+        }
+        String hash = HEX.formatHex(digest.digest());
+        commitRecipe(hash, ext, size, chunkHashes, chunkLengths);
+        return new StoredBlob(hash, size);
+    }
+
+    // 청크 참조를 먼저 잡고(동시 삭제로 지워지지 않도록) 없는 청크만 기록, 청크 해시 반환
+    private String storeChunk(byte[] buffer, int length, BlobCodec codec) throws IOException {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        digest.update(buffer, 0, length);
+        String chunkHash = HEX.formatHex(digest.digest());
+        refLock.lock();
+        try {
+            ChunkRef ref = chunkRefs.computeIfAbsent(chunkHash, h -> new ChunkRef(length));
+            if (ref.count++ == 0) {
+                uniqueBytes += length;
+            }
+        } finally {
+            refLock.unlock();
+        }
+        try {
+            if (!chunks.exists(chunkHash, CHUNK_EXTENSION)) {
+                chunks.put(new ByteArrayInputStream(buffer, 0, length), CHUNK_EXTENSION, codec);
+            }
+        } catch (IOException | RuntimeException e) {
+            release(List.of(chunkHash));
+            throw e;
+        }
+        return chunkHash;
+    }
+
+    // 레시피 파일을 임시 파일에 쓰고 원자적 rename (같은 첨부파일이 이미 있으면 잡아 둔 청크 참조만 반환)
+    private void commitRecipe(String hash, String ext, long size, List<String> chunkHashes,
+            List<Integer> chunkLengths) throws IOException {
+        String key = BlobKeys.key(hash, ext);
+        refLock.lock();
+        try {
+            if (recipes.containsKey(key) || files.exists(hash, ext)) {
+                release(chunkHashes);
+                log.info("이미 존재하는 파일: {}{}", hash, ext);
+                return;
+            }
+            long lastModified = System.currentTimeMillis();
+            Path temp = Files.createTempFile(recipeTempDir, "recipe-", ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(Channels.newOutputStream(channel)));
+                    out.writeInt(MAGIC);
+                    out.writeLong(size);
+                    out.writeLong(lastModified);
+                    out.writeInt(chunkHashes.size());
+                    for (int i = 0; i < chunkHashes.size(); i++) {
+                        out.write(HEX.parseHex(chunkHashes.get(i)));
+                        out.writeInt(chunkLengths.get(i));
+                    }
+                    out.flush();
+                    if (durability != BlobDurability.NONE) {
+                        channel.force(true);
+                    }
+                }
+                Path target = recipePath(hash, ext);
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException | RuntimeException e) {
+                release(chunkHashes);
+                throw e;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            recipes.put(key, recipe(size, lastModified, chunkHashes, chunkLengths));
+            logicalBytes += size;
+        } finally {
+            refLock.unlock();
+        }
+        log.info("첨부파일 청크 저장됨: {}{} ({} bytes, 청크 {}개)", hash, ext, size, chunkHashes.size());
+    }
+
+    // 청크 참조 반환, 참조가 없어진 청크 파일 삭제
+    private void release(List<String> chunkHashes) throws IOException {
+        refLock.lock();
+        try {
+            for (String chunkHash : chunkHashes) {
+                ChunkRef ref = chunkRefs.get(chunkHash);
+                if (ref == null || --ref.count > 0) {
+                    continue;
+                }
+                chunkRefs.remove(chunkHash);
+                uniqueBytes -= ref.length;
+                chunks.delete(chunkHash, CHUNK_EXTENSION);
+            }
+        } finally {
+            refLock.unlock();
+        }
+    }
+
+    /**
+     * 레시피 첨부파일은 청크를 이어 읽는 채널 (원본 바이트), 나머지는 FileChannel
+     */
+    @Override
+    public SeekableByteChannel open(String hash, String extension) throws IOException {
+        Recipe recipe = recipes.get(BlobKeys.key(hash, extension));
+        return recipe != null ? new ChunkChannel(recipe) : files.open(hash, extension);
+    }
+
+    // 레시피 첨부파일은 청크 스트림을 차례로 열어 이어 붙임 (청크별 압축 해제)
+    @Override
+    public InputStream openStream(String hash, String extension) throws IOException {
+        Recipe recipe = recipes.get(BlobKeys.key(hash, extension));
+        if (recipe == null) {
+            return files.openStream(hash, extension);
+        }
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            private int next;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < recipe.chunkHashes.length;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (!hasMoreElements()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return chunks.openStream(recipe.chunkHashes[next++], CHUNK_EXTENSION);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    // 레시피 첨부파일은 청크를 해제해 이어 읽으므로 항상 원본
+    @Override
+    public BlobCodec codec(String hash, String extension) throws IOException {
+        return recipes.containsKey(BlobKeys.key(hash, extension)) ? BlobCodec.IDENTITY : files.codec(hash, extension);
+    }
+
+    @Override
+    public boolean exists(String hash, String extension) {
+        return recipes.containsKey(BlobKeys.key(hash, extension)) || files.exists(hash, extension);
+    }
+
+    @Override
+    public long size(String hash, String extension) throws IOException {
+        Recipe recipe = recipes.get(BlobKeys.key(hash, extension));
+        return recipe != null ? recipe.size : files.size(hash, extension);
+    }
+
+    @Override
+    public long lastModified(String hash, String extension) throws IOException {
+        Recipe recipe = recipes.get(BlobKeys.key(hash, extension));
+        return recipe != null ? recipe.lastModified : files.lastModified(hash, extension);
+    }
+
+    /**
+     * 레시피 삭제 후 참조가 없어진 청크 삭제, 청크로 나누지 않은 첨부파일은 파일 삭제
+     */
+    @Override
+    public boolean delete(String hash, String extension) throws IOException {
+        String ext = extension == null ? "" : extension;
+        String key = BlobKeys.key(hash, ext);
+        boolean deleted = false;
+        refLock.lock();
+        try {
+            Recipe recipe = recipes.get(key);
+            if (recipe != null) {
+                // 레시피를 먼저 지워야 청크 삭제 중 종료되어도 깨진 첨부파일이 남지 않음 (남은 청크는 기동 시 정리)
+                Files.deleteIfExists(recipePath(hash, ext));
+                recipes.remove(key);
+                logicalBytes -= recipe.size;
+                release(Arrays.asList(recipe.chunkHashes));
+                deleted = true;
+            }
+        } finally {
+            refLock.unlock();
+        }
+        return files.delete(hash, ext) || deleted;
+    }
+
+    /**
+     * 중복 제거 현황 (청크로 나눈 첨부파일 기준)
+     */
+    public ChunkStoreStats snapshot() {
+        refLock.lock();
+        try {
+            double ratio = uniqueBytes > 0 ? (double) logicalBytes / uniqueBytes : 1.0;
+            return new ChunkStoreStats(true, recipes.size(), chunkRefs.size(), logicalBytes, uniqueBytes, ratio);
+        } finally {
+            refLock.unlock();
+        }
+    }
+
+    // {upload.path}/recipes 아래 레시피를 읽어 색인과 청크 참조 수 재구성 (읽을 수 없는 레시피는 건너뜀)
+    private void loadRecipes() throws IOException {
+        List<Path> recipeFiles;
+        try (Stream<Path> walk = Files.walk(recipeDir)) {
+            recipeFiles = walk.filter(path -> !path.startsWith(recipeTempDir) && Files.isRegularFile(path)).toList();
+        }
+        for (Path file : recipeFiles) {
+            Matcher matcher = RECIPE_NAME.matcher(file.getFileName().toString());
+            if (!matcher.matches()) {
+                continue;
+            }
+            Recipe recipe;
+            try {
+                recipe = readRecipe(file);
+            } catch (IOException e) {
+                log.error("청크 레시피를 읽을 수 없음 (건너뜀): {} - {}", file, e.getMessage());
+                continue;
+            }
+            recipes.put(BlobKeys.key(matcher.group(1), matcher.group(2)), recipe);
+            logicalBytes += recipe.size;
+            for (int i = 0; i < recipe.chunkHashes.length; i++) {
+                int length = recipe.chunkLength(i);
+                ChunkRef ref = chunkRefs.computeIfAbsent(recipe.chunkHashes[i], h -> new ChunkRef(length));
+                if (ref.count++ == 0) {
+                    uniqueBytes += length;
+                }
+            }
+        }
+    }
+
+    private static Recipe readRecipe(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("레시피 형식이 아님");
+            }
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            int count = in.readInt();
+            List<String> chunkHashes = new ArrayList<>(count);
+            List<Integer> chunkLengths = new ArrayList<>(count);
+            byte[] hash = new byte[32];
+            for (int i = 0; i < count; i++) {
+                in.readFully(hash);
+                chunkHashes.add(HEX.formatHex(hash));
+                chunkLengths.add(in.readInt());
+            }
+            Recipe recipe = recipe(size, lastModified, chunkHashes, chunkLengths);
+            if (recipe.offsets[count] != size) {
+                throw new IOException("청크 길이 합이 원본 크기와 다름");
+            }
+            return recipe;
+        }
+    }
+
+    private static Recipe recipe(long size, long lastModified, List<String> chunkHashes,
+            List<Integer> chunkLengths) {
+        long[] offsets = new long[chunkHashes.size() + 1];
+        for (int i = 0; i < chunkLengths.size(); i++) {
+            offsets[i + 1] = offsets[i] + chunkLengths.get(i);
+        }
+        return new Recipe(size, lastModified, chunkHashes.toArray(String[]::new), offsets);
+    }
+
+    // 레시피가 참조하지 않는 청크 파일 삭제 (레시피 확정 전 종료 / 삭제 중 종료로 남은 청크)
+    private int deleteOrphanChunks(Path chunkRoot) throws IOException {
+        List<Path> chunkFiles;
+        try (Stream<Path> walk = Files.walk(chunkRoot)) {
+            chunkFiles = walk.filter(path -> !path.startsWith(chunkRoot.resolve(TEMP_DIR))
+                    && Files.isRegularFile(path)).toList();
+        }
+        int deleted = 0;
+        for (Path file : chunkFiles) {
+            Matcher matcher = CHUNK_NAME.matcher(file.getFileName().toString());
+            if (matcher.matches() && !chunkRefs.containsKey(matcher.group(1))) {
+                deleted += Files.deleteIfExists(file) ? 1 : 0;
+            }
+        }
+        return deleted;
+    }
+
+    // {upload.path}/recipes/{hash[0..2]}/{hash[2..4]}/{hash}{ext}
+    private Path recipePath(String hash, String extension) {
+        BlobKeys.requireHash(hash);
+        return recipeDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + extension);
+    }
+
+    /**
+     * 레시피 순서대로 청크를 이어 읽는 읽기 전용 채널
+     * - 순차 읽기는 열린 청크 스트림을 이어 쓰고, position을 옮기면 해당 청크를 다시 열어 청크 안 위치까지 건너뜀
+     */
+    private class ChunkChannel implements SeekableByteChannel {
+
+        private final Recipe recipe;
+        private long position;
+        private boolean open = true;
+        // 열린 청크 스트림과 그 스트림이 다음에 읽을 위치 / 청크 끝 위치
+        private InputStream current;
+        private long currentPosition = -1;
+        private long currentEnd;
+
+        ChunkChannel(Recipe recipe) {
+            this.recipe = recipe;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            ensureOpen();
+            if (position >= recipe.size) {
+                return -1;
+            }
+            if (current == null || currentPosition != position) {
+                seekChunk();
+            }
+            int length = (int) Math.min(dst.remaining(), currentEnd - position);
+            byte[] bytes = current.readNBytes(length);
+            if (bytes.length < length) {
+                throw new IOException("청크가 레시피보다 짧음: " + recipe.chunkHashes[recipe.chunkAt(position)]);
+            }
+            dst.put(bytes);
+            position += length;
+            currentPosition = position;
+            if (position == currentEnd) {
+                closeCurrent();
+            }
+            return length;
+        }
+
+        // position을 포함하는 청크를 열고 청크 안 위치까지 건너뜀
+        private void seekChunk() throws IOException {
+            closeCurrent();
+            int index = recipe.chunkAt(position);
+            current = chunks.openStream(recipe.chunkHashes[index], CHUNK_EXTENSION);
+            current.skipNBytes(position - recipe.offsets[index]);
+            currentPosition = position;
+            currentEnd = recipe.offsets[index + 1];
+        }
+
+        private void closeCurrent() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+
+        private void ensureOpen() throws ClosedChannelException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            ensureOpen();
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            ensureOpen();
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("position < 0");
+            }
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            ensureOpen();
+            return recipe.size;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            closeCurrent();
+        }
+    }
+}
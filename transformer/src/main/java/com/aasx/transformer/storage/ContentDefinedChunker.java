@@ -0,0 +1,76 @@
+package com.aasx.transformer.storage;
+
+/**
+ * 내용 기반 청킹 (FastCDC 방식 Gear 해시)
+ * - 바이트마다 hash = (hash << 1) + GEAR[b] 를 갱신하고 상위 비트가 모두 0인 위치에서 자름
+ *   → 경계가 앞쪽 내용이 아닌 주변 64바이트에만 의존하므로, 중간에 내용이 삽입/삭제되어도 뒤쪽 청크 경계는 그대로
+ * - 정규화 청킹: 평균 크기 전에는 더 엄격한 마스크, 이후에는 느슨한 마스크를 써서 청크 크기 분포를 평균 근처로 모음
+ * - GEAR 표는 고정 시드로 생성 (재기동/버전이 바뀌어도 같은 내용은 같은 경계)
+ */
+final class ContentDefinedChunker {
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // SplitMix64
+        long seed = 0x4141535854524E53L;
+        for (int i = 0; i < GEAR.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    // 평균 크기 전(작은 청크 억제) / 후(큰 청크 억제) 마스크
+    private final long strictMask;
+    private final long looseMask;
+
+    ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+        if (Integer.bitCount(avgSize) != 1 || minSize <= 0 || minSize >= avgSize || avgSize >= maxSize) {
+            throw new IllegalArgumentException(
+                    "청크 크기는 0 < 최소 < 평균(2의 거듭제곱) < 최대 여야 함: " + minSize + "/" + avgSize + "/" + maxSize);
+        }
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+        int bits = Integer.numberOfTrailingZeros(avgSize);
+        this.strictMask = -1L << (64 - (bits + 1));
+        this.looseMask = -1L << (64 - (bits - 1));
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * buffer[0..length)의 첫 청크 길이
+     * - length가 최소 크기 이하면 전체 (마지막 청크), 경계가 없으면 min(length, 최대 크기)
+     */
+    int cut(byte[] buffer, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        int end = Math.min(length, maxSize);
+        int normal = Math.min(end, avgSize);
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xFF];
+            if ((hash & strictMask) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < end; i++) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xFF];
+            if ((hash & looseMask) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+}
@@ -0,0 +1,292 @@
+package com.aasx.transformer.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 파일 시스템 첨부파일 저장소 (storage.backend=filesystem, 기본값)
+ * - 경로: {upload.path}/{hash[0..2]}/{hash[2..4]}/{hash}{ext} (디렉토리당 엔트리 수를 작게 유지)
+ * - 압축 저장(storage.compression.policies)이면 파일 이름 뒤에 인코딩 접미사(.gz / .zz)를 붙임
+ * - 쓰기: {upload.path}/.tmp 임시 파일에 해시를 계산하며 기록 → storage.fsync 정책에 따라 fsync → 원자적 rename
+ *   (중간에 프로세스가 죽어도 최종 경로에는 완전한 파일만 존재, 남은 임시 파일은 기동 시 삭제)
+ * - 기동 시 기존 평면 구조({upload.path}/{hash}{ext})를 샤드 구조로 이전 (storage.migrate-flat-layout)
+ *   storage.verify-on-migrate=true이면 이전하면서 해시를 검증하고, 불일치(잘린 파일 등)는 .corrupt로 격리
+ * - 이전 전의 평면 경로 파일도 조회 가능 (이전을 끈 경우 대비)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final String TEMP_DIR = ".tmp";
+    private static final String CORRUPT_DIR = ".corrupt";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 평면 구조 파일 이름: {hash}{ext}
+    private static final Pattern FLAT_NAME = Pattern.compile("([0-9a-f]{64})(\\.[^/\\\\]*)?");
+
+    @Value("${upload.path}")
+    private String uploadPath;
+
+    @Value("${storage.fsync:FILE}")
+    private BlobDurability durability;
+
+    @Value("${storage.migrate-flat-layout:true}")
+    private boolean migrateFlatLayout;
+
+    @Value("${storage.verify-on-migrate:false}")
+    private boolean verifyOnMigrate;
+
+    private Path root;
+    private Path tempDir;
+
+    public FileSystemBlobStore() {
+    }
+
+    // 다른 저장소가 큰 첨부파일 보관용으로 직접 생성할 때 (팩 저장소)
+    FileSystemBlobStore(String uploadPath, BlobDurability durability, boolean migrateFlatLayout,
+            boolean verifyOnMigrate) {
+        this.uploadPath = uploadPath;
+        this.durability = durability;
+        this.migrateFlatLayout = migrateFlatLayout;
+        this.verifyOnMigrate = verifyOnMigrate;
+    }
+
+    @PostConstruct
+    public void init() {
+        root = Paths.get(uploadPath);
+        tempDir = root.resolve(TEMP_DIR);
+        try {
+            Files.createDirectories(tempDir);
+            deleteStaleTempFiles();
+            if (migrateFlatLayout) {
+                migrateFlatLayout();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("첨부파일 저장소 초기화 실패: " + root, e);
+        }
+        log.info("첨부파일 저장소: {} (fsync={})", root.toAbsolutePath(), durability);
+    }
+
+    /**
+     * 임시 파일에 원본 SHA-256을 계산하며 codec으로 인코딩해 기록하고 {hash}{ext}(+ 인코딩 접미사)로 확정
+     * - 같은 해시 + 확장자 파일이 (어떤 인코딩으로든) 이미 있으면 새로 쓴 임시 파일만 삭제
+     */
+    @Override
+    public StoredBlob put(InputStream in, String extension, BlobCodec codec) throws IOException {
+        Path temp = Files.createTempFile(tempDir, "blob-", ".tmp");
+        try {
+            MessageDigest digest = DigestUtils.getSha256Digest();
+            long size = 0;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                // 인코더를 닫아 압축을 끝낸 뒤 채널에 fsync
+                OutputStream sink = CloseShieldOutputStream.wrap(Channels.newOutputStream(channel));
+                try (OutputStream out = codec.encode(new BufferedOutputStream(sink, BUFFER_SIZE))) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                        out.write(buffer, 0, read);
+                        size += read;
+                    }
+                }
+                if (durability != BlobDurability.NONE) {
+                    channel.force(true);
+                }
+            }
+            String hash = Hex.encodeHexString(digest.digest());
+            commit(temp, hash, extension, codec);
+            return new StoredBlob(hash, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 저장된 파일 경로, 없으면 null (샤드 경로 → 압축 저장된 샤드 경로 → 이전 전 평면 경로 순)
+     */
+    public Path find(String hash, String extension) {
+        for (BlobCodec codec : BlobCodec.values()) {
+            Path sharded = pathOf(hash, extension + codec.getSuffix());
+            if (Files.isRegularFile(sharded)) {
+                return sharded;
+            }
+        }
+        Path flat = root.resolve(hash + extension);
+        return Files.isRegularFile(flat) ? flat : null;
+    }
+
+    // 파일 이름의 인코딩 접미사로 저장 인코딩 판별
+    @Override
+    public BlobCodec codec(String hash, String extension) throws IOException {
+        String fileName = require(hash, extension).getFileName().toString();
+        for (BlobCodec codec : BlobCodec.values()) {
+            if (codec != BlobCodec.IDENTITY && fileName.equals(hash + extension + codec.getSuffix())) {
+                return codec;
+            }
+        }
+        return BlobCodec.IDENTITY;
+    }
+
+    @Override
+    public boolean exists(String hash, String extension) {
+        return find(hash, extension) != null;
+    }
+
+    // FileChannel 그대로 반환 → 다운로드 시 transferTo(zero-copy) 사용 가능
+    @Override
+    public SeekableByteChannel open(String hash, String extension) throws IOException {
+        return FileChannel.open(require(hash, extension), StandardOpenOption.READ);
+    }
+
+    @Override
+    public long size(String hash, String extension) throws IOException {
+        return Files.size(require(hash, extension));
+    }
+
+    @Override
+    public long lastModified(String hash, String extension) throws IOException {
+        return Files.getLastModifiedTime(require(hash, extension)).toMillis();
+    }
+
+    /**
+     * 저장된 파일 삭제 (샤드/평면 경로 모두), 삭제했으면 true
+     */
+    @Override
+    public boolean delete(String hash, String extension) throws IOException {
+        boolean deleted = false;
+        for (BlobCodec codec : BlobCodec.values()) {
+            deleted |= Files.deleteIfExists(pathOf(hash, extension + codec.getSuffix()));
+        }
+        return Files.deleteIfExists(root.resolve(hash + extension)) || deleted;
+    }
+
+    private Path require(String hash, String extension) throws NoSuchFileException {
+        Path file = find(hash, extension);
+        if (file == null) {
+            throw new NoSuchFileException(hash + extension);
+        }
+        return file;
+    }
+
+    // {root}/{hash[0..2]}/{hash[2..4]}/{hash}{ext}
+    private Path pathOf(String hash, String extension) {
+        BlobKeys.requireHash(hash);
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + extension);
+    }
+
+    // 임시 파일을 최종 경로로 원자적 rename (같은 내용이 이미 있으면 그대로 둠)
+    private void commit(Path temp, String hash, String extension, BlobCodec codec) throws IOException {
+        Path existing = find(hash, extension);
+        if (existing != null) {
+            log.info("이미 존재하는 파일: {}", existing);
+            return;
+        }
+        Path target = pathOf(hash, extension + codec.getSuffix());
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (durability == BlobDurability.FILE_AND_DIRECTORY) {
+            forceDirectory(target.getParent());
+        }
+        log.info("첨부파일 디스크 저장됨: {}", target);
+    }
+
+    // 디렉토리 fsync (Windows 등 디렉토리를 열 수 없는 플랫폼은 생략)
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("디렉토리 fsync 미지원: {}", dir);
+        }
+    }
+
+    // 비정상 종료로 남은 임시 파일 삭제 (.tmp 디렉토리 + 이전 버전이 upload.path에 남긴 upload-*.tmp)
+    private void deleteStaleTempFiles() throws IOException {
+        int deleted = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(tempDir)) {
+            for (Path file : stream) {
+                deleted += Files.deleteIfExists(file) ? 1 : 0;
+            }
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, "upload-*.tmp")) {
+            for (Path file : stream) {
+                deleted += Files.deleteIfExists(file) ? 1 : 0;
+            }
+        }
+        if (deleted > 0) {
+            log.warn("비정상 종료로 남은 임시 파일 {}개 삭제", deleted);
+        }
+    }
+
+    // 평면 구조 {root}/{hash}{ext} → 샤드 구조로 이전
+    private void migrateFlatLayout() throws IOException {
+        int moved = 0;
+        int corrupt = 0;
+        long start = System.nanoTime();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, Files::isRegularFile)) {
+            for (Path file : stream) {
+                Matcher matcher = FLAT_NAME.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                String hash = matcher.group(1);
+                String extension = matcher.group(2) == null ? "" : matcher.group(2);
+                if (verifyOnMigrate && !hash.equals(sha256(file))) {
+                    Path quarantine = Files.createDirectories(root.resolve(CORRUPT_DIR));
+                    Files.move(file, quarantine.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                    log.warn("해시 불일치 파일 격리: {}", file);
+                    corrupt++;
+                    continue;
+                }
+                Path target = pathOf(hash, extension);
+                if (Files.isRegularFile(target)) {
+                    Files.delete(file);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+                moved++;
+            }
+        }
+        if (moved > 0 || corrupt > 0) {
+            log.info("평면 구조 첨부파일 이전 완료: {}개 이전, {}개 격리 ({} ms)", moved, corrupt,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return DigestUtils.sha256Hex(in);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.aasx.transformer.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * ✅ 메모리 첨부파일 저장소 (storage.backend=memory)
+ * - 테스트와 벤치마크에서 디스크 I/O 없이 서비스 로직만 측정할 때 사용
+ * - 재시작하면 내용이 사라지므로 운영 환경에서는 사용하지 않음
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "memory")
+public class InMemoryBlobStore implements BlobStore {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        // 저장 인코딩으로 인코딩된 내용
+        final byte[] content;
+        final BlobCodec codec;
+        final long lastModified;
+
+        Entry(byte[] content, BlobCodec codec) {
+            this.content = content;
+            this.codec = codec;
+            this.lastModified = System.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public StoredBlob put(InputStream in, String extension, BlobCodec codec) throws IOException {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        byte[] content;
+        try (InputStream digesting = new DigestInputStream(in, digest)) {
+            content = digesting.readAllBytes();
+        }
+        String hash = Hex.encodeHexString(digest.digest());
+        String key = BlobKeys.key(hash, extension);
+        if (!entries.containsKey(key)) {
+            byte[] encoded = codec.encode(content);
+            // 압축해도 줄지 않으면 원본 그대로
+            entries.putIfAbsent(key, encoded.length < content.length
+                    ? new Entry(encoded, codec)
+                    : new Entry(content, BlobCodec.IDENTITY));
+        }
+        return new StoredBlob(hash, content.length);
+    }
+
+    @Override
+    public SeekableByteChannel open(String hash, String extension) throws IOException {
+        return new ByteBufferChannel(ByteBuffer.wrap(require(hash, extension).content).asReadOnlyBuffer());
+    }
+
+    @Override
+    public BlobCodec codec(String hash, String extension) throws IOException {
+        return require(hash, extension).codec;
+    }
+
+    @Override
+    public boolean exists(String hash, String extension) {
+        return entries.containsKey(BlobKeys.key(hash, extension));
+    }
+
+    @Override
+    public long size(String hash, String extension) throws IOException {
+        return require(hash, extension).content.length;
+    }
+
+    @Override
+    public long lastModified(String hash, String extension) throws IOException {
+        return require(hash, extension).lastModified;
+    }
+
+    @Override
+    public boolean delete(String hash, String extension) {
+        return entries.remove(BlobKeys.key(hash, extension)) != null;
+    }
+
+    public int count() {
+        return entries.size();
+    }
+
+    private Entry require(String hash, String extension) throws NoSuchFileException {
+        Entry entry = entries.get(BlobKeys.key(hash, extension));
+        if (entry == null) {
+            throw new NoSuchFileException(hash + extension);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,763 @@
+package com.aasx.transformer.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 팩 파일 첨부파일 저장소 (storage.backend=pack)
+ * - storage.pack.small-threshold 이하 첨부파일(썸네일, 아이콘, 짧은 PDF 등)은 {upload.path}/packs/pack-NNNNNN.pack 에
+ *   레코드로 이어 붙여 저장 (작은 파일이 많아도 파일/inode 수가 늘지 않음), 큰 첨부파일은 파일 시스템 저장소(샤드 경로)에 저장
+ *   레코드: MAGIC | 종류(1=blob, 2=삭제, 3=gzip blob, 4=deflate blob) | SHA-256(32B) | 확장자 길이 + 확장자 | 길이 | 저장 시각 | CRC-32 | 내용
+ *   (압축 저장 레코드의 길이/CRC는 압축된 내용 기준, 해시는 원본 기준. 압축해도 줄지 않으면 원본 그대로 저장)
+ * - 팩 하나가 storage.pack.max-bytes를 넘으면 다음 팩으로 넘어감 (이전 팩은 더 이상 쓰지 않는 봉인 팩)
+ * - 색인(해시 + 확장자 → 팩/오프셋)은 files 테이블 옆 pack_index 테이블에 보관
+ *   · 기동 시 테이블에서 읽고, 마지막 팩에서 마지막으로 색인된 레코드 뒤(등록 전에 종료된 꼬리)만 읽어 보충
+ *   · 테이블이 비어 있으면 팩 전체를 읽어 재구성, DB가 없으면(테스트) 매번 팩 전체를 읽음
+ *   · 마지막 팩 끝의 잘린 레코드(쓰기 중 종료)는 잘라내고 CRC가 맞지 않는 레코드는 색인에서 제외
+ * - 읽기: 봉인 팩은 팩 전체를 한 번 메모리 매핑해 두고 레코드 영역만 잘라 반환 → 다운로드 시 매핑 영역에서 응답으로 바로 전송
+ *   (쓰는 중인 팩은 작은 레코드는 힙으로 읽고 큰 레코드는 해당 영역만 매핑)
+ * - 삭제: 색인에서 제거하고 삭제 레코드 추가, 봉인 팩의 죽은 공간 비율이 storage.pack.compact-dead-ratio 이상이면
+ *   주기 작업에서 살아 있는 레코드만 쓰는 중인 팩으로 옮기고 이전 팩 파일을 삭제 (압축)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "pack")
+public class PackBlobStore implements BlobStore {
+
+    private static final String PACK_DIR = "packs";
+    private static final Pattern PACK_NAME = Pattern.compile("pack-(\\d{6})\\.pack");
+    private static final int MAGIC = 0x41415842;
+    private static final byte TYPE_BLOB = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final byte TYPE_BLOB_GZIP = 3;
+    private static final byte TYPE_BLOB_DEFLATE = 4;
+    // MAGIC + 종류 + 해시 + 확장자 길이
+    private static final int FIXED_HEADER = 4 + 1 + 32 + 2;
+    // 길이 + 저장 시각 + CRC-32
+    private static final int HEADER_TRAILER = 8 + 8 + 4;
+    // 쓰는 중인 팩에서 이 크기 이하 레코드는 매핑 대신 힙으로 읽음 (매핑 비용이 더 큼)
+    private static final int MAP_THRESHOLD = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Value("${upload.path}")
+    private String uploadPath;
+
+    @Value("${storage.fsync:FILE}")
+    private BlobDurability durability;
+
+    @Value("${storage.pack.max-bytes:1073741824}")
+    private long maxPackBytes;
+
+    @Value("${storage.pack.small-threshold:262144}")
+    private int smallThreshold;
+
+    @Value("${storage.pack.compact-dead-ratio:0.5}")
+    private double compactDeadRatio;
+
+    @Value("${storage.migrate-flat-layout:true}")
+    private boolean migrateFlatLayout;
+
+    @Value("${storage.verify-on-migrate:false}")
+    private boolean verifyOnMigrate;
+
+    // 없으면(테스트) 색인을 DB에 보관하지 않고 기동 시 팩 전체를 읽어 재구성
+    @Autowired(required = false)
+    private PackIndexMapper packIndexMapper;
+
+    private Path packDir;
+    // 큰 첨부파일 보관 (pack 백엔드로 바꾸기 전에 저장된 파일도 그대로 조회)
+    private FileSystemBlobStore large;
+
+    // 해시 + 확장자 → 레코드 위치
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    // 팩 번호 → 읽기 채널 (위치 지정 읽기만 하므로 스레드 간 공유)
+    private final Map<Integer, FileChannel> readers = new ConcurrentHashMap<>();
+    // 봉인 팩 번호 → 팩 전체 읽기 전용 매핑
+    private final Map<Integer, MappedByteBuffer> mappings = new ConcurrentHashMap<>();
+
+    // 추가 쓰기와 압축은 한 번에 하나 (JDBC 대기처럼 가상 스레드 고정을 피하기 위해 ReentrantLock)
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private FileChannel writer;
+    private volatile int writerId;
+    private long writerPosition;
+
+    private static class Location {
+        final int packId;
+        final long offset;
+        final long length;
+        final long lastModified;
+        final BlobCodec codec;
+
+        Location(int packId, long offset, long length, long lastModified, BlobCodec codec) {
+            this.packId = packId;
+            this.offset = offset;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.codec = codec;
+        }
+    }
+
+    private static class RecordHeader {
+        final byte type;
+        final String key;
+        final long dataOffset;
+        final long length;
+        final long timestamp;
+        final int crc;
+
+        RecordHeader(byte type, String key, long dataOffset, long length, long timestamp, int crc) {
+            this.type = type;
+            this.key = key;
+            this.dataOffset = dataOffset;
+            this.length = length;
+            this.timestamp = timestamp;
+            this.crc = crc;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        Path root = Paths.get(uploadPath);
+        packDir = root.resolve(PACK_DIR);
+        large = new FileSystemBlobStore(uploadPath, durability, migrateFlatLayout, verifyOnMigrate);
+        large.init();
+        try {
+            Files.createDirectories(packDir);
+            List<Integer> packIds = listPackIds();
+            for (int packId : packIds) {
+                readers.put(packId, FileChannel.open(packPath(packId), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE));
+            }
+
+            long start = System.nanoTime();
+            // 팩별 마지막 색인 레코드의 끝 위치, null이면 팩 전체 스캔
+            Map<Integer, Long> indexedEnds = loadIndex();
+            boolean persist = packIndexMapper != null;
+            for (int i = 0; i < packIds.size(); i++) {
+                int packId = packIds.get(i);
+                boolean last = i == packIds.size() - 1;
+                FileChannel channel = readers.get(packId);
+                long end;
+                if (indexedEnds == null) {
+                    end = scan(packId, channel, 0, last, persist);
+                } else if (last) {
+                    end = scan(packId, channel, indexedEnds.getOrDefault(packId, 0L), true, persist);
+                } else {
+                    end = channel.size();
+                }
+                if (last) {
+                    writer = channel;
+                    writerId = packId;
+                    writerPosition = end;
+                }
+            }
+            if (writer == null) {
+                openPack(1);
+            }
+            log.info("팩 색인 준비: 첨부파일 {}개 ({}, {} ms)", index.size(),
+                    indexedEnds == null ? "팩 전체 스캔" : "pack_index", (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("팩 저장소 초기화 실패: " + packDir, e);
+        }
+        log.info("팩 첨부파일 저장소: {} (팩 {}개, {} bytes 이하만 팩에 저장, fsync={})", packDir.toAbsolutePath(),
+                readers.size(), smallThreshold, durability);
+    }
+
+    /**
+     * pack_index 테이블에서 색인 적재, 팩별 마지막 색인 레코드의 끝 위치 반환
+     * - DB가 없거나 테이블이 비어 있으면 null → 팩 전체 스캔
+     */
+    private Map<Integer, Long> loadIndex() {
+        if (packIndexMapper == null) {
+            return null;
+        }
+        packIndexMapper.createTableIfAbsent();
+        if (packIndexMapper.countCodecColumn() == 0) {
+            packIndexMapper.addCodecColumn();
+        }
+        List<PackIndexEntry> entries = packIndexMapper.selectAll();
+        if (entries.isEmpty()) {
+            return null;
+        }
+        Map<Integer, Long> ends = new HashMap<>();
+        for (PackIndexEntry entry : entries) {
+            if (!readers.containsKey(entry.getPackId())) {
+                log.error("pack_index가 없는 팩을 가리킴: pack-{} → 해당 팩 색인 삭제", entry.getPackId());
+                packIndexMapper.deleteByPack(entry.getPackId());
+                continue;
+            }
+            index.put(BlobKeys.key(entry.getHash(), entry.getExtension()), new Location(entry.getPackId(),
+                    entry.getDataOffset(), entry.getLength(), entry.getCreatedAt(), BlobCodec.of(entry.getCodec())));
+            ends.merge(entry.getPackId(), entry.getDataOffset() + entry.getLength(), Math::max);
+        }
+        return ends;
+    }
+
+    @PreDestroy
+    public void close() {
+        appendLock.lock();
+        try {
+            for (FileChannel channel : readers.values()) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("팩 채널 닫기 실패: {}", e.getMessage());
+                }
+            }
+            readers.clear();
+            mappings.clear();
+            writer = null;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * small-threshold 이하는 힙에서 해시를 계산하고 codec으로 인코딩해 팩 끝에 추가,
+     * 넘으면 파일 시스템 저장소에 스트리밍 저장
+     */
+    @Override
+    public StoredBlob put(InputStream in, String extension, BlobCodec codec) throws IOException {
+        String ext = extension == null ? "" : extension;
+        byte[] head = in.readNBytes(smallThreshold + 1);
+        if (head.length > smallThreshold) {
+            return large.put(new SequenceInputStream(new ByteArrayInputStream(head), in), ext, codec);
+        }
+        String hash = DigestUtils.sha256Hex(head);
+        if (!exists(hash, ext)) {
+            byte[] encoded = codec.encode(head);
+            // 압축해도 줄지 않으면 원본 그대로
+            if (encoded.length >= head.length) {
+                encoded = head;
+                codec = BlobCodec.IDENTITY;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(encoded);
+            append(hash, ext, ByteBuffer.wrap(encoded), (int) crc.getValue(), codec);
+        }
+        return new StoredBlob(hash, head.length);
+    }
+
+    // 팩 끝에 레코드 추가 후 색인 등록 (등록에 실패한 레코드는 버려진 공간으로 남고 압축 때 회수)
+    private void append(String hash, String ext, ByteBuffer data, int crc, BlobCodec codec) throws IOException {
+        String key = BlobKeys.key(hash, ext);
+        appendLock.lock();
+        try {
+            if (index.containsKey(key)) {
+                return;
+            }
+            long timestamp = System.currentTimeMillis();
+            long length = data.remaining();
+            ByteBuffer header = header(blobType(codec), hash, ext, length, timestamp, crc);
+            rollIfFull(header.remaining() + length);
+            long dataOffset = writerPosition + header.remaining();
+            writeFully(writer, header, writerPosition);
+            writeFully(writer, data, dataOffset);
+            if (durability != BlobDurability.NONE) {
+                writer.force(true);
+            }
+            writerPosition = dataOffset + length;
+            Location location = new Location(writerId, dataOffset, length, timestamp, codec);
+            index.put(key, location);
+            persist(key, location);
+            log.info("첨부파일 팩 저장됨: {}{} (pack-{}, {} bytes, {})", hash, ext, writerId, length,
+                    codec.getContentEncoding());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * 팩 레코드는 매핑(또는 힙) 영역을 그대로 감싼 채널, 큰 첨부파일은 FileChannel
+     * - 읽는 사이 압축으로 레코드가 옮겨졌으면 새 위치로 한 번 더 조회
+     */
+    @Override
+    public SeekableByteChannel open(String hash, String extension) throws IOException {
+        String key = BlobKeys.key(hash, extension);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Location location = index.get(key);
+            if (location == null) {
+                return large.open(hash, extension);
+            }
+            ByteBuffer buffer = read(location);
+            if (buffer != null) {
+                return new ByteBufferChannel(buffer);
+            }
+        }
+        throw new NoSuchFileException(hash + extension);
+    }
+
+    // 레코드 내용 영역, 압축으로 팩이 없어졌으면 null
+    private ByteBuffer read(Location location) throws IOException {
+        FileChannel channel = readers.get(location.packId);
+        if (channel == null) {
+            return null;
+        }
+        try {
+            if (location.packId != writerId) {
+                MappedByteBuffer mapping = mapping(location.packId, channel);
+                if (mapping != null) {
+                    return mapping.slice((int) location.offset, (int) location.length);
+                }
+            }
+            if (location.length <= MAP_THRESHOLD) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) location.length);
+                readFully(channel, buffer, location.offset);
+                return buffer.flip();
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, location.offset, location.length);
+        } catch (ClosedChannelException e) {
+            return null;
+        }
+    }
+
+    // 봉인 팩 전체 매핑 (팩마다 한 번), 2GB를 넘는 팩은 레코드 단위로 읽도록 null
+    private MappedByteBuffer mapping(int packId, FileChannel channel) throws IOException {
+        MappedByteBuffer mapping = mappings.get(packId);
+        if (mapping != null) {
+            return mapping;
+        }
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            return null;
+        }
+        mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        MappedByteBuffer existing = mappings.putIfAbsent(packId, mapping);
+        return existing != null ? existing : mapping;
+    }
+
+    @Override
+    public BlobCodec codec(String hash, String extension) throws IOException {
+        Location location = index.get(BlobKeys.key(hash, extension));
+        return location != null ? location.codec : large.codec(hash, extension);
+    }
+
+    @Override
+    public boolean exists(String hash, String extension) {
+        return index.containsKey(BlobKeys.key(hash, extension)) || large.exists(hash, extension);
+    }
+
+    @Override
+    public long size(String hash, String extension) throws IOException {
+        Location location = index.get(BlobKeys.key(hash, extension));
+        return location != null ? location.length : large.size(hash, extension);
+    }
+
+    @Override
+    public long lastModified(String hash, String extension) throws IOException {
+        Location location = index.get(BlobKeys.key(hash, extension));
+        return location != null ? location.lastModified : large.lastModified(hash, extension);
+    }
+
+    /**
+     * 팩 레코드는 색인(pack_index 포함)에서 제거하고 삭제 레코드 추가 (공간은 압축 때 회수), 큰 첨부파일은 파일 삭제
+     */
+    @Override
+    public boolean delete(String hash, String extension) throws IOException {
+        String ext = extension == null ? "" : extension;
+        String key = BlobKeys.key(hash, ext);
+        boolean deleted = false;
+        appendLock.lock();
+        try {
+            if (index.containsKey(key)) {
+                // DB에서 먼저 지워야 삭제 레코드를 쓰기 전에 종료되어도 되살아나지 않음
+                if (packIndexMapper != null) {
+                    packIndexMapper.delete(hash, ext);
+                }
+                index.remove(key);
+                appendTombstone(hash, ext);
+                if (durability != BlobDurability.NONE) {
+                    writer.force(true);
+                }
+                deleted = true;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        return large.delete(hash, ext) || deleted;
+    }
+
+    /**
+     * 주기 압축: 첨부파일 메타 삭제로 ref_count가 0이 되어 지워진 레코드의 공간 회수
+     */
+    @Scheduled(fixedDelayString = "${storage.pack.compact-interval-ms:60000}")
+    public void compactSweep() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            log.error("팩 압축 실패: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 죽은 공간 비율이 storage.pack.compact-dead-ratio 이상인 봉인 팩을 모두 압축, 압축한 팩 수 반환
+     */
+    public int compact() throws IOException {
+        Map<Integer, Long> live = new HashMap<>();
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            live.merge(entry.getValue().packId, recordLength(entry.getKey(), entry.getValue().length), Long::sum);
+        }
+        int compacted = 0;
+        for (int packId : listPackIds()) {
+            FileChannel channel = readers.get(packId);
+            if (packId == writerId || channel == null) {
+                continue;
+            }
+            long size = channel.size();
+            long dead = size - live.getOrDefault(packId, 0L);
+            if (size == 0 || (double) dead / size >= compactDeadRatio) {
+                compact(packId, dead, size);
+                compacted++;
+            }
+        }
+        return compacted;
+    }
+
+    // 살아 있는 레코드만 쓰는 중인 팩 끝으로 옮긴 뒤 팩 파일 삭제
+    private void compact(int packId, long dead, long size) throws IOException {
+        long start = System.nanoTime();
+        int moved = 0;
+        appendLock.lock();
+        try {
+            FileChannel channel = readers.get(packId);
+            if (channel == null) {
+                return;
+            }
+            long position = 0;
+            while (position < size) {
+                RecordHeader header = readHeader(channel, position, size);
+                if (header == null) {
+                    log.error("팩 레코드 손상: pack-{} @{} → 이후 레코드 버림", packId, position);
+                    break;
+                }
+                String hash = header.key.substring(0, 64);
+                String ext = header.key.substring(64);
+                Location location = index.get(header.key);
+                if (isBlob(header.type) && location != null && location.packId == packId
+                        && location.offset == header.dataOffset) {
+                    if (crc(channel, header.dataOffset, header.length) == header.crc) {
+                        moveRecord(channel, header, hash, ext);
+                        moved++;
+                    } else {
+                        log.error("팩 레코드 CRC 불일치로 버림: pack-{} @{} ({})", packId, position, header.key);
+                        index.remove(header.key);
+                        if (packIndexMapper != null) {
+                            packIndexMapper.delete(hash, ext);
+                        }
+                    }
+                } else if (header.type == TYPE_DELETE && packIndexMapper == null && !index.containsKey(header.key)) {
+                    // DB 색인이 없으면 앞선 팩의 레코드를 가리는 삭제 레코드를 옮겨야 재기동 후에도 삭제 상태 유지
+                    appendTombstone(hash, ext);
+                }
+                position = header.dataOffset + header.length;
+            }
+            if (durability != BlobDurability.NONE) {
+                writer.force(true);
+            }
+            readers.remove(packId);
+            channel.close();
+            mappings.remove(packId);
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            Files.delete(packPath(packId));
+        } catch (IOException e) {
+            // 매핑이 남아 있으면 지울 수 없는 플랫폼(Windows): 재기동 후 살아 있는 레코드 없는 팩으로 다시 압축됨
+            log.warn("압축한 팩 파일 삭제 실패: {} ({})", packPath(packId), e.getMessage());
+        }
+        log.info("팩 압축: pack-{} (레코드 {}개 이동, {} / {} bytes 회수, {} ms)", packId, moved, dead, size,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // 레코드를 저장 시각/CRC 그대로 쓰는 중인 팩 끝에 복사하고 색인 갱신
+    private void moveRecord(FileChannel source, RecordHeader record, String hash, String ext) throws IOException {
+        ByteBuffer header = header(record.type, hash, ext, record.length, record.timestamp, record.crc);
+        rollIfFull(header.remaining() + record.length);
+        long dataOffset = writerPosition + header.remaining();
+        writeFully(writer, header, writerPosition);
+        source.position(record.dataOffset);
+        long copied = 0;
+        while (copied < record.length) {
+            long n = writer.transferFrom(source, dataOffset + copied, record.length - copied);
+            if (n <= 0) {
+                throw new IOException("팩 레코드 복사 중단: " + record.key);
+            }
+            copied += n;
+        }
+        writerPosition = dataOffset + record.length;
+        Location location = new Location(writerId, dataOffset, record.length, record.timestamp,
+                codecOf(record.type));
+        index.put(record.key, location);
+        persist(record.key, location);
+    }
+
+    private void appendTombstone(String hash, String ext) throws IOException {
+        ByteBuffer header = header(TYPE_DELETE, hash, ext, 0, System.currentTimeMillis(), 0);
+        rollIfFull(header.remaining());
+        int length = header.remaining();
+        writeFully(writer, header, writerPosition);
+        writerPosition += length;
+    }
+
+    // 팩에 저장된 첨부파일 수 (파일 시스템에 저장된 큰 첨부파일 제외)
+    public int count() {
+        return index.size();
+    }
+
+    // pack_index 등록, 실패하면 메모리 색인에서도 제거하고 저장 실패로 처리
+    private void persist(String key, Location location) throws IOException {
+        if (packIndexMapper == null) {
+            return;
+        }
+        try {
+            packIndexMapper.upsert(new PackIndexEntry(key.substring(0, 64), key.substring(64), location.packId,
+                    location.offset, location.length, location.lastModified, location.codec.getContentEncoding()));
+        } catch (RuntimeException e) {
+            index.remove(key);
+            throw new IOException("팩 색인 등록 실패: " + key, e);
+        }
+    }
+
+    // 레코드가 들어가지 않으면 새 팩으로 전환 (빈 팩에는 크기와 무관하게 기록)
+    private void rollIfFull(long recordLength) throws IOException {
+        if (writerPosition > 0 && writerPosition + recordLength > maxPackBytes) {
+            if (durability != BlobDurability.NONE) {
+                writer.force(true);
+            }
+            openPack(writerId + 1);
+        }
+    }
+
+    private void openPack(int packId) throws IOException {
+        FileChannel channel = FileChannel.open(packPath(packId), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (durability == BlobDurability.FILE_AND_DIRECTORY) {
+            forceDirectory(packDir);
+        }
+        readers.put(packId, channel);
+        writer = channel;
+        writerId = packId;
+        writerPosition = 0;
+        log.info("새 팩 파일: {}", packPath(packId));
+    }
+
+    /**
+     * from 위치부터 팩을 읽어 색인에 반영, 유효한 마지막 레코드의 끝 위치 반환
+     *
+     * @param last    마지막 팩이면 끝의 잘린 레코드를 잘라냄
+     * @param persist 찾은 레코드를 pack_index에도 반영
+     */
+    private long scan(int packId, FileChannel channel, long from, boolean last, boolean persist)
+            throws IOException {
+        long size = channel.size();
+        long position = from;
+        int skipped = 0;
+        while (position < size) {
+            RecordHeader header = readHeader(channel, position, size);
+            if (header == null) {
+                if (last) {
+                    log.warn("팩 끝의 잘린 레코드 제거: pack-{} @{} ({} bytes)", packId, position, size - position);
+                    channel.truncate(position);
+                } else {
+                    log.error("팩 레코드 손상: pack-{} @{} → 이후 레코드 무시", packId, position);
+                }
+                break;
+            }
+            if (isBlob(header.type) && crc(channel, header.dataOffset, header.length) == header.crc) {
+                Location location = new Location(packId, header.dataOffset, header.length, header.timestamp,
+                        codecOf(header.type));
+                index.put(header.key, location);
+                if (persist) {
+                    persist(header.key, location);
+                }
+            } else {
+                if (isBlob(header.type)) {
+                    log.error("팩 레코드 CRC 불일치: pack-{} @{} ({})", packId, position, header.key);
+                    skipped++;
+                }
+                if (index.remove(header.key) != null && persist) {
+                    packIndexMapper.delete(header.key.substring(0, 64), header.key.substring(64));
+                }
+            }
+            position = header.dataOffset + header.length;
+        }
+        if (skipped > 0) {
+            log.warn("pack-{}: CRC 불일치 레코드 {}개 제외", packId, skipped);
+        }
+        return position;
+    }
+
+    // 레코드 헤더 읽기, 형식이 맞지 않거나 팩 끝을 넘으면 null
+    private static RecordHeader readHeader(FileChannel channel, long position, long size) throws IOException {
+        if (position + FIXED_HEADER > size) {
+            return null;
+        }
+        ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER);
+        readFully(channel, fixed, position);
+        fixed.flip();
+        if (fixed.getInt() != MAGIC) {
+            return null;
+        }
+        byte type = fixed.get();
+        if (!isBlob(type) && type != TYPE_DELETE) {
+            return null;
+        }
+        byte[] hash = new byte[32];
+        fixed.get(hash);
+        int extLength = Short.toUnsignedInt(fixed.getShort());
+        long trailerEnd = position + FIXED_HEADER + extLength + HEADER_TRAILER;
+        if (trailerEnd > size) {
+            return null;
+        }
+        ByteBuffer rest = ByteBuffer.allocate(extLength + HEADER_TRAILER);
+        readFully(channel, rest, position + FIXED_HEADER);
+        rest.flip();
+        byte[] ext = new byte[extLength];
+        rest.get(ext);
+        long length = rest.getLong();
+        long timestamp = rest.getLong();
+        int crc = rest.getInt();
+        if (length < 0 || trailerEnd + length > size) {
+            return null;
+        }
+        String key = HEX.formatHex(hash) + new String(ext, StandardCharsets.UTF_8);
+        return new RecordHeader(type, key, trailerEnd, length, timestamp, crc);
+    }
+
+    private static ByteBuffer header(byte type, String hash, String extension, long length, long timestamp, int crc) {
+        byte[] ext = extension.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER + ext.length + HEADER_TRAILER);
+        header.putInt(MAGIC)
+                .put(type)
+                .put(HEX.parseHex(hash))
+                .putShort((short) ext.length)
+                .put(ext)
+                .putLong(length)
+                .putLong(timestamp)
+                .putInt(crc);
+        header.flip();
+        return header;
+    }
+
+    private static boolean isBlob(byte type) {
+        return type == TYPE_BLOB || type == TYPE_BLOB_GZIP || type == TYPE_BLOB_DEFLATE;
+    }
+
+    private static byte blobType(BlobCodec codec) {
+        return switch (codec) {
+            case IDENTITY -> TYPE_BLOB;
+            case GZIP -> TYPE_BLOB_GZIP;
+            case DEFLATE -> TYPE_BLOB_DEFLATE;
+        };
+    }
+
+    private static BlobCodec codecOf(byte type) {
+        return switch (type) {
+            case TYPE_BLOB_GZIP -> BlobCodec.GZIP;
+            case TYPE_BLOB_DEFLATE -> BlobCodec.DEFLATE;
+            default -> BlobCodec.IDENTITY;
+        };
+    }
+
+    // 헤더를 포함한 레코드 전체 길이 (죽은 공간 계산용)
+    private static long recordLength(String key, long length) {
+        return FIXED_HEADER + key.substring(64).getBytes(StandardCharsets.UTF_8).length + HEADER_TRAILER + length;
+    }
+
+    private static int crc(FileChannel channel, long offset, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long done = 0;
+        while (done < length) {
+            buffer.clear().limit((int) Math.min(BUFFER_SIZE, length - done));
+            readFully(channel, buffer, offset + done);
+            buffer.flip();
+            done += buffer.remaining();
+            crc.update(buffer);
+        }
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, pos);
+            if (n < 0) {
+                throw new IOException("팩 읽기 중 파일 끝: " + pos);
+            }
+            pos += n;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+    }
+
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("디렉토리 fsync 미지원: {}", dir);
+        }
+    }
+
+    private List<Integer> listPackIds() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(packDir, "pack-*.pack")) {
+            for (Path file : stream) {
+                Matcher matcher = PACK_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private Path packPath(int packId) {
+        return packDir.resolve(String.format("pack-%06d.pack", packId));
+    }
+}
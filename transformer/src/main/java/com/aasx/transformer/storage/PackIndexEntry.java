@@ -0,0 +1,23 @@
+package com.aasx.transformer.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * pack_index 테이블 행: 팩에 저장된 첨부파일(해시 + 확장자)의 위치
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PackIndexEntry {
+    private String hash;
+    private String extension;
+    private Integer packId;
+    // 레코드 헤더 다음, 내용이 시작하는 위치
+    private Long dataOffset;
+    private Long length;
+    private Long createdAt;
+    // 저장 인코딩 (identity / gzip / deflate)
+    private String codec;
+}
@@ -0,0 +1,31 @@
+package com.aasx.transformer.storage;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface PackIndexMapper {
+    // ✅ pack_index (files 테이블 옆에 두는 팩 저장소 색인)
+    // 테이블이 없으면 생성 (pack 백엔드로 전환한 기존 DB 대비)
+    void createTableIfAbsent();
+
+    // codec 열 존재 여부 (codec 열 추가 전에 만든 테이블 대비)
+    int countCodecColumn();
+
+    // codec 열 추가 (기존 행은 identity)
+    void addCodecColumn();
+
+    // 전체 색인 조회 (기동 시 팩 스캔 대신 사용)
+    List<PackIndexEntry> selectAll();
+
+    // 위치 등록 또는 갱신 (압축으로 레코드가 옮겨진 경우)
+    int upsert(PackIndexEntry entry);
+
+    // 위치 삭제 (첨부파일 삭제 시)
+    int delete(@Param("hash") String hash, @Param("extension") String extension);
+
+    // 특정 팩을 가리키는 위치 일괄 삭제 (팩 파일이 없어진 경우)
+    int deleteByPack(@Param("packId") int packId);
+}
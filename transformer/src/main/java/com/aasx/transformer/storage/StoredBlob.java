@@ -0,0 +1,16 @@
+package com.aasx.transformer.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * ✅ 저장된 첨부파일의 해시와 크기
+ */
+@Getter
+@AllArgsConstructor
+public class StoredBlob {
+    // 내용의 SHA-256 해시 (16진수)
+    private final String hash;
+    // 크기 (bytes)
+    private final long size;
+}
@@ -7,11 +7,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.core.io.Resource;
 
-import com.aasx.transformer.deserializer.AASXFileDeserializer;
+import com.aasx.transformer.deserializer.EnvironmentJsonWriter;
 import com.aasx.transformer.upload.service.FileUploadService;
 import com.aasx.transformer.upload.service.JsonToAASXService;
+import com.aasx.transformer.upload.service.UploadWorkspaceRegistry;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,7 +29,6 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.AASXDeserializer;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.AASXSerializer;
@@ -50,32 +51,40 @@ public class FileUploadController {
     private JsonToAASXService jsonToAasxService;
 
     @Autowired
-    private AASXFileDeserializer aasxFileDeserializer;
+    private EnvironmentJsonWriter environmentJsonWriter;
 
     // ✅ 여러 개의 파일 업로드
+    // 응답 형식: Environment JSON 문자열 배열(string[]), 응답 스트림에 바로 직렬화 (gzip 허용 시 압축)
     @PostMapping("/aasx")
-    public ResponseEntity<List<String>> uploadFile(
-            @RequestParam("files") MultipartFile[] files) {
+    public ResponseEntity<StreamingResponseBody> uploadFile(
+            @RequestParam("files") MultipartFile[] files,
+            @RequestHeader HttpHeaders requestHeaders) {
+        String workspaceId = requestHeaders.getFirst(UploadWorkspaceRegistry.HEADER);
 
-        // 1) .aasx 파일 저장 & Environment 리스트 생성
-        List<Environment> environments = fileUploadService.uploadFiles(files);
+        // 1) .aasx 파일 저장 & Environment 리스트 생성 (작업 공간 단위)
+        List<Environment> environments = fileUploadService.uploadFiles(workspaceId, files);
 
         // 2) InMemoryFile 해시 계산 → DB에 FilesMeta 등록
-        fileUploadService.computeSHA256HashesForInMemoryFiles();
-
-        // 3) JSON 문자열로 직렬화해서 반환
-        List<String> jsonList = environments.stream()
-                .map(env -> aasxFileDeserializer.serializeEnvironmentToJson(env))
-                .collect(Collectors.toList());
-
-        log.info("uploadFile → 변환된 JSON 목록: {}", jsonList);
-        return ResponseEntity.ok(jsonList);
+        fileUploadService.computeSHA256HashesForInMemoryFiles(workspaceId);
+
+        // 3) JSON 문자열 배열로 스트리밍 직렬화해서 반환
+        boolean gzip = environmentJsonWriter.shouldGzip(requestHeaders);
+        log.info("uploadFile → Environment {}건 JSON 스트리밍 응답 (gzip={})", environments.size(), gzip);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(out -> environmentJsonWriter.writeAsJsonStringArray(environments, out, gzip));
     }
 
     // ✅ 업로드된 파일 이름 조회
     @GetMapping("/uploadedFileNames")
-    public ResponseEntity<List<String>> listUploadedFiles() {
-        List<String> uploadedFileNames = fileUploadService.getUploadedFiles();
+    public ResponseEntity<List<String>> listUploadedFiles(
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String workspaceId) {
+        List<String> uploadedFileNames = fileUploadService.getUploadedFileNames(workspaceId);
         log.info("컨트롤러 - 업로드된 파일 이름 조회: {}", uploadedFileNames);
         return ResponseEntity.ok(uploadedFileNames);
     }
@@ -84,21 +93,23 @@ public class FileUploadController {
 
     // ✅ 업로드된 JSON 파일 이름 조회
     @GetMapping("/uploadedJsonFileNames")
-    public ResponseEntity<List<String>> listUploadedJsonFiles() {
-        List<String> jsonFileNames = jsonToAasxService.getUploadedJsonFileNames();
+    public ResponseEntity<List<String>> listUploadedJsonFiles(
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String workspaceId) {
+        List<String> jsonFileNames = jsonToAasxService.getUploadedJsonFileNames(workspaceId);
         log.info("컨트롤러 - 업로드된 JSON 파일 이름 조회: {}", jsonFileNames);
         return ResponseEntity.ok(jsonFileNames);
     }
 
     /**
-     * ✅ JSON → AASX 패키지 생성 (URL-only, revert-files 두 가지 variant)
-     *    업로드된 JSON을 바탕으로 두 가지 AASX를 모두 생성하고
-     *    생성된 파일명 리스트를 그대로 반환합니다.
+     * ✅ JSON → AASX 패키지 등록 (URL-only, revert-files 두 가지 variant)
+     *    업로드된 JSON을 등록하고 두 가지 AASX 파일명 리스트를 반환합니다.
+     *    패키지는 다운로드 요청 시 생성되어 디스크에 캐시됩니다.
      */
     @PostMapping("/json")
-    public ResponseEntity<List<String>> uploadJson(@RequestPart("files") MultipartFile[] files) {
+    public ResponseEntity<List<String>> uploadJson(@RequestPart("files") MultipartFile[] files,
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String workspaceId) {
         log.info("JSON → AASX 패키지 생성 요청, 파일 수: {}", files.length);
-        List<String> names = jsonToAasxService.generateAasxVariants(files);
+        List<String> names = jsonToAasxService.generateAasxVariants(workspaceId, files);
         log.info("uploadJson → 생성된 AASX 파일: {}", names);
         return ResponseEntity.ok(names);
     }
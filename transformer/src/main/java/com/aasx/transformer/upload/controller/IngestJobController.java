@@ -0,0 +1,135 @@
+package com.aasx.transformer.upload.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.aasx.transformer.deserializer.EnvironmentJsonWriter;
+import com.aasx.transformer.upload.dto.IngestJobStatus;
+import com.aasx.transformer.upload.service.IngestJob;
+import com.aasx.transformer.upload.service.IngestJobService;
+import com.aasx.transformer.upload.service.UploadWorkspaceRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 비동기 업로드 작업 API
+ * - 제출: 202 Accepted + 작업 상태(jobId 포함), 작업 큐가 가득 차면 503
+ * - 진행 상황: 상태 조회(폴링) 또는 /events SSE 구독 (progress → done | failed)
+ * - 결과: 완료된 작업만 조회 가능 (aasx: Environment JSON 문자열 배열, json: AASX 파일명 목록)
+ * - 기존 동기 업로드 API(/aasx, /json)는 그대로 유지
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/transformer/jobs")
+public class IngestJobController {
+
+    @Autowired
+    private IngestJobService ingestJobService;
+
+    @Autowired
+    private EnvironmentJsonWriter environmentJsonWriter;
+
+    // ✅ AASX 업로드 작업 제출
+    @PostMapping("/aasx")
+    public ResponseEntity<IngestJobStatus> submitAasx(@RequestParam("files") MultipartFile[] files,
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String workspaceId)
+            throws IOException {
+        try {
+            IngestJob job = ingestJobService.submitAasx(workspaceId, files);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.snapshot());
+        } catch (TaskRejectedException e) {
+            log.warn("업로드 작업 큐 초과 → 503");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    // ✅ JSON → AASX 등록 작업 제출
+    @PostMapping("/json")
+    public ResponseEntity<IngestJobStatus> submitJson(@RequestPart("files") MultipartFile[] files,
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String workspaceId)
+            throws IOException {
+        try {
+            IngestJob job = ingestJobService.submitJson(workspaceId, files);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.snapshot());
+        } catch (TaskRejectedException e) {
+            log.warn("업로드 작업 큐 초과 → 503");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    // ✅ 작업 상태 조회 (폴링)
+    @GetMapping("/{jobId}")
+    public ResponseEntity<IngestJobStatus> getStatus(@PathVariable String jobId,
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String workspaceId) {
+        IngestJob job = ingestJobService.find(workspaceId, jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.snapshot());
+    }
+
+    // ✅ 작업 진행 상황 구독 (SSE)
+    // EventSource는 헤더를 보낼 수 없으므로 작업 공간 ID를 쿼리 파라미터로도 받음
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(@PathVariable String jobId,
+            @RequestHeader(value = UploadWorkspaceRegistry.HEADER, required = false) String headerWorkspaceId,
+            @RequestParam(value = "workspaceId", required = false) String paramWorkspaceId) {
+        String workspaceId = headerWorkspaceId != null ? headerWorkspaceId : paramWorkspaceId;
+        IngestJob job = ingestJobService.find(workspaceId, jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(ingestJobService.subscribe(job));
+    }
+
+    // ✅ 작업 결과 조회 (완료 전이면 409)
+    // SSE로 완료를 받은 EventSource 클라이언트도 같은 방식으로 조회할 수 있도록 작업 공간 ID를 쿼리 파라미터로도 받음
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<?> getResult(@PathVariable String jobId, @RequestHeader HttpHeaders requestHeaders,
+            @RequestParam(value = "workspaceId", required = false) String paramWorkspaceId) {
+        String headerWorkspaceId = requestHeaders.getFirst(UploadWorkspaceRegistry.HEADER);
+        String workspaceId = headerWorkspaceId != null ? headerWorkspaceId : paramWorkspaceId;
+        IngestJob job = ingestJobService.find(workspaceId, jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        IngestJobStatus status = job.snapshot();
+        if (status.getFinishedAt() == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(status);
+        }
+        if (!IngestJob.State.SUCCEEDED.name().equals(status.getState())) {
+            return ResponseEntity.unprocessableEntity().body(status);
+        }
+        if (IngestJob.TYPE_JSON.equals(job.getType())) {
+            return ResponseEntity.ok(status.getResults());
+        }
+
+        // aasx: 동기 업로드(/aasx)와 같은 형식 (Environment JSON 문자열 배열, gzip 허용 시 압축)
+        boolean gzip = environmentJsonWriter.shouldGzip(requestHeaders);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        StreamingResponseBody body = out -> environmentJsonWriter.writeAsJsonStringArray(job.getEnvironments(), out, gzip);
+        return builder.body(body);
+    }
+}
@@ -0,0 +1,27 @@
+package com.aasx.transformer.upload.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngestJobStatus {
+    private String jobId;
+    // aasx | json
+    private String type;
+    // QUEUED | RUNNING | SUCCEEDED | FAILED
+    private String state;
+    private List<String> fileNames;
+    // 단계 → 해당 단계를 마친 파일 수
+    private Map<String, Integer> progress;
+    // json 작업 결과: 생성 가능한 AASX 파일명, aasx 작업 결과: 처리된 패키지 파일명
+    private List<String> results;
+    private String error;
+    private long createdAt;
+    private Long finishedAt;
+}
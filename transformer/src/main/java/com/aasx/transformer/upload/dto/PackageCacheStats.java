@@ -0,0 +1,21 @@
+package com.aasx.transformer.upload.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PackageCacheStats {
+    private int entries;
+    private int heapEntries;
+    private int spilledEntries;
+    private long heapBytes;
+    private long spilledBytes;
+    private long maxHeapBytes;
+    private long hits;
+    private long spillHits;
+    private long misses;
+    private long spills;
+}
@@ -0,0 +1,16 @@
+package com.aasx.transformer.upload.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StageTiming {
+    private String stage;
+    private long count;
+    private long totalMillis;
+    private double avgMillis;
+    private long maxMillis;
+}
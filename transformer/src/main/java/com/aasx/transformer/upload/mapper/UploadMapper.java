@@ -1,5 +1,6 @@
 package com.aasx.transformer.upload.mapper;
 
+import java.util.ArrayList;
 import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -23,6 +24,12 @@ public interface UploadMapper {
     // ref_count를 감소 시키기 (파일 메타 삭제 시 사용)
     int decrementFileRefCount(@Param("hash") String hash);
 
+    // 배치 등록용: 파일 해시 등록 (없으면 ref_count 0으로 삽입, 있으면 무시)
+    int insertFileIfAbsent(@Param("hash") String hash, @Param("size") long size);
+
+    // 배치 등록용: ref_count를 재계산하지 않고 delta만큼 증가
+    int incrementFileRefCount(@Param("hash") String hash, @Param("delta") int delta);
+
     // ref_count가 0 이하인 파일 정보를 삭제
     int deleteFileByHash(@Param("hash") String hash);
 
@@ -32,6 +39,21 @@ public interface UploadMapper {
             @Param("submodelId") String submodelId,
             @Param("idShort") String idShort);
 
+    // 복합 키 목록으로 파일 메타 일괄 조회 (keys의 aasId, submodelId, idShort만 사용)
+    List<FilesMeta> selectFileMetasByKeys(@Param("keys") List<FilesMeta> keys);
+
+    // 복합 키 IN 조회 시 한 번에 바인딩할 최대 키 수 (SQLite 변수 개수 제한 대비)
+    int KEY_CHUNK_SIZE = 300;
+
+    // 복합 키 목록을 KEY_CHUNK_SIZE 단위로 나누어 일괄 조회 (키 개수와 무관하게 소수의 쿼리로 처리)
+    default List<FilesMeta> selectFileMetasByKeysChunked(List<FilesMeta> keys) {
+        List<FilesMeta> result = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += KEY_CHUNK_SIZE) {
+            result.addAll(selectFileMetasByKeys(keys.subList(from, Math.min(from + KEY_CHUNK_SIZE, keys.size()))));
+        }
+        return result;
+    }
+
     // 파일 메타 신규 등록 (path는 AASId/SubmodelId/Idshort 형식)
     int insertFileMeta(FilesMeta filesMeta);
 
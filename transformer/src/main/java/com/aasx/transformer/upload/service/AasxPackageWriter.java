@@ -0,0 +1,117 @@
+package com.aasx.transformer.upload.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.AASXSerializer;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.SerializationException;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.xml.XmlSerializer;
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ AASX 패키지 스트리밍 기록
+ * - AASXSerializer에는 첨부파일 대신 짧은 placeholder 바이트만 전달하여 패키지 골격(XML, 관계, Content-Types)만 생성
+ * - 골격을 ZIP 엔트리 단위로 다시 기록하면서 placeholder 엔트리는 원본 파일(저장소의 해시 파일)에서 직접 스트리밍
+ * - 결과는 대상 디렉토리의 임시 파일에 기록 후 원자적 이동 → 패키지 크기와 무관하게 메모리 사용량 일정
+ */
+@Slf4j
+@Component
+public class AasxPackageWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 패키지 기록
+     *
+     * @param environment 패키지에 담을 Environment
+     * @param attachments 패키지 내부 경로 → 원본 내용 (저장소 스트림 또는 임시 파일, 삽입 순서대로 기록)
+     * @param target      최종 AASX 파일 경로
+     */
+    public void write(Environment environment, Map<String, InputStreamSource> attachments, Path target)
+            throws IOException, SerializationException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+
+        // 1) placeholder 구성: 엔트리 내용으로 식별 (ZIP 엔트리 이름 인코딩과 무관)
+        String nonce = UUID.randomUUID().toString();
+        List<InMemoryFile> placeholders = new ArrayList<>();
+        Map<String, InputStreamSource> sourceByMarker = new HashMap<>();
+        int maxMarkerLength = 0;
+        int i = 0;
+        for (Map.Entry<String, InputStreamSource> attachment : attachments.entrySet()) {
+            String marker = "aasx-placeholder:" + nonce + ":" + (i++);
+            byte[] markerBytes = marker.getBytes(StandardCharsets.US_ASCII);
+            placeholders.add(new InMemoryFile(markerBytes, attachment.getKey()));
+            sourceByMarker.put(marker, attachment.getValue());
+            maxMarkerLength = Math.max(maxMarkerLength, markerBytes.length);
+        }
+
+        Path skeleton = Files.createTempFile(dir, "aasx-", ".skeleton");
+        Path partial = Files.createTempFile(dir, "aasx-", ".tmp");
+        try {
+            // 2) 골격 패키지 기록
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(skeleton), BUFFER_SIZE)) {
+                new AASXSerializer(new XmlSerializer()).write(environment, placeholders, out);
+            }
+
+            // 3) 엔트리 재기록 (placeholder → 원본 파일 스트리밍)
+            int streamed = 0;
+            try (ZipInputStream zin = new ZipInputStream(new BufferedInputStream(Files.newInputStream(skeleton), BUFFER_SIZE));
+                    ZipOutputStream zout = new ZipOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(partial), BUFFER_SIZE))) {
+                ZipEntry entry;
+                while ((entry = zin.getNextEntry()) != null) {
+                    zout.putNextEntry(new ZipEntry(entry.getName()));
+
+                    // 앞부분만 읽어 placeholder 여부 판별
+                    byte[] head = zin.readNBytes(maxMarkerLength + 1);
+                    InputStreamSource source = head.length <= maxMarkerLength
+                            ? sourceByMarker.get(new String(head, StandardCharsets.US_ASCII))
+                            : null;
+                    if (source != null) {
+                        try (InputStream in = source.getInputStream()) {
+                            in.transferTo(zout);
+                        }
+                        streamed++;
+                    } else {
+                        zout.write(head);
+                        zin.transferTo(zout);
+                    }
+                    zout.closeEntry();
+                }
+            }
+            log.info("AASX 패키지 기록: {} (첨부파일 {}/{}개 스트리밍)", target, streamed, attachments.size());
+
+            // 4) 원자적 이동
+            try {
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(skeleton);
+            Files.deleteIfExists(partial);
+        }
+    }
+}
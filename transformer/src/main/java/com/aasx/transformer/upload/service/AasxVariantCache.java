@@ -0,0 +1,148 @@
+package com.aasx.transformer.upload.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.SerializationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ JSON → AASX 변형(URL-only / revert) 디스크 캐시
+ * - 키: "{JSON 내용 해시}-url" / "{JSON 내용 해시}-{첨부파일 메타 요약}-revert" → {temp-path}/aasx-variants/{키}.aasx
+ * - 최초 다운로드 요청 시 한 번만 생성하고, 같은 키는 동시 요청이어도 생성은 1회
+ * - 총 크기가 aasx.variant-cache.max-bytes를 넘으면 가장 오래 사용되지 않은 변형부터 삭제
+ *   (사용 시각은 파일 수정 시각으로 기록 → 재시작 후에도 유지)
+ */
+@Slf4j
+@Component
+public class AasxVariantCache {
+
+    private static final String CACHE_DIR = "aasx-variants";
+    private static final String EXTENSION = ".aasx";
+
+    @Value("${upload.temp-path}")
+    private String tempPath;
+
+    @Value("${aasx.variant-cache.max-bytes:1073741824}")
+    private long maxBytes;
+
+    // 키별 생성 잠금 (생성이 끝나면 제거), 디스크 쓰기 중 가상 스레드 고정을 피하기 위해 ReentrantLock
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * 변형 생성 콜백: target 경로에 AASX 패키지를 기록
+     */
+    @FunctionalInterface
+    public interface VariantWriter {
+        void write(Path target) throws IOException, SerializationException;
+    }
+
+    /**
+     * 캐시된 변형 조회 (사용 시각 갱신), 없으면 null
+     */
+    public Path find(String key) {
+        Path file = cacheDir().resolve(key + EXTENSION);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        touch(file);
+        return file;
+    }
+
+    /**
+     * 캐시된 변형을 반환하거나, 없으면 writer로 생성 후 캐시에 추가
+     */
+    public Path getOrCreate(String key, VariantWriter writer) throws IOException, SerializationException {
+        Path cached = find(key);
+        if (cached != null) {
+            log.info("AASX 변형 캐시 적중: {}", key);
+            return cached;
+        }
+
+        ReentrantLock lock = locks.computeIfAbsent(key, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            // 대기 중 다른 요청이 생성을 마쳤으면 그대로 사용
+            cached = find(key);
+            if (cached != null) {
+                return cached;
+            }
+            Path target = cacheDir().resolve(key + EXTENSION);
+            long start = System.nanoTime();
+            writer.write(target);
+            log.info("AASX 변형 생성: {} ({} bytes, {} ms)", key, Files.size(target),
+                    (System.nanoTime() - start) / 1_000_000);
+            evict(target);
+            return target;
+        } finally {
+            locks.remove(key, lock);
+            lock.unlock();
+        }
+    }
+
+    // 최대 크기를 넘으면 사용 시각이 오래된 변형부터 삭제 (방금 생성한 keep은 제외)
+    private void evict(Path keep) {
+        List<Path> files = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attrs = new HashMap<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir(), "*" + EXTENSION)) {
+            for (Path file : stream) {
+                BasicFileAttributes attr = Files.readAttributes(file, BasicFileAttributes.class);
+                files.add(file);
+                attrs.put(file, attr);
+                total += attr.size();
+            }
+        } catch (IOException e) {
+            log.warn("AASX 변형 캐시 목록 조회 실패: {}", e.getMessage());
+            return;
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        files.sort(Comparator.comparing(f -> attrs.get(f).lastModifiedTime()));
+        for (Path file : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (file.equals(keep)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(file);
+                total -= attrs.get(file).size();
+                log.info("AASX 변형 캐시 삭제: {}", file.getFileName());
+            } catch (IOException e) {
+                // 다운로드 중인 파일 등은 다음 정리 때 다시 시도
+                log.warn("AASX 변형 캐시 삭제 실패: {} ({})", file, e.getMessage());
+            }
+        }
+    }
+
+    private Path cacheDir() {
+        return Paths.get(tempPath, CACHE_DIR);
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("AASX 변형 사용 시각 갱신 실패: {}", file);
+        }
+    }
+}
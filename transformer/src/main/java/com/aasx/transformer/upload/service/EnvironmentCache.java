@@ -0,0 +1,86 @@
+package com.aasx.transformer.upload.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 해시 URL이 바인딩된 Environment 캐시
+ * - 업로드 시 computeSHA256HashesForInMemoryFiles() 결과를 작업 공간 / 패키지 파일 이름별로 저장
+ * - JSON 다운로드는 캐시된 Environment를 직렬화만 하면 되므로 패키지 재처리가 필요 없음
+ * - 엔트리마다 증가하는 version을 부여하여, 패키지 교체/메타 삭제 시 무효화 여부를 구분
+ */
+@Slf4j
+@Component
+public class EnvironmentCache {
+
+    // 캐시 엔트리마다 부여되는 전역 버전 카운터
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    // 작업 공간 ID → (패키지 파일 이름 → 캐시 엔트리)
+    private final Map<String, Map<String, CachedEnvironment>> entries = new ConcurrentHashMap<>();
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class CachedEnvironment {
+        private final long version;
+        private final Environment environment;
+
+        // 직렬화된 JSON 기준 ETag (최초 다운로드 시 계산하여 보관)
+        @Setter
+        private volatile String jsonEtag;
+    }
+
+    // 해시 URL이 반영된 Environment를 저장 (기존 엔트리는 새 버전으로 교체)
+    public CachedEnvironment put(String workspaceId, String fileName, Environment environment) {
+        CachedEnvironment entry = new CachedEnvironment(versionSequence.incrementAndGet(), environment);
+        entries.computeIfAbsent(workspaceId, k -> new ConcurrentHashMap<>()).put(fileName, entry);
+        log.info("Environment 캐시 저장: {}/{} (version={})", workspaceId, fileName, entry.getVersion());
+        return entry;
+    }
+
+    // 캐시 조회, 없으면 null
+    public CachedEnvironment get(String workspaceId, String fileName) {
+        Map<String, CachedEnvironment> workspace = entries.get(workspaceId);
+        return workspace != null ? workspace.get(fileName) : null;
+    }
+
+    // 특정 패키지의 캐시 무효화 (패키지 교체 시)
+    public void invalidate(String workspaceId, String fileName) {
+        Map<String, CachedEnvironment> workspace = entries.get(workspaceId);
+        if (workspace != null && workspace.remove(fileName) != null) {
+            log.info("Environment 캐시 무효화: {}/{}", workspaceId, fileName);
+        }
+    }
+
+    // 주어진 AAS ID를 포함하는 패키지의 캐시 무효화 (파일 메타 삭제 시, 모든 작업 공간 대상)
+    public void invalidateByAasId(String aasId) {
+        entries.forEach((workspaceId, workspace) -> workspace.entrySet().removeIf(e -> {
+            Environment env = e.getValue().getEnvironment();
+            if (env.getAssetAdministrationShells() == null) {
+                return false;
+            }
+            for (AssetAdministrationShell shell : env.getAssetAdministrationShells()) {
+                if (aasId.equals(shell.getId())) {
+                    log.info("Environment 캐시 무효화 (aasId={}): {}/{}", aasId, workspaceId, e.getKey());
+                    return true;
+                }
+            }
+            return false;
+        }));
+    }
+
+    // 작업 공간 캐시 초기화 (새 업로드로 패키지 목록이 교체되거나 작업 공간이 제거될 때)
+    public void clear(String workspaceId) {
+        entries.remove(workspaceId);
+    }
+}
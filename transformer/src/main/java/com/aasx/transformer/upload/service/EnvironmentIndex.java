@@ -0,0 +1,229 @@
+package com.aasx.transformer.upload.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.AnnotatedRelationshipElement;
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.Entity;
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.eclipse.digitaltwin.aas4j.v3.model.Key;
+import org.eclipse.digitaltwin.aas4j.v3.model.KeyTypes;
+import org.eclipse.digitaltwin.aas4j.v3.model.Operation;
+import org.eclipse.digitaltwin.aas4j.v3.model.OperationVariable;
+import org.eclipse.digitaltwin.aas4j.v3.model.Reference;
+import org.eclipse.digitaltwin.aas4j.v3.model.Submodel;
+import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElement;
+import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElementCollection;
+import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElementList;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ Environment 단위 File/Resource 인덱스
+ * - Environment를 한 번만 순회하여 정규화 경로 → File 요소/썸네일 Resource 매핑을 구성
+ * - 각 File 요소에는 소속 AAS ID(해당 Submodel을 참조하는 AAS, 없으면 첫 번째 AAS), Submodel ID, idShort 기록
+ * - 복합키 수집, Content-Type 조회, 경로 → URL 치환이 모두 이 인덱스를 조회하므로
+ *   첨부파일 수와 무관하게 모델 크기에 비례하는 시간으로 처리
+ */
+@Slf4j
+public class EnvironmentIndex {
+
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    // 복합키 대상 File 요소 (Submodel → SMC/SML 경로로 도달 가능한 요소)
+    @Getter
+    @AllArgsConstructor
+    public static class FileEntry {
+        private final String aasId;
+        private final String submodelId;
+        private final String idShort;
+        private final org.eclipse.digitaltwin.aas4j.v3.model.File element;
+
+        public String compositeKey() {
+            return aasId + "::" + submodelId + "::" + idShort;
+        }
+    }
+
+    private final Environment environment;
+
+    // 정규화 경로 → 복합키 대상 File 요소 (순회 순서 유지)
+    private final Map<String, List<FileEntry>> fileEntriesByPath = new HashMap<>();
+
+    // 정규화 경로 → 썸네일 (AAS 순서상 처음 일치하는 썸네일)
+    private final Map<String, ThumbnailResolver.Thumbnail> thumbnailsByPath = new HashMap<>();
+
+    // 정규화 경로 → File 요소 contentType (비어있지 않은 값 중 마지막 값)
+    private final Map<String, String> contentTypeByPath = new HashMap<>();
+
+    // trim된 원본 value → 모든 File 요소 (Entity/Operation 등 내부 요소 포함, URL 치환 대상)
+    private final Map<String, List<org.eclipse.digitaltwin.aas4j.v3.model.File>> filesByValue = new LinkedHashMap<>();
+
+    private EnvironmentIndex(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Environment를 한 번 순회하여 인덱스 생성
+     */
+    public static EnvironmentIndex of(Environment environment, ThumbnailResolver thumbnailResolver) {
+        if (environment.getAssetAdministrationShells() == null
+                || environment.getAssetAdministrationShells().isEmpty()) {
+            throw new RuntimeException("Environment에 등록된 AAS가 없습니다.");
+        }
+
+        EnvironmentIndex index = new EnvironmentIndex(environment);
+
+        // AAS 순서상 처음 일치하는 썸네일 유지
+        for (AssetAdministrationShell shell : environment.getAssetAdministrationShells()) {
+            ThumbnailResolver.Thumbnail thumbnail = thumbnailResolver.resolve(shell);
+            if (thumbnail != null) {
+                index.thumbnailsByPath.putIfAbsent(normalize(thumbnail.getPath()), thumbnail);
+            }
+        }
+
+        // Submodel ID → 참조하는 AAS ID
+        Map<String, String> owningAasIds = new HashMap<>();
+        for (AssetAdministrationShell shell : environment.getAssetAdministrationShells()) {
+            if (shell.getSubmodels() == null) continue;
+            for (Reference ref : shell.getSubmodels()) {
+                for (Key key : ref.getKeys()) {
+                    if (KeyTypes.SUBMODEL.equals(key.getType())) {
+                        owningAasIds.putIfAbsent(key.getValue(), shell.getId());
+                    }
+                }
+            }
+        }
+
+        String defaultAasId = environment.getAssetAdministrationShells().get(0).getId();
+        if (environment.getSubmodels() != null) {
+            for (Submodel submodel : environment.getSubmodels()) {
+                String aasId = owningAasIds.getOrDefault(submodel.getId(), defaultAasId);
+                index.indexElements(submodel.getSubmodelElements(), aasId, submodel.getId(), true);
+            }
+        }
+
+        log.info("EnvironmentIndex 생성: 경로 {}개, 썸네일 {}개", index.fileEntriesByPath.size(), index.thumbnailsByPath.size());
+        return index;
+    }
+
+    /**
+     * ✅ 경로 정규화
+     * - 백슬래시를 슬래시로 변경
+     * - 앞뒤 공백 제거
+     * - 소문자 변환하여 비교 오차 제거
+     */
+    public static String normalize(String path) {
+        if (path == null)
+            return "";
+        return path.replace("\\", "/").trim().toLowerCase();
+    }
+
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    // 정규화 경로에 일치하는 썸네일, 없으면 null
+    public ThumbnailResolver.Thumbnail thumbnailFor(String normalizedPath) {
+        return thumbnailsByPath.get(normalizedPath);
+    }
+
+    // 정규화 경로에 일치하는 복합키 대상 File 요소 목록 (순회 순서)
+    public List<FileEntry> fileEntriesFor(String normalizedPath) {
+        return fileEntriesByPath.getOrDefault(normalizedPath, Collections.emptyList());
+    }
+
+    /**
+     * 경로의 Content-Type
+     * 1) defaultThumbnail 경로와 일치하면 썸네일 contentType
+     * 2) 그 외엔 경로가 일치하는 File 요소의 contentType
+     * 3) 둘 다 없으면 application/octet-stream
+     */
+    public String contentTypeFor(String originalPath) {
+        String norm = normalize(originalPath);
+        ThumbnailResolver.Thumbnail thumb = thumbnailsByPath.get(norm);
+        if (thumb != null && thumb.getContentType() != null && !thumb.getContentType().isBlank()) {
+            return thumb.getContentType();
+        }
+        return contentTypeByPath.getOrDefault(norm, DEFAULT_CONTENT_TYPE);
+    }
+
+    /**
+     * value(trim)가 원본 경로와 정확히 일치하는 모든 File 요소의 value를 URL로 변경
+     * - 변경된 요소는 인덱스에서 제거 (같은 요소를 두 번 치환하지 않도록)
+     *
+     * @return 변경된 요소 수
+     */
+    public int rewriteFileValues(String originalPath, String url) {
+        List<org.eclipse.digitaltwin.aas4j.v3.model.File> targets = filesByValue.remove(originalPath.trim());
+        if (targets == null) {
+            return 0;
+        }
+        for (org.eclipse.digitaltwin.aas4j.v3.model.File file : targets) {
+            file.setValue(url);
+        }
+        return targets.size();
+    }
+
+    /**
+     * SubmodelElement 재귀 순회
+     *
+     * @param keyed SMC/SML 경로로만 도달한 경우 true → 복합키 대상.
+     *              Entity/AnnotatedRelationshipElement/Operation 내부 요소는 URL 치환/Content-Type 대상으로만 기록
+     */
+    private void indexElements(List<? extends SubmodelElement> elements, String aasId, String submodelId, boolean keyed) {
+        if (elements == null)
+            return;
+        for (SubmodelElement element : elements) {
+            if (element instanceof org.eclipse.digitaltwin.aas4j.v3.model.File) {
+                indexFile((org.eclipse.digitaltwin.aas4j.v3.model.File) element, aasId, submodelId, keyed);
+            } else if (element instanceof SubmodelElementCollection) {
+                indexElements(((SubmodelElementCollection) element).getValue(), aasId, submodelId, keyed);
+            } else if (element instanceof SubmodelElementList) {
+                indexElements(((SubmodelElementList) element).getValue(), aasId, submodelId, keyed);
+            } else if (element instanceof Entity) {
+                indexElements(((Entity) element).getStatements(), aasId, submodelId, false);
+            } else if (element instanceof AnnotatedRelationshipElement) {
+                indexElements(((AnnotatedRelationshipElement) element).getAnnotations(), aasId, submodelId, false);
+            } else if (element instanceof Operation) {
+                Operation op = (Operation) element;
+                indexVariables(op.getInputVariables(), aasId, submodelId);
+                indexVariables(op.getOutputVariables(), aasId, submodelId);
+                indexVariables(op.getInoutputVariables(), aasId, submodelId);
+            }
+        }
+    }
+
+    private void indexVariables(List<OperationVariable> variables, String aasId, String submodelId) {
+        if (variables == null)
+            return;
+        List<SubmodelElement> values = new ArrayList<>();
+        for (OperationVariable variable : variables) {
+            if (variable.getValue() != null) values.add(variable.getValue());
+        }
+        indexElements(values, aasId, submodelId, false);
+    }
+
+    private void indexFile(org.eclipse.digitaltwin.aas4j.v3.model.File file, String aasId, String submodelId, boolean keyed) {
+        String value = file.getValue();
+        if (value == null || value.trim().isEmpty()) {
+            return;
+        }
+        String norm = normalize(value);
+
+        filesByValue.computeIfAbsent(value.trim(), k -> new ArrayList<>()).add(file);
+        if (file.getContentType() != null && !file.getContentType().isBlank()) {
+            contentTypeByPath.put(norm, file.getContentType());
+        }
+        if (keyed) {
+            fileEntriesByPath.computeIfAbsent(norm, k -> new ArrayList<>())
+                    .add(new FileEntry(aasId, submodelId, file.getIdShort(), file));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.aasx.transformer.upload.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.aasx.transformer.upload.dto.FilesMeta;
+import com.aasx.transformer.upload.mapper.UploadMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 패키지 단위 첨부파일 메타데이터 일괄 등록
+ * - 한 패키지의 모든 첨부파일을 하나의 트랜잭션에서 MyBatis BATCH 실행기로 등록
+ * - 기존 메타는 복합키 목록으로 한 번에 조회
+ * - ref_count는 COUNT(*) 재계산 없이 신규 메타 건수만큼 증분 갱신
+ */
+@Slf4j
+@Service
+public class FileMetaRegistrationService {
+
+    // BATCH 실행기 전용 매퍼 (기본 SIMPLE 매퍼와 분리)
+    private final UploadMapper batchMapper;
+    private final SqlSessionTemplate batchSqlSession;
+
+    @Autowired
+    public FileMetaRegistrationService(SqlSessionFactory sqlSessionFactory) {
+        this.batchSqlSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.batchMapper = batchSqlSession.getMapper(UploadMapper.class);
+    }
+
+    /**
+     * 패키지의 첨부파일 메타 후보를 한 트랜잭션에서 등록
+     *
+     * @param candidates 첨부파일별 메타 후보 (aasId, submodelId, idShort, hash 등 채워진 상태)
+     * @param sizeByHash 해시별 파일 크기
+     * @return 복합키("aasId::submodelId::idShort") → 실제 적용된 FilesMeta (기존 메타가 있으면 기존 메타)
+     */
+    @Transactional
+    public Map<String, FilesMeta> registerAttachments(List<FilesMeta> candidates, Map<String, Long> sizeByHash) {
+        Map<String, FilesMeta> resolved = new LinkedHashMap<>();
+        if (candidates.isEmpty()) {
+            return resolved;
+        }
+
+        // 1) 기존 메타 일괄 조회
+        for (FilesMeta existing : selectExisting(candidates)) {
+            resolved.put(compositeKey(existing), existing);
+        }
+
+        // 2) files 테이블 해시 등록 (ref_count 0으로 삽입, 이미 있으면 무시)
+        sizeByHash.forEach(batchMapper::insertFileIfAbsent);
+
+        // 3) 신규 메타만 삽입하고 해시별 증가분 누적
+        Map<String, Integer> refDelta = new LinkedHashMap<>();
+        for (FilesMeta candidate : candidates) {
+            String key = compositeKey(candidate);
+            if (resolved.containsKey(key)) {
+                continue;
+            }
+            batchMapper.insertFileMeta(candidate);
+            refDelta.merge(candidate.getHash(), 1, Integer::sum);
+            resolved.put(key, candidate);
+        }
+
+        // 4) ref_count 증분 갱신
+        refDelta.forEach(batchMapper::incrementFileRefCount);
+
+        // 배치 실행 오류를 이 트랜잭션 안에서 드러내기 위해 명시적으로 flush
+        batchSqlSession.flushStatements();
+        log.info("첨부파일 메타 일괄 등록 완료: 후보 {}건, 신규 {}건, 해시 {}개",
+                candidates.size(), refDelta.values().stream().mapToInt(Integer::intValue).sum(), sizeByHash.size());
+        return resolved;
+    }
+
+    // 중복 복합키를 제거한 뒤 기존 메타 일괄 조회
+    private List<FilesMeta> selectExisting(List<FilesMeta> candidates) {
+        Map<String, FilesMeta> distinctKeys = new HashMap<>();
+        for (FilesMeta candidate : candidates) {
+            distinctKeys.putIfAbsent(compositeKey(candidate), candidate);
+        }
+        return batchMapper.selectFileMetasByKeysChunked(new ArrayList<>(distinctKeys.values()));
+    }
+
+    public static String compositeKey(FilesMeta meta) {
+        return meta.getAasId() + "::" + meta.getSubmodelId() + "::" + meta.getIdShort();
+    }
+
+    // 복합키 조회용 FilesMeta (aasId, submodelId, idShort만 채움)
+    public static FilesMeta metaKey(String aasId, String submodelId, String idShort) {
+        FilesMeta key = new FilesMeta();
+        key.setAasId(aasId);
+        key.setSubmodelId(submodelId);
+        key.setIdShort(idShort);
+        return key;
+    }
+}
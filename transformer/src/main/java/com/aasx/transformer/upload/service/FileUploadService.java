@@ -1,34 +1,33 @@
 package com.aasx.transformer.upload.service;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.internal.visitor.AssetAdministrationShellElementWalkerVisitor;
-import org.eclipse.digitaltwin.aas4j.v3.model.AssetAdministrationShell;
-import org.eclipse.digitaltwin.aas4j.v3.model.AssetInformation;
 import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
-import org.eclipse.digitaltwin.aas4j.v3.model.Resource;
-import org.eclipse.digitaltwin.aas4j.v3.model.Submodel;
-import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElement;
-import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElementCollection;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.aasx.transformer.deserializer.AASXFileDeserializer;
-import com.aasx.transformer.deserializer.SHA256HashApache;
-import com.aasx.transformer.upload.dto.Files;
+import com.aasx.transformer.deserializer.ExtractedFile;
+import com.aasx.transformer.deserializer.IngestedPackage;
+import com.aasx.transformer.deserializer.ZipCentralDirectory;
+import com.aasx.transformer.deserializer.ZipCentralDirectory.PartChecksum;
 import com.aasx.transformer.upload.dto.FilesMeta;
+import com.aasx.transformer.storage.BlobStore;
 import com.aasx.transformer.upload.mapper.UploadMapper;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Method;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -39,9 +38,10 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @Slf4j
@@ -53,25 +53,58 @@ public class FileUploadService {
     @Autowired
     private UploadMapper uploadMapper;
 
-    @Value("${upload.path}")
-    private String uploadPath;
+    @Autowired
+    private EnvironmentCache environmentCache;
+
+    @Autowired
+    private IngestMetrics ingestMetrics;
+
+    @Autowired
+    private FileMetaRegistrationService fileMetaRegistrationService;
+
+    @Autowired
+    private ThumbnailResolver thumbnailResolver;
+
+    @Autowired
+    @Qualifier("packageIngestExecutor")
+    private Executor packageIngestExecutor;
+
+    @Autowired
+    @Qualifier("attachmentIngestExecutor")
+    private Executor attachmentIngestExecutor;
+
+    // SQLite는 단일 writer이므로 메타데이터 쓰기는 패키지 병렬 처리 중에도 직렬화
+    // (JDBC 대기 중 가상 스레드가 캐리어 스레드를 점유하지 않도록 synchronized 대신 ReentrantLock)
+    private final ReentrantLock metadataWriteLock = new ReentrantLock();
 
     @Value("${download.base-url}")
     private String baseDownloadUrl;
 
-    // 업로드된 AASX 파일 이름
-    public final List<String> uploadedFileNames = new CopyOnWriteArrayList<>();
-    // 업로드된 AASX 파일로부터 변환된 Environment 목록
-    private final List<Environment> uploadedEnvironments = new CopyOnWriteArrayList<>();
-    // AASX 바이트 배열 캐시
-    private final Map<String, byte[]> aasxBytesMap = new ConcurrentHashMap<>();
+    @Autowired
+    private UploadWorkspaceRegistry workspaceRegistry;
 
-    public List<String> getUploadedFileNames() {
-        return new ArrayList<>(uploadedFileNames);
+    @Autowired
+    private PackageByteCache packageByteCache;
+
+    @Autowired
+    private PackageFingerprintCache packageFingerprintCache;
+
+    @Autowired
+    private PackageRevisionCache packageRevisionCache;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    // ✅ 작업 공간의 업로드된 파일 이름 (업로드 순서)
+    public List<String> getUploadedFileNames(String workspaceId) {
+        UploadWorkspace workspace = workspaceRegistry.find(workspaceId);
+        return workspace != null ? workspace.getPackageFileNames() : new ArrayList<>();
     }
 
-    public List<Environment> getUploadedEnvironments() {
-        return new ArrayList<>(uploadedEnvironments);
+    // ✅ 작업 공간의 업로드된 Environment 조회 (파일 이름 기준 O(1)), 없으면 null
+    public Environment getUploadedEnvironment(String workspaceId, String fileName) {
+        UploadWorkspace workspace = workspaceRegistry.find(workspaceId);
+        return workspace != null ? workspace.getPackages().get(fileName) : null;
     }
 
     // InMemoryFile의 원본 경로와 해시 매핑 (중복 체크, DB 등록 시 사용)
@@ -79,99 +112,176 @@ public class FileUploadService {
 
     /**
      * ✅ AASX 업로드
-     * - .aasx를 디스크에 쓰지 않고, 바이트 배열로 읽어서 메모리 캐시에 저장
-     * - Environment 생성 후 내부 경로 정보만 파싱
+     * - .aasx를 디스크에 쓰지 않고, 바이트 배열로 읽어서 작업 공간의 메모리 캐시에 저장
+     * - 패키지를 한 번만 열어 Environment 생성과 첨부파일 추출/해시 계산을 함께 수행
+     * - 패키지 단위로 packageIngestExecutor에서 병렬 처리하되, 결과는 업로드 순서대로 모음
+     * - 이전 업로드 목록은 같은 작업 공간 안에서만 교체 (다른 사용자의 목록에는 영향 없음)
+     * - 업로드 바이트를 읽으면서 패키지 지문(SHA-256)을 계산, 이미 처리한 패키지면 파싱/해시/DB 등록 없이 재사용
+     * - 지문이 다르면 ZIP 중앙 디렉토리의 파트 CRC를 같은 패키지의 이전 리비전과 비교하여 바뀐 첨부파트만 추출/해시
      */
-    public List<Environment> uploadFiles(MultipartFile[] files) {
+    public List<Environment> uploadFiles(String workspaceId, MultipartFile[] files) {
+        return uploadFiles(workspaceId, files, IngestProgress.NONE);
+    }
+
+    /**
+     * ✅ AASX 업로드 (진행 상황 보고)
+     * - 패키지별로 파싱(parsed), 첨부파일 추출/해시(hashed) 완료 시 progress에 알림
+     */
+    public List<Environment> uploadFiles(String workspaceId, MultipartFile[] files, IngestProgress progress) {
         List<Environment> results = new ArrayList<>();
-        uploadedFileNames.clear();
-        uploadedEnvironments.clear();
-        aasxBytesMap.clear();
 
         for (MultipartFile file : files) {
             String fileName = file.getOriginalFilename();
             if (fileName == null || !fileName.toLowerCase().endsWith(".aasx")) {
                 throw new IllegalArgumentException("AASX 파일(.aasx)만 업로드 가능합니다: " + fileName);
             }
+        }
 
-            try {
-                // 1) 바이트 배열로 읽어서 캐시
-                byte[] aasxBytes = file.getBytes();
-                aasxBytesMap.put(fileName, aasxBytes);
-
-                // 2) 캐시된 바이트 배열로 Environment 파싱
-                Environment env;
-                try (InputStream isEnv = new ByteArrayInputStream(aasxBytes)) {
-                    env = aasxFileDeserializer.deserializeAASXFile(isEnv);
-                }
-                if (env == null) {
-                    log.warn("AASX 파싱 실패: {}", fileName);
-                    aasxBytesMap.remove(fileName);
-                    continue;
+        UploadWorkspace workspace = workspaceRegistry.getOrCreate(workspaceId);
+        ReentrantLock uploadLock = workspace.getUploadLock();
+        uploadLock.lock();
+        try {
+            workspace.resetPackages();
+            packageByteCache.removeWorkspace(workspace.getId());
+            // 이전 업로드 패키지 목록이 교체되므로 캐시된 Environment도 함께 무효화
+            environmentCache.clear(workspace.getId());
+
+            // 1) 패키지별 처리 작업 제출 (업로드 순서 유지)
+            Map<String, CompletableFuture<IngestedPackage>> futures = new LinkedHashMap<>();
+            for (MultipartFile file : files) {
+                String fileName = file.getOriginalFilename();
+                try {
+                    // 바이트 배열로 읽으면서 패키지 지문 계산 후 캐시 (예산 초과 시 오래된 패키지는 디스크로 내보냄)
+                    MessageDigest digest = DigestUtils.getSha256Digest();
+                    byte[] aasxBytes;
+                    try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                        aasxBytes = in.readAllBytes();
+                    }
+                    String fingerprint = Hex.encodeHexString(digest.digest());
+                    packageByteCache.put(workspace.getId(), fileName, aasxBytes);
+                    workspace.getPackageFingerprints().put(fileName, fingerprint);
+
+                    // 같은 내용의 패키지를 이미 처리했으면 해시 URL이 바인딩된 Environment 사본을 사용
+                    Environment known = packageFingerprintCache.find(fingerprint);
+                    if (known != null) {
+                        workspace.getProcessedPackages().add(fileName);
+                        futures.put(fileName, CompletableFuture.completedFuture(
+                                new IngestedPackage(known, Collections.emptyList(), 0, 0)));
+                        continue;
+                    }
+
+                    // 파트별 CRC-32 / 크기 (압축 해제 없이 중앙 디렉토리만 읽음)
+                    Map<String, PartChecksum> checksums = ZipCentralDirectory.read(aasxBytes);
+                    workspace.getPartChecksums().put(fileName, checksums);
+
+                    // 캐시된 바이트 배열로 패키지를 한 번 열어 Environment 파싱 + 바뀐 첨부파일만 추출
+                    futures.put(fileName, CompletableFuture.supplyAsync(() -> {
+                        try (InputStream isPkg = new ByteArrayInputStream(aasxBytes)) {
+                            return aasxFileDeserializer.ingestAASXPackage(isPkg, blobStore, attachmentIngestExecutor,
+                                    environment -> packageRevisionCache.unchangedParts(environment, checksums));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, packageIngestExecutor));
+                } catch (Exception e) {
+                    log.error("업로드 처리 중 오류 발생: {}", e.getMessage(), e);
                 }
+            }
+
+            // 2) 제출 순서대로 결과 수집
+            LinkedHashMap<String, Environment> uploaded = new LinkedHashMap<>();
+            for (Map.Entry<String, CompletableFuture<IngestedPackage>> entry : futures.entrySet()) {
+                String fileName = entry.getKey();
+                try {
+                    IngestedPackage ingested = entry.getValue().join();
+                    Environment env = ingested.getEnvironment();
+                    if (env == null) {
+                        log.warn("AASX 파싱 실패: {}", fileName);
+                        packageByteCache.remove(workspace.getId(), fileName);
+                        continue;
+                    }
+                    progress.onStage(IngestProgress.STAGE_PARSED, fileName);
+                    progress.onStage(IngestProgress.STAGE_HASHED, fileName);
+                    results.add(env);
+                    uploaded.put(fileName, env);
+                    if (workspace.getProcessedPackages().contains(fileName)) {
+                        log.info("AASX 재업로드 (지문 일치): {} → 파싱/해시 생략", fileName);
+                        continue;
+                    }
+                    workspace.getExtractedFiles().put(fileName, ingested.getFiles());
+                    ingestMetrics.record(IngestMetrics.STAGE_PARSE, ingested.getParseNanos());
+                    ingestMetrics.record(IngestMetrics.STAGE_EXTRACT, ingested.getExtractNanos());
 
-                // 3) 파싱된 Environment 저장 (디스크에는 쓰지 않음)
-                results.add(env);
-                uploadedEnvironments.add(env);
-                uploadedFileNames.add(fileName);
-                log.info("AASX 파싱 완료 (디스크 저장 없음): {}", fileName);
+                    // 3) 파싱된 Environment 저장 (디스크에는 쓰지 않음)
+                    log.info("AASX 파싱 완료 (디스크 저장 없음): {} (parse={}ms, extract={}ms, 첨부파일 {}개)", fileName,
+                            TimeUnit.NANOSECONDS.toMillis(ingested.getParseNanos()),
+                            TimeUnit.NANOSECONDS.toMillis(ingested.getExtractNanos()),
+                            ingested.getFiles().size());
 
-            } catch (Exception e) {
-                log.error("업로드 처리 중 오류 발생: {}", e.getMessage(), e);
+                } catch (Exception e) {
+                    packageByteCache.remove(workspace.getId(), fileName);
+                    log.error("업로드 처리 중 오류 발생 ({}): {}", fileName, e.getMessage(), e);
+                }
             }
+            workspace.publishPackages(uploaded);
+        } finally {
+            uploadLock.unlock();
         }
 
         return results;
     }
 
-    // ✅ 업로드된 파일 이름 반환
-    public List<String> getUploadedFiles() {
-        return new ArrayList<>(uploadedFileNames);
+    /**
+     * 업로드된 패키지별 첨부파일 목록 반환
+     * - 업로드 시 단일 패스로 추출된 첨부파일이 있으면 그대로 사용 (패키지 재오픈 없음)
+     */
+    public Map<String, List<ExtractedFile>> getInMemoryFilesFromReferencedPaths(String workspaceId) {
+        Map<String, List<ExtractedFile>> inMemoryFilesMap = new LinkedHashMap<>();
+        UploadWorkspace workspace = workspaceRegistry.find(workspaceId);
+        if (workspace == null) {
+            return inMemoryFilesMap;
+        }
+
+        workspace.getPackages().forEach((fileName, environment) ->
+                inMemoryFilesMap.put(fileName, readExtractedFiles(workspace, fileName, environment)));
+
+        return inMemoryFilesMap;
     }
 
     /**
-     * 메모리 캐싱된 AASX 바이트 배열로부터 OPCPackage를 열어 InMemoryFile 목록 반환
-     * (더 이상 uploadPath에 .aasx 파일을 읽지 않도록 변경됨)
+     * 단일 패키지의 첨부파일 목록 반환
+     * - 업로드 시 추출된 목록은 한 번 소비 후 제거하여 바이트 배열을 오래 붙잡지 않음
+     * - 추출 목록이 없으면(캐시 무효화 후 재처리 등) 캐시된 AASX 바이트 배열로 OPCPackage를 다시 연다
      */
-    public Map<String, List<InMemoryFile>> getInMemoryFilesFromReferencedPaths() {
-        Map<String, List<InMemoryFile>> inMemoryFilesMap = new HashMap<>();
-
-        for (int i = 0; i < uploadedFileNames.size(); i++) {
-            String fileName = uploadedFileNames.get(i);
-            Environment environment = uploadedEnvironments.get(i);
+    private List<ExtractedFile> readExtractedFiles(UploadWorkspace workspace, String fileName, Environment environment) {
+        List<ExtractedFile> extracted = workspace.getExtractedFiles().remove(fileName);
+        if (extracted != null) {
+            return extracted;
+        }
 
-            // 1) Environment에서 내부 참조된 파일 경로 리스트를 추출
-            List<String> paths = aasxFileDeserializer.parseReferencedFilePathsFromAASX(environment);
-            // 2) 외부 URL(절대 URI)은 건너뛴다
-            paths.removeIf(p -> p.startsWith("http://") || p.startsWith("https://"));
+        // 1) Environment에서 내부 참조된 파일 경로 리스트를 추출
+        List<String> paths = aasxFileDeserializer.parseReferencedFilePathsFromAASX(environment);
+        // 2) 외부 URL(절대 URI)은 건너뛴다
+        paths.removeIf(p -> p.startsWith("http://") || p.startsWith("https://"));
 
-            if (paths.isEmpty()) {
-                inMemoryFilesMap.put(fileName, Collections.emptyList());
-                continue;
-            }
+        if (paths.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-            // 3) 캐시된 바이트 배열로 OPCPackage를 연다 (디스크 파일 대신)
-            byte[] aasxBytes = aasxBytesMap.get(fileName);
-            if (aasxBytes == null) {
+        // 3) 캐시된 패키지로 OPCPackage를 연다 (힙 바이트 배열 또는 내보낸 임시 파일의 메모리 매핑)
+        try (InputStream isPkg = packageByteCache.open(workspace.getId(), fileName)) {
+            if (isPkg == null) {
                 log.warn("AASX 바이트 캐시 없음: {} → 빈 리스트 반환", fileName);
-                inMemoryFilesMap.put(fileName, Collections.emptyList());
-                continue;
+                return Collections.emptyList();
             }
-
-            try (InputStream isPkg = new ByteArrayInputStream(aasxBytes);
-                    OPCPackage pkg = OPCPackage.open(isPkg)) {
-
-                // 4) deserializer.readFiles(...) 호출하여 InMemoryFile 목록 생성
-                List<InMemoryFile> inMemoryFiles = aasxFileDeserializer.readFiles(pkg, paths);
-                inMemoryFilesMap.put(fileName, inMemoryFiles);
-
-            } catch (InvalidFormatException | IOException e) {
-                log.error("AASX 내부 파일 읽기 오류 ({}): {}", fileName, e.getMessage(), e);
-                inMemoryFilesMap.put(fileName, Collections.emptyList());
+            try (OPCPackage pkg = OPCPackage.open(isPkg)) {
+                // 4) deserializer.extractFiles(...) 호출하여 첨부파일 스트리밍 추출 + 해시 계산
+                return aasxFileDeserializer.extractFiles(pkg, paths, blobStore, attachmentIngestExecutor);
             }
+        } catch (InvalidFormatException | IOException e) {
+            log.error("AASX 내부 파일 읽기 오류 ({}): {}", fileName, e.getMessage(), e);
+            return Collections.emptyList();
         }
-
-        return inMemoryFilesMap;
     }
 
     /**
@@ -179,137 +289,67 @@ public class FileUploadService {
      * 
      * 1) LinkedHashMap 으로 결과 순서 유지
      * 2) 각 경로별 compositeKey 큐를 미리 구성하여, 동일 경로 여러 파일 처리 시 중복 키 분배
-     * 3) InMemoryFile마다
+     * 3) 추출된 첨부파일마다
      * - 해시 계산 및 DB 등록
      * - FilesMeta 조회/삽입 및 ref count 갱신
      * - 물리 파일 저장
      * - 다운로드 URL 생성
      * 4) 최종적으로 urlMap에 저장된 (원본경로→URL) 매핑을 Environment 내 File 요소에 적용
      */
-    public Map<String, Environment> computeSHA256HashesForInMemoryFiles() {
-        log.info("computeSHA256HashesForInMemoryFiles 시작");
+    public Map<String, Environment> computeSHA256HashesForInMemoryFiles(String workspaceId) {
+        return computeSHA256HashesForInMemoryFiles(workspaceId, IngestProgress.NONE);
+    }
+
+    /**
+     * ✅ 해시 등록 및 URL 매핑 (진행 상황 보고)
+     * - 패키지별로 DB/파일 저장(stored), Environment 캐시 등록(packaged) 완료 시 progress에 알림
+     */
+    public Map<String, Environment> computeSHA256HashesForInMemoryFiles(String workspaceId, IngestProgress progress) {
+        log.info("computeSHA256HashesForInMemoryFiles 시작 (workspace={})", workspaceId);
 
         // 순서 보존이 필요하므로 LinkedHashMap 사용
         Map<String, Environment> updatedEnvironmentMap = new LinkedHashMap<>();
-        // 1) AASX 내부 참조 파일 가져오기
-        Map<String, List<InMemoryFile>> inMemoryFilesMap = getInMemoryFilesFromReferencedPaths();
-
-        // uploadPath 폴더가 없으면 생성
-        File uploadDir = new File(uploadPath);
-        if (!uploadDir.exists()) {
-            uploadDir.mkdirs();
-            log.info("디렉토리 생성: {}", uploadPath);
-        } else {
-            log.info("디렉토리 존재: {}", uploadPath);
-        }
-
-        for (Map.Entry<String, List<InMemoryFile>> entry : inMemoryFilesMap.entrySet()) {
-            String fileNameKey = entry.getKey(); // AASX 파일 이름
-            List<InMemoryFile> inMemoryFiles = entry.getValue(); // 해당 AASX의 InMemoryFile 목록
-
-            int index = uploadedFileNames.indexOf(fileNameKey);
-            if (index < 0)
-                continue; // 환경 매핑이 없으면 건너뜀
-
-            Environment environment = uploadedEnvironments.get(index);
-            if (inMemoryFiles.isEmpty()) {
-                // 첨부파일 없으면 기존 Environment 그대로 반환
-                updatedEnvironmentMap.put(fileNameKey, environment);
-                continue;
-            }
-
-            // --- 복합키 큐 구성 ---
-            // 2) 모든 InMemoryFile의 정규화된 경로 집합 생성 → 중복 제거 및 순서 보존
-            Set<String> normalizedPaths = new LinkedHashSet<>();
-            for (InMemoryFile mem : inMemoryFiles) {
-                normalizedPaths.add(normalizePath(mem.getPath()));
-            }
-
-            // 정규화 경로별로 가능한 모든 compositeKey를 미리 수집하여 Deque로 저장
-            Map<String, Deque<String>> compositeQueues = new HashMap<>();
-            for (String norm : normalizedPaths) {
-                List<String> keys = collectCompositeKeys(environment, norm);
-                compositeQueues.put(norm, new ArrayDeque<>(keys));
-            }
-
-            // --- 파일별 처리 ---
-            Map<String, String> urlMap = new LinkedHashMap<>(); // (원본경로→생성 URL) 매핑
-            for (InMemoryFile inMemoryFile : inMemoryFiles) {
-                String originalPath = inMemoryFile.getPath();
-                String norm = normalizePath(originalPath);
-                Deque<String> queue = compositeQueues.get(norm);
-
-                // 큐에서 사용 가능한 compositeKey를 꺼내고, 없으면 fallback 메서드 호출
-                String compositeKey = (queue != null && !queue.isEmpty())
-                        ? queue.pollFirst()
-                        : deriveCompositeKeyFromEnvironmentFull(environment, originalPath);
 
-                String[] parts = compositeKey.split("::");
-                String aasId = parts[0];
-                String submodelId = parts[1];
-                String idShort = parts[2];
+        UploadWorkspace workspace = workspaceRegistry.find(workspaceId);
+        if (workspace == null) {
+            return updatedEnvironmentMap;
+        }
 
-                try {
-                    // 1) SHA-256 해시 계산 및 DB files 테이블 등록
-                    String hash = SHA256HashApache.computeSHA256Hash(inMemoryFile);
-                    int fileSize = inMemoryFile.getFileContent().length;
-                    uploadMapper.insertFile(hash, fileSize);
-
-                    // 2) FilesMeta 조회, 없으면 새로 삽입 및 ref_count 갱신
-                    FilesMeta meta = uploadMapper.selectFileMetaByPath(aasId, submodelId, idShort);
-                    if (meta == null) {
-                        FilesMeta newMeta = new FilesMeta();
-                        newMeta.setAasId(aasId);
-                        newMeta.setSubmodelId(submodelId);
-                        newMeta.setIdShort(idShort);
-
-                        String baseName = new File(originalPath).getName();
-                        int dotIndex = baseName.lastIndexOf('.');
-                        newMeta.setName(dotIndex > 0 ? baseName.substring(0, dotIndex) : baseName);
-                        newMeta.setExtension(dotIndex > 0 ? baseName.substring(dotIndex) : "");
-
-                        // Content-Type: default thumbnail 여부까지 포함한 단일 메서드 호출
-                        newMeta.setContentType(retrieveContentType(environment, originalPath));
-
-                        // ★ 파일 메타에 'path' 컬럼으로 AASX 내부 상대경로(value) 저장
-                        newMeta.setPath(originalPath);
-                        log.info("FilesMeta.path 으로 저장될 상대경로: {}", originalPath);
-
-                        newMeta.setHash(hash);
-                        uploadMapper.insertFileMeta(newMeta);
-                        uploadMapper.updateFileRefCount(hash);
-
-                        meta = uploadMapper.selectFileMetaByPath(aasId, submodelId, idShort);
-                    }
 
-                    // 3) 물리 파일로 저장 (중복 저장 방지)
-                    String ext = meta.getExtension();
-                    File destFile = new File(uploadPath + File.separator + hash + ext);
-                    try {
-                        if (!destFile.exists()) {
-                            try (FileOutputStream fos = new FileOutputStream(destFile)) {
-                                fos.write(inMemoryFile.getFileContent());
-                            }
-                            log.info("첨부파일 디스크 저장됨: {}", destFile.getAbsolutePath());
-                        } else {
-                            log.info("이미 존재하는 파일: {}", destFile.getAbsolutePath());
+        // 1) 패키지별 처리 작업을 병렬로 제출 (첨부파일 조회 → DB 등록 → URL 치환)
+        Map<String, CompletableFuture<Environment>> futures = new LinkedHashMap<>();
+        workspace.getPackages().forEach((fileNameKey, environment) ->
+                futures.put(fileNameKey, CompletableFuture.supplyAsync(() -> {
+                    // 지문이 일치한 패키지(또는 이미 처리한 패키지)는 DB 등록/URL 치환 생략
+                    if (workspace.getProcessedPackages().add(fileNameKey)) {
+                        try {
+                            processPackage(workspace, fileNameKey, environment);
+                        } catch (RuntimeException e) {
+                            workspace.getProcessedPackages().remove(fileNameKey);
+                            throw e;
+                        }
+                        String fingerprint = workspace.getPackageFingerprints().get(fileNameKey);
+                        if (fingerprint != null) {
+                            packageFingerprintCache.put(fingerprint, environment);
                         }
-                    } catch (Exception e) {
-                        log.error("첨부파일 저장 실패 (경로: {}): {}", destFile.getAbsolutePath(), e.getMessage(), e);
                     }
+                    progress.onStage(IngestProgress.STAGE_STORED, fileNameKey);
+                    return environment;
+                }, packageIngestExecutor)));
 
-                    // 4) 다운로드 URL 생성 및 매핑
-                    String url = baseDownloadUrl + "/api/transformer/download/" + hash + meta.getExtension();
-                    urlMap.put(originalPath, url);
+        // 2) 업로드 순서대로 결과 수집
+        for (Map.Entry<String, CompletableFuture<Environment>> entry : futures.entrySet()) {
+            String fileNameKey = entry.getKey();
+            try {
+                Environment environment = entry.getValue().join();
+                updatedEnvironmentMap.put(fileNameKey, environment);
 
-                } catch (Exception e) {
-                    log.error("처리 실패 ({}): {}", originalPath, e.getMessage(), e);
-                }
+                // 해시 URL이 바인딩된 Environment를 캐시 → 이후 JSON 다운로드는 재처리 없이 직렬화만 수행
+                environmentCache.put(workspace.getId(), fileNameKey, environment);
+                progress.onStage(IngestProgress.STAGE_PACKAGED, fileNameKey);
+            } catch (Exception e) {
+                log.error("패키지 처리 실패 ({}): {}", fileNameKey, e.getMessage(), e);
             }
-
-            // --- 환경 내 File 요소 경로 업데이트 ---
-            urlMap.forEach((orig, url) -> updateEnvironmentFilePathsToURL(environment, orig, url));
-            updatedEnvironmentMap.put(fileNameKey, environment);
         }
 
         log.info("computeSHA256HashesForInMemoryFiles 종료, 업데이트된 파일 개수: {}", updatedEnvironmentMap.size());
@@ -317,434 +357,278 @@ public class FileUploadService {
     }
 
     /**
-     * ✅ ★ helper 2) 주어진 정규화된 경로(normalizedPath)에 매칭되는 모든 compositeKey를 수집하여 반환
+     * ✅ 해시 URL이 바인딩된 Environment 조회 (JSON 다운로드용)
+     * - 캐시에 있으면 그대로 반환
+     * - 캐시가 무효화된 경우 해당 패키지 하나만 다시 처리하여 캐시에 채움
+     *   (작업 공간의 Environment는 이미 해시 URL로 치환되어 있으므로, 캐시된 AASX 바이트에서 원본 경로의
+     *    Environment를 다시 파싱해 첨부파일 추출/등록/URL 치환을 새로 수행하고 작업 공간의 Environment도 교체)
      *
-     * @param environment    AASX에서 변환된 Environment 객체
-     * @param normalizedPath 파일 경로를 정규화한 문자열 (소문자, 슬래시 통일)
-     * @return List of "aasId::submodelId::idShort" 형태의 Keys
+     * @param workspaceId 작업 공간 ID (X-Workspace-Id)
+     * @param fileName    업로드된 AASX 파일 이름
+     * @return 해시 URL이 반영된 Environment, 업로드 목록에 없으면 null
      */
-    private List<String> collectCompositeKeys(Environment environment, String normalizedPath) {
-        List<String> composites = new ArrayList<>();
-
-        // 0) AAS 목록 검사
-        if (environment.getAssetAdministrationShells() == null
-                || environment.getAssetAdministrationShells().isEmpty()) {
-            throw new RuntimeException("Environment에 등록된 AAS가 없습니다.");
+    public EnvironmentCache.CachedEnvironment getUpdatedEnvironment(String workspaceId, String fileName) {
+        UploadWorkspace workspace = workspaceRegistry.find(workspaceId);
+        if (workspace == null) {
+            return null;
+        }
+        EnvironmentCache.CachedEnvironment cached = environmentCache.get(workspace.getId(), fileName);
+        if (cached != null) {
+            return cached;
         }
 
-        // 1) Asset default thumbnail 처리 (Reflection 사용)
-        for (org.eclipse.digitaltwin.aas4j.v3.model.AssetAdministrationShell shell : environment
-                .getAssetAdministrationShells()) {
-            Object assetInfo = shell.getAssetInformation();
-            if (assetInfo == null)
-                continue;
-
-            try {
-                // defaultThumbnail 얻기
-                Method mThumb = assetInfo.getClass().getMethod("getDefaultThumbnail");
-                Object thumb = mThumb.invoke(assetInfo);
-                if (thumb == null)
-                    continue;
-
-                String thumbVal = null;
-
-                // → getValue(), getValueUrl(), getPath() 순으로 시도하되
-                // 캐스팅 오류도 같이 잡아서 다음으로 넘어가도록
-                try {
-                    Method mVal = thumb.getClass().getMethod("getValue");
-                    Object raw = mVal.invoke(thumb);
-                    if (raw instanceof String) {
-                        thumbVal = (String) raw;
-                    } else {
-                        throw new ClassCastException("getValue() 반환 타입 불일치: " + raw.getClass());
-                    }
-                } catch (NoSuchMethodException | ClassCastException e1) {
-                    try {
-                        Method mVal2 = thumb.getClass().getMethod("getValueUrl");
-                        Object raw2 = mVal2.invoke(thumb);
-                        if (raw2 instanceof String) {
-                            thumbVal = (String) raw2;
-                        } else {
-                            throw new ClassCastException("getValueUrl() 반환 타입 불일치: " + raw2.getClass());
-                        }
-                    } catch (NoSuchMethodException | ClassCastException e2) {
-                        try {
-                            Method mVal3 = thumb.getClass().getMethod("getPath");
-                            Object raw3 = mVal3.invoke(thumb);
-                            if (raw3 instanceof String) {
-                                thumbVal = (String) raw3;
-                            } else {
-                                throw new ClassCastException("getPath() 반환 타입 불일치: " + raw3.getClass());
-                            }
-                        } catch (NoSuchMethodException | ClassCastException ignored) {
-                            // 셋 다 실패하면 thumbVal은 null
-                        }
-                    }
-                }
-
-                if (thumbVal == null || !normalizePath(thumbVal).equals(normalizedPath)) {
-                    continue;
-                }
-
-                // 일치할 때만 compositeKey 생성
-                Method mGlobal = assetInfo.getClass().getMethod("getGlobalAssetId");
-                String globalAssetId = (String) mGlobal.invoke(assetInfo);
-                String idShort = new File(thumbVal).getName();
-                String aasId = shell.getId();
-                composites.add(aasId + "::" + globalAssetId + "::" + idShort);
-                return composites;
-
-            } catch (Exception e) {
-                log.warn("default thumbnail reflection 처리 중 예외: {}", e.toString());
+        ReentrantLock uploadLock = workspace.getUploadLock();
+        uploadLock.lock();
+        try {
+            // 잠금을 기다리는 사이 다른 요청이 재처리했을 수 있음
+            cached = environmentCache.get(workspace.getId(), fileName);
+            if (cached != null) {
+                return cached;
+            }
+            Environment environment = workspace.getPackages().get(fileName);
+            if (environment == null) {
+                return null;
             }
-        }
 
-        // 2) Asset default thumbnail 이 아닐 때, 기존 AAS ID 탐색 로직
-        String aasId = null;
-        for (AssetAdministrationShell shell : environment.getAssetAdministrationShells()) {
-            aasId = shell.getId();
-            log.info("aasId : {}", aasId);
-            break;
-        }
-        if (aasId == null) {
-            aasId = environment.getAssetAdministrationShells().get(0).getId();
-            log.info("기본 AAS ID 사용: {}", aasId);
-        }
+            Environment original = reloadEnvironment(workspace, fileName);
+            if (original == null) {
+                log.warn("AASX 바이트 캐시 없음: {}/{} → 재처리 없이 기존 Environment 사용", workspace.getId(), fileName);
+                return environmentCache.put(workspace.getId(), fileName, environment);
+            }
 
-        // 3) Submodel 순회하여 File 요소 찾아 compositeKey 생성
-        for (Submodel submodel : environment.getSubmodels()) {
-            List<String> ids = new ArrayList<>();
-            findFileElementIdsRecursive(
-                    submodel.getSubmodelElements(),
-                    submodel.getId(),
-                    normalizedPath,
-                    ids);
-            for (String id : ids) {
-                composites.add(aasId + "::" + submodel.getId() + "::" + id);
+            log.info("Environment 캐시 miss → 패키지 재처리: {}/{}", workspace.getId(), fileName);
+            processPackage(workspace, fileName, original);
+            workspace.replacePackage(fileName, original);
+            String fingerprint = workspace.getPackageFingerprints().get(fileName);
+            if (fingerprint != null) {
+                packageFingerprintCache.put(fingerprint, original);
             }
+            return environmentCache.put(workspace.getId(), fileName, original);
+        } finally {
+            uploadLock.unlock();
         }
+    }
 
-        return composites;
+    // 캐시된 AASX 바이트로 Environment를 다시 파싱 (File 요소가 패키지 내부 경로인 상태), 바이트가 없으면 null
+    private Environment reloadEnvironment(UploadWorkspace workspace, String fileName) {
+        try (InputStream isPkg = packageByteCache.open(workspace.getId(), fileName)) {
+            return isPkg != null ? aasxFileDeserializer.deserializeAASXFile(isPkg) : null;
+        } catch (IOException | RuntimeException e) {
+            log.error("AASX 재파싱 실패 ({}): {}", fileName, e.getMessage(), e);
+            return null;
+        }
     }
 
     /**
-     * ✅ 재귀적으로 SubmodelElement 목록을 순회하며, File 요소의 경로가 normalizedPath와 일치하면
-     * idShort를
-     * outIds에 추가
+     * 단일 패키지의 첨부파일 DB 등록 후 Environment 내 File 요소 경로를 해시 URL로 치환
+     * (해시 계산과 물리 파일 저장은 추출 시 이미 완료됨)
+     *
+     * 1) 복합키/메타 후보 구성 (Environment 탐색, 패키지 간 병렬 수행)
+     * 2) DB 일괄 등록 (한 트랜잭션, SQLite 단일 writer 특성상 metadataWriteLock으로 직렬화)
+     * 3) Environment 내 File 요소 URL 치환
      *
-     * @param elements         SubmodelElement 리스트 (File, Collection, 기타 컨테이너 포함)
-     * @param parentSubmodelId 현재 탐색 중인 Submodel의 ID
-     * @param normalizedPath   비교 대상 경로 (정규화됨)
-     * @param outIds           일치하는 File 요소의 idShort를 수집할 리스트
+     * 같은 패키지의 이전 리비전에서 복합키와 해시가 같은 첨부파일은 DB 등록 없이 이전 URL을 재사용하고,
+     * 처리 결과는 다음 업로드와 비교할 리비전으로 기록
      */
-    @SuppressWarnings("unchecked")
-    private void findFileElementIdsRecursive(List<SubmodelElement> elements,
-            String parentSubmodelId,
-            String normalizedPath,
-            List<String> outIds) {
-        if (elements == null)
-            return;
-        for (SubmodelElement element : elements) {
-            // 1) File 요소인 경우 value 정규화 비교
-            if (element instanceof org.eclipse.digitaltwin.aas4j.v3.model.File) {
-                org.eclipse.digitaltwin.aas4j.v3.model.File fileEl = (org.eclipse.digitaltwin.aas4j.v3.model.File) element;
-                String val = fileEl.getValue();
-                if (val != null && normalizePath(val).equals(normalizedPath)) {
-                    outIds.add(fileEl.getIdShort()); // 매칭된 idShort 추가
-                }
+    private void processPackage(UploadWorkspace workspace, String fileName, Environment environment) {
+        List<ExtractedFile> extractedFiles = readExtractedFiles(workspace, fileName, environment);
+        Map<String, PartChecksum> checksums = workspace.getPartChecksums().getOrDefault(fileName,
+                Collections.emptyMap());
+        processPackage(environment, extractedFiles, checksums);
+    }
 
-                // 2) SubmodelElementCollection인 경우 내부 요소 재귀 탐색
-            } else if (element instanceof SubmodelElementCollection) {
-                findFileElementIdsRecursive(((SubmodelElementCollection) element).getValue(),
-                        parentSubmodelId, normalizedPath, outIds);
-                // 3) 기타 컨테이너 타입: reflection으로 getValue() 호출
-            } else {
-                try {
-                    Method m = element.getClass().getMethod("getValue");
-                    if (List.class.isAssignableFrom(m.getReturnType())) {
-                        List<SubmodelElement> children = (List<SubmodelElement>) m.invoke(element);
-                        findFileElementIdsRecursive(children, parentSubmodelId, normalizedPath, outIds);
-                    }
-                } catch (Exception e) {
-                    log.warn("자식 탐색 실패: {}", e.getMessage());
-                }
-            }
+    private void processPackage(Environment environment, List<ExtractedFile> extractedFiles,
+            Map<String, PartChecksum> checksums) {
+        if (extractedFiles.isEmpty()) {
+            // 첨부파일 없으면 기존 Environment 그대로 사용
+            return;
         }
-    }
 
-    // ✅ ★ helper 3) 복합 키 도출 메서드
-    // - normalizePath(String path)
-    // - findFileElementRecursive(List<SubmodelElement> elements, String
-    // parentSubmodelId, String normalizedPath, String[] result)
-    public String deriveCompositeKeyFromEnvironmentFull(Environment environment, String originalPath) {
-        // 환경 내 AAS들이 여러 개 있을 수 있으므로 idShort를 기준으로 해당하는 AAS의 id를 찾아야 함
-        String aasId = null;
-
-        if (environment.getAssetAdministrationShells() == null
-                || environment.getAssetAdministrationShells().isEmpty()) {
-            throw new RuntimeException("Environment에 등록된 AAS가 없습니다.");
+        // --- Environment 인덱스: 한 번만 순회 ---
+        EnvironmentIndex index = EnvironmentIndex.of(environment, thumbnailResolver);
+
+        // --- 복합키 큐 구성 ---
+        // 모든 첨부파일의 정규화된 경로 집합 생성 → 중복 제거 및 순서 보존
+        Set<String> normalizedPaths = new LinkedHashSet<>();
+        for (ExtractedFile mem : extractedFiles) {
+            normalizedPaths.add(normalizePath(mem.getPath()));
         }
 
-        // AAS의 idShort에 해당하는 AAS를 찾기 위한 탐색
-        for (org.eclipse.digitaltwin.aas4j.v3.model.AssetAdministrationShell aas : environment
-                .getAssetAdministrationShells()) {
-            // AAS의 idShort를 비교하여 해당하는 AAS를 찾음
-            if (originalPath != null && !originalPath.trim().isEmpty()) {
-                // 실제로 AAS에서 가져온 id를 사용하는 방식
-                aasId = aas.getId();
-                log.info("aasId : {} ", aasId);
-                break; // 일치하는 AAS를 찾으면 루프 종료
-            }
+        // 정규화 경로별로 가능한 모든 compositeKey를 미리 수집하여 Deque로 저장
+        Map<String, Deque<String>> compositeQueues = new HashMap<>();
+        for (String norm : normalizedPaths) {
+            List<String> keys = collectCompositeKeys(index, norm);
+            compositeQueues.put(norm, new ArrayDeque<>(keys));
         }
 
-        // AAS ID가 없는 경우 기본 처리
-        if (aasId == null) {
-            log.info("해당 AAS가 없으므로 기본 AAS의 ID를 사용합니다.");
-            aasId = environment.getAssetAdministrationShells().get(0).getId();
+        // --- 1) 파일별 메타 후보 구성 ---
+        List<FilesMeta> candidates = new ArrayList<>();
+        for (ExtractedFile extractedFile : extractedFiles) {
+            String originalPath = extractedFile.getPath();
+            String norm = normalizePath(originalPath);
+            Deque<String> queue = compositeQueues.get(norm);
+
+            // 큐에서 사용 가능한 compositeKey를 꺼내고, 없으면 fallback 메서드 호출
+            String compositeKey = (queue != null && !queue.isEmpty())
+                    ? queue.pollFirst()
+                    : deriveCompositeKey(index, originalPath);
+
+            String[] parts = compositeKey.split("::");
+            FilesMeta candidate = new FilesMeta();
+            candidate.setAasId(parts[0]);
+            candidate.setSubmodelId(parts[1]);
+            candidate.setIdShort(parts[2]);
+
+            String baseName = new File(originalPath).getName();
+            int dotIndex = baseName.lastIndexOf('.');
+            candidate.setName(dotIndex > 0 ? baseName.substring(0, dotIndex) : baseName);
+            candidate.setExtension(dotIndex > 0 ? baseName.substring(dotIndex) : "");
+
+            // Content-Type: default thumbnail 여부까지 포함한 단일 메서드 호출
+            candidate.setContentType(index.contentTypeFor(originalPath));
+
+            // ★ 파일 메타에 'path' 컬럼으로 AASX 내부 상대경로(value) 저장
+            candidate.setPath(originalPath);
+            candidate.setHash(extractedFile.getHash());
+            candidates.add(candidate);
         }
 
-        String normalizedOriginalPath = normalizePath(originalPath);
-        // Submodel 및 File 정보(파일 요소의 idShort 등)를 위한 임시 배열
-        String[] result = new String[] { "", "" };
+        // --- 2) DB 등록: 이전 리비전과 복합키 + 해시가 다른 후보만 한 트랜잭션으로 일괄 등록 (직렬화) ---
+        Map<String, String> previousUrls = packageRevisionCache.registeredUrls(environment);
+        List<FilesMeta> changed = new ArrayList<>();
+        Map<String, Long> sizeByHash = new LinkedHashMap<>();
+        for (int i = 0; i < extractedFiles.size(); i++) {
+            FilesMeta candidate = candidates.get(i);
+            String registrationKey = PackageRevisionCache.registrationKey(
+                    FileMetaRegistrationService.compositeKey(candidate), candidate.getHash());
+            if (previousUrls.containsKey(registrationKey)) {
+                continue;
+            }
+            changed.add(candidate);
+            sizeByHash.putIfAbsent(extractedFiles.get(i).getHash(), extractedFiles.get(i).getSize());
+        }
 
-        log.info("deriveCompositeKeyFromEnvironmentFull 시작: originalPath='{}', normalized='{}'",
-                originalPath, normalizedOriginalPath);
+        Map<String, FilesMeta> registered = Collections.emptyMap();
+        if (!changed.isEmpty()) {
+            long registerStart = System.nanoTime();
+            metadataWriteLock.lock();
+            try {
+                registered = fileMetaRegistrationService.registerAttachments(changed, sizeByHash);
+            } finally {
+                metadataWriteLock.unlock();
+            }
+            ingestMetrics.record(IngestMetrics.STAGE_REGISTER, System.nanoTime() - registerStart);
+        }
 
-        // 환경 내의 모든 Submodel을 순회하면서, 각 Submodel의 SubmodelElement 목록을 대상으로 재귀 탐색을 실시
-        if (environment.getSubmodels() != null) {
-            for (Submodel submodel : environment.getSubmodels()) {
-                if (submodel.getSubmodelElements() == null)
+        Map<String, String> urlMap = new LinkedHashMap<>(); // (원본경로→생성 URL) 매핑
+        Map<String, String> urlByRegistration = new HashMap<>(); // (복합키#해시→URL) 다음 리비전 비교용
+        for (int i = 0; i < extractedFiles.size(); i++) {
+            ExtractedFile extractedFile = extractedFiles.get(i);
+            String compositeKey = FileMetaRegistrationService.compositeKey(candidates.get(i));
+            String registrationKey = PackageRevisionCache.registrationKey(compositeKey, extractedFile.getHash());
+            String url = previousUrls.get(registrationKey);
+            if (url == null) {
+                FilesMeta meta = registered.get(compositeKey);
+                if (meta == null) {
+                    log.error("처리 실패 ({}): 등록된 메타 없음", extractedFile.getPath());
                     continue;
-                log.info("Submodel '{}' 내 검사 시작.", submodel.getId());
-                // 재귀 탐색 메서드(findFileElementRecursive)를 호출하여 normalizedOriginalPath와 일치하는 File
-                // 요소를 찾음
-                if (findFileElementRecursive(submodel.getSubmodelElements(), submodel.getId(), normalizedOriginalPath,
-                        result)) {
-                    // result 배열에 [부모 Submodel ID, File의 idShort]가 저장
-                    log.info("매칭 결과: parentSubmodelId='{}', idShort='{}'", result[0], result[1]);
-                    break;
                 }
+                url = resolveDownloadUrl(meta, extractedFile);
             }
+            urlMap.put(extractedFile.getPath(), url);
+            urlByRegistration.put(registrationKey, url);
         }
-
-        // 탐색 결과가 없어서 result 배열의 값이 비어있다면, fallback 처리
-        if (result[0].isEmpty() || result[1].isEmpty()) {
-            log.warn("deriveCompositeKeyFromEnvironmentFull: 매칭되는 File 요소를 찾지 못함 for normalized originalPath: '{}'",
-                    normalizedOriginalPath);
-            // fallback 처리: idShort는 파일명으로 대체, submodelId는 "fallbackSubmodel"으로 대체
-            result[0] = "fallbackSubmodel";
-            result[1] = new File(originalPath).getName();
+        packageRevisionCache.record(environment, checksums, extractedFiles, urlByRegistration);
+        if (changed.size() < candidates.size()) {
+            log.info("이전 리비전과 같은 첨부파일 등록 생략: {}/{}건", candidates.size() - changed.size(), candidates.size());
         }
 
-        // 최종적으로 "aasId::submodelId::idShort" 형식의 문자열을 생성하여 반환
-        String compositeKey = aasId + "::" + result[0] + "::" + result[1];
-        log.info("도출된 Composite Key: {}", compositeKey);
-        return compositeKey;
+        // --- 3) 환경 내 File 요소 경로 업데이트 ---
+        long rewriteStart = System.nanoTime();
+        urlMap.forEach((orig, url) -> updateEnvironmentFilePathsToURL(index, orig, url));
+        ingestMetrics.record(IngestMetrics.STAGE_REWRITE, System.nanoTime() - rewriteStart);
     }
 
     /**
-     * ✅ ★ helper 4) 경로를 정규화
-     * - 백슬래시를 슬래시로 변경
-     * - 앞뒤 공백 제거
-     * - 소문자 변환하여 비교 오차 제거
+     * 등록된 메타 기준 다운로드 URL 반환
+     * - 물리 파일은 추출 시 {hash}{ext}로 이미 저장됨
+     * - 기존 메타의 확장자가 다르면 다운로드 URL 기준 파일명으로 한 번 복사
      */
-    public String normalizePath(String path) {
-        if (path == null)
-            return "";
-        // 경로를 소문자 변환하기 전에, 슬래시 통일 및 앞뒤 공백 제거
-        String replaced = path.replace("\\", "/").trim();
-        return replaced.toLowerCase();
+    private String resolveDownloadUrl(FilesMeta meta, ExtractedFile extractedFile) {
+        String hash = extractedFile.getHash();
+        String ext = meta.getExtension();
+        if (!ext.equals(extractedFile.getExtension())) {
+            try {
+                blobStore.copy(hash, extractedFile.getExtension(), ext);
+            } catch (Exception e) {
+                log.error("첨부파일 저장 실패 ({}{}): {}", hash, ext, e.getMessage(), e);
+            }
+        }
+        return baseDownloadUrl + "/api/transformer/download/" + hash + ext;
     }
 
     /**
-     * ✅ 재귀적으로 SubmodelElement 리스트(혹은 SubmodelElementCollection 내부)를 순회하면서,
-     * normalizedPath와 일치하는 File 요소를 찾으면 result 배열에
-     * [parentSubmodelId, file.idShort]를 저장하고 true를 반환
+     * ✅ ★ helper 2) 주어진 정규화된 경로(normalizedPath)에 매칭되는 모든 compositeKey를 반환
+     * - default thumbnail 경로와 일치하면 썸네일 복합키 하나만 반환
+     * - 그 외엔 경로가 일치하는 File 요소들의 복합키 (순회 순서)
      *
-     * @param elements         현재 탐색할 SubmodelElement 목록
-     * @param parentSubmodelId 탐색 중인 File 요소가 속한 상위 Submodel의 id
-     * @param normalizedPath   비교할 정규화된 경로 문자열
-     * @param result           결과를 저장할 배열, index 0: submodelId, index 1: file
-     *                         idShort
-     * @return 일치하는 File 요소를 찾았으면 true, 아니면 false
+     * @param index          Environment 인덱스
+     * @param normalizedPath 파일 경로를 정규화한 문자열 (소문자, 슬래시 통일)
+     * @return List of "aasId::submodelId::idShort" 형태의 Keys
      */
-    public boolean findFileElementRecursive(List<SubmodelElement> elements, String parentSubmodelId,
-            String normalizedPath, String[] result) {
-        if (elements == null)
-            return false;
-
-        // elements 리스트에 포함된 모든 요소를 순회
-        for (SubmodelElement element : elements) {
-
-            // 1️⃣ 요소가 File 타입인 경우 처리
-            // 해당 요소가 File 요소인지 확인하여 fileElement로 캐스팅한 후 그 속성 중 하나인 value를 가져옴
-            if (element instanceof org.eclipse.digitaltwin.aas4j.v3.model.File) {
-                org.eclipse.digitaltwin.aas4j.v3.model.File fileElement = (org.eclipse.digitaltwin.aas4j.v3.model.File) element;
-                String fileValue = fileElement.getValue();
-                // 먼저 null 체크 및 trim
-                // 해당 File 요소는 유효하지 않으므로 건너뜀
-                if (fileValue == null || fileValue.trim().isEmpty()) {
-                    log.info("빈 file value 건너뜀, idShort: {}", fileElement.getIdShort());
-                    continue;
-                }
-
-                // 경로 비교 준비: Environment 내의 여러 Submodel에서 File 요소를 재귀적으로 탐색하여,
-                // 정규화한 경로와 일치하는 File을 찾음
-                String normalizedFileValue = normalizePath(fileValue);
-                log.info("재귀 검사 - File 요소: idShort='{}', 원본='{}', normalized='{}', 비교대상='{}'",
-                        fileElement.getIdShort(), fileValue, normalizedFileValue, normalizedPath);
-
-                // 경로 비교 및 결과 저장
-                // 정규화된 파일 value와 normalizedPath의 일치를 확인
-                // 원본 value의 trim 처리 후 normalizedPath와 비교
-                if (normalizedFileValue.equals(normalizedPath) || fileValue.trim().equals(normalizedPath)) {
-                    // result 배열에 현재 전달된 parentSubmodelId를 저장(즉, File 요소가 속한 Submodel의 ID)
-                    // 해당 File 요소의 idShort를 저장
-                    result[0] = parentSubmodelId;
-                    result[1] = fileElement.getIdShort();
-                    log.info("재귀 탐색: 매칭된 File 요소 발견 - idShort='{}', parentSubmodelId='{}'", result[1], result[0]);
-                    return true;
-                }
-            }
+    private List<String> collectCompositeKeys(EnvironmentIndex index, String normalizedPath) {
+        List<String> composites = new ArrayList<>();
 
-            // 2️⃣ 요소가 SubmodelElementCollection인 경우 처리
-            // 여러 자식 요소(일반 File 요소나 또 다른 Collection 등)를 포함할 수 있는 컨테이너
-            else if (element instanceof SubmodelElementCollection) {
-                // collection.getValue() : SubmodelElementCollection의 자식 요소 탐색
-                SubmodelElementCollection collection = (SubmodelElementCollection) element;
-                List<?> rawElements = collection.getValue();
-                List<SubmodelElement> innerElements = rawElements.stream()
-                        .filter(e -> e instanceof SubmodelElement)
-                        .map(e -> (SubmodelElement) e)
-                        .collect(Collectors.toList());
-                // 만약 null이면 다시 한 번 체크 (getValue()가 두 번 호출되는 경우 대비)
-                if (innerElements == null && collection.getValue() != null) {
-                    innerElements = collection.getValue();
-                }
-                // 내부 요소들이 존재하면 재귀적으로 findFileElementRecursive를 호출하여 해당 내부 요소들을 검사
-                if (innerElements != null) {
-                    log.info("재귀 검사 - SubmodelElementCollection 발견, 상위 Submodel: '{}'", parentSubmodelId);
-                    if (findFileElementRecursive(innerElements, parentSubmodelId, normalizedPath, result)) {
-                        return true;
-                    }
-                }
-            }
+        ThumbnailResolver.Thumbnail thumb = index.thumbnailFor(normalizedPath);
+        if (thumb != null) {
+            composites.add(thumb.compositeKey());
+            return composites;
+        }
 
-            // 3️⃣ 그 밖의 다른 컨테이너 타입 처리
-            // 다른 컨테이너 타입: reflection으로 getValue() 메서드가 있는지 확인
-            // - Reflection
-            // : Java에서 클래스의 메타데이터(예: 클래스 이름, 메서드, 필드 등)를 런타임에 동적으로 조회하고 조작할 수 있게 해주는 기능
-            // Reflection을 사용하여 해당 정보를 런타임에 동적으로 가져오거나, 메서드를 호출하거나, 필드 값을 읽고 수정 가능
-            // - getValue() 메서드
-            // : 보통 해당 객체가 보유한 데이터나 자식 요소 리스트(예, 컬렉션)를 반환하기 위해 사용
-            // 예를 들어, SubmodelElementCollection 객체에는 여러 하위 SubmodelElement들이 포함되어 있을 수 있음
-            // 이 경우 getValue() 메서드를 호출하면 그 하위 요소들의 리스트를 반환
-            else {
-                try {
-                    // 직접 getValue() 메서드가 정의되어 있는지 reflection을 사용하여 확인
-                    java.lang.reflect.Method getValueMethod = element.getClass().getMethod("getValue");
-                    if (getValueMethod != null
-                            && List.class.isAssignableFrom(getValueMethod.getReturnType())) {
-                        @SuppressWarnings("unchecked")
-                        List<SubmodelElement> childElements = (List<SubmodelElement>) getValueMethod.invoke(element);
-                        // getValue() 메서드가 존재하고, 반환 타입이 List이면, 해당 메서드를 호출하여 자식 요소를 가져
-                        if (childElements != null && !childElements.isEmpty()) {
-                            log.info("재귀 검사 - {} 타입의 컨테이너 발견, 상위 Submodel: '{}'", element.getClass().getSimpleName(),
-                                    parentSubmodelId);
-                            // 자식 요소 리스트가 존재하면, 재귀적 으로 동일한 탐색 메서드를 호출
-                            if (findFileElementRecursive(childElements, parentSubmodelId, normalizedPath, result)) {
-                                return true;
-                            }
-                        }
-                    }
-                } catch (NoSuchMethodException nsme) {
-                    // getValue가 없으면 다른 컨테이너가 아니므로 무시
-                } catch (Exception e) {
-                    log.warn("자식 요소 탐색 중 예외 발생: {}", e.getMessage());
-                }
-            }
+        for (EnvironmentIndex.FileEntry entry : index.fileEntriesFor(normalizedPath)) {
+            composites.add(entry.compositeKey());
         }
-        // for 문 전체를 순회한 후에도 조건을 만족하는 File 요소를 찾지 못하면 false를 반환
-        return false;
+        return composites;
     }
 
     /**
-     * ✅ helper 5) Content-Type 조회
-     * 주어진 파일 경로(originalPath)에 대한 Content-Type을 반환합니다.
-     *
-     * 1) AssetInformation.defaultThumbnail.path 와 일치하면 reflection 으로 contentType
-     * 꺼내기
-     * 2) 그 외엔 AAS 내 File 요소를 Visitor 로 순회하며 contentType 꺼내기
+     * ✅ ★ helper 3) 복합 키 도출 (복합키 큐가 소진된 경우의 fallback)
+     * - 경로가 일치하는 첫 번째 File 요소의 복합키
+     * - 일치하는 요소가 없으면 "기본 AAS ID::fallbackSubmodel::파일명"
      */
-    public String retrieveContentType(Environment env, String originalPath) {
-        // 1) defaultThumbnail인지 먼저 검사
-        try {
-            AssetAdministrationShell shell = env.getAssetAdministrationShells().get(0);
-            AssetInformation assetInfo = shell.getAssetInformation();
-            if (assetInfo != null) {
-                Resource thumb = assetInfo.getDefaultThumbnail();
-                if (thumb != null) {
-                    String thumbPath = thumb.getPath(); // Resource 인터페이스로 경로 획득
-                    if (normalizePath(thumbPath).equals(normalizePath(originalPath))) {
-                        String ct = thumb.getContentType(); // Resource 인터페이스로 contentType 획득
-                        if (ct != null && !ct.isBlank()) {
-                            log.info("default-thumbnail contentType: {}", ct);
-                            return ct;
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.warn("defaultThumbnail 처리 중 예외: {}", e.toString());
+    public String deriveCompositeKey(EnvironmentIndex index, String originalPath) {
+        List<EnvironmentIndex.FileEntry> entries = index.fileEntriesFor(normalizePath(originalPath));
+        if (!entries.isEmpty()) {
+            String compositeKey = entries.get(0).compositeKey();
+            log.info("도출된 Composite Key: {}", compositeKey);
+            return compositeKey;
         }
 
-        // 2) defaultThumbnail 아닌 경우 AAS 내 File 요소 순회
-        final String[] result = new String[] { "application/octet-stream" };
-        new AssetAdministrationShellElementWalkerVisitor() {
-            @Override
-            public void visit(org.eclipse.digitaltwin.aas4j.v3.model.File file) {
-                if (file == null)
-                    return;
-                String val = file.getValue();
-                if (val != null
-                        && normalizePath(val).equals(normalizePath(originalPath))
-                        && file.getContentType() != null
-                        && !file.getContentType().isBlank()) {
-                    result[0] = file.getContentType();
-                    log.info("탐색된 File 요소 contentType: {}", result[0]);
-                }
-            }
-        }.visit(env);
+        log.warn("deriveCompositeKey: 매칭되는 File 요소를 찾지 못함 for originalPath: '{}'", originalPath);
+        String aasId = index.getEnvironment().getAssetAdministrationShells().get(0).getId();
+        String compositeKey = aasId + "::fallbackSubmodel::" + new File(originalPath).getName();
+        log.info("도출된 Composite Key: {}", compositeKey);
+        return compositeKey;
+    }
 
-        return result[0];
+    /**
+     * ✅ ★ helper 4) 경로를 정규화
+     * - 백슬래시를 슬래시로 변경
+     * - 앞뒤 공백 제거
+     * - 소문자 변환하여 비교 오차 제거
+     */
+    public String normalizePath(String path) {
+        return EnvironmentIndex.normalize(path);
     }
 
     // ✅ ★ helper 6) Environment 내 File 객체의 value 값을 원본 경로와 일치하는 경우에만 해시 기반 URL로 변경
-    public void updateEnvironmentFilePathsToURL(Environment environment, String originalPath, String hashBaseUrl) {
-        AssetAdministrationShellElementWalkerVisitor visitor = new AssetAdministrationShellElementWalkerVisitor() {
-
-            @Override
-            public void visit(org.eclipse.digitaltwin.aas4j.v3.model.File file) {
-                if (file == null) {
-                    return;
-                }
-                String fileValue = file.getValue();
-                // value가 채워진 File 요소만 처리
-                if (fileValue != null && !fileValue.trim().isEmpty()) {
-                    log.info("현재 file value: {}", fileValue);
-                    if (fileValue.trim().equals(originalPath.trim())) {
-                        file.setValue(hashBaseUrl);
-                        log.info("Updated file path from {} to {}", originalPath, hashBaseUrl);
-                    } else {
-                        log.info("파일 value와 원본 경로 불일치 - file value: [{}], originalPath: [{}]", fileValue, originalPath);
-                    }
-                } else {
-                    // 빈 value를 가진 File 요소는 건너뜁니다.
-                    log.info("빈 value를 가진 File 요소 건너뜀, idShort: {}", file.getIdShort());
-                }
-            }
-        };
-        visitor.visit(environment);
+    public void updateEnvironmentFilePathsToURL(EnvironmentIndex index, String originalPath, String hashBaseUrl) {
+        int updated = index.rewriteFileValues(originalPath, hashBaseUrl);
+        if (updated > 0) {
+            log.info("Updated file path from {} to {} ({}건)", originalPath, hashBaseUrl, updated);
+        } else {
+            log.info("원본 경로와 일치하는 File 요소 없음: [{}]", originalPath);
+        }
     }
 
     /**
@@ -771,28 +655,39 @@ public class FileUploadService {
         String hash = meta.getHash();
         String extension = meta.getExtension();
 
-        // 2) 메타 삭제 및 ref_count 감소
-        uploadMapper.deleteFileMeta(aasId, submodelId, idShort);
-        log.info("파일 메타 삭제됨: {}", compositeKey);
-        uploadMapper.updateFileRefCount(hash);
-
-        // 3) files 테이블에서 row 제거 조건 검사
-        Files fileInfo = uploadMapper.selectFileByHash(hash);
-        if (fileInfo == null || fileInfo.getRefCount() <= 0) {
-            uploadMapper.deleteFileByHash(hash);
-            log.info("ref_count 0으로 인해 files 테이블에서도 삭제됨: {}", hash);
-
-            // 4) 물리 디스크 파일 삭제
-            File physical = new File(uploadPath + File.separator + hash + extension);
-            if (physical.exists()) {
-                if (physical.delete()) {
-                    log.info("물리 첨부파일 삭제됨: {}", physical.getAbsolutePath());
-                } else {
-                    log.warn("물리 첨부파일 삭제 실패: {}", physical.getAbsolutePath());
-                }
+        // 2) 메타 삭제 및 ref_count 감소 (삭제된 경우에만 1 감소, 재계산 없음)
+        // 3) ref_count가 0 이하인 files row를 조건부 DELETE로 제거하고, 제거된 경우에만 물리 파일 삭제
+        //    (같은 잠금 안에서 처리 → 그 사이 같은 해시를 등록하는 업로드가 row/파일을 다시 참조할 틈이 없음)
+        metadataWriteLock.lock();
+        try {
+            if (uploadMapper.deleteFileMeta(aasId, submodelId, idShort) > 0) {
+                log.info("파일 메타 삭제됨: {}", compositeKey);
+                uploadMapper.decrementFileRefCount(hash);
+            }
+            if (uploadMapper.deleteFileByHash(hash) > 0) {
+                log.info("ref_count 0으로 인해 files 테이블에서도 삭제됨: {}", hash);
+                deleteBlob(hash, extension);
+            }
+        } finally {
+            metadataWriteLock.unlock();
+        }
+
+        // 해당 AAS를 포함하는 패키지의 캐시된 Environment / 패키지 지문 / 리비전 무효화
+        environmentCache.invalidateByAasId(aasId);
+        packageFingerprintCache.invalidateByAasId(aasId);
+        packageRevisionCache.invalidateByAasId(aasId);
+    }
+
+    // 4) 물리 디스크 파일 삭제
+    private void deleteBlob(String hash, String extension) {
+        try {
+            if (blobStore.delete(hash, extension)) {
+                log.info("물리 첨부파일 삭제됨: {}{}", hash, extension);
             } else {
-                log.warn("삭제할 물리 첨부파일이 없음: {}", physical.getAbsolutePath());
+                log.warn("삭제할 물리 첨부파일이 없음: {}{}", hash, extension);
             }
+        } catch (IOException e) {
+            log.warn("물리 첨부파일 삭제 실패: {}{} ({})", hash, extension, e.getMessage());
         }
     }
 }
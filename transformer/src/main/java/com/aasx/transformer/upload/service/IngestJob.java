@@ -0,0 +1,228 @@
+package com.aasx.transformer.upload.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.aasx.transformer.upload.dto.IngestJobStatus;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 비동기 업로드 작업 1건
+ * - 상태 변경은 job 단위 잠금(ReentrantLock)으로 동기화하고, 변경될 때마다 구독 중인 SSE 클라이언트에 현재 상태를 전송
+ *   · 전송은 이벤트 전용 실행기에서 수행 → 느린 구독자가 업로드 처리 스레드를 막지 않음
+ *   · 전송 대기 중에 쌓인 변경은 하나로 합쳐 최신 상태만 전송 (느린 구독자에게는 중간 진행 이벤트가 생략됨)
+ * - 완료 후에도 ingest.job-retention-minutes 동안 상태/결과를 조회할 수 있음
+ */
+@Slf4j
+public class IngestJob implements IngestProgress {
+
+    public static final String TYPE_AASX = "aasx";
+    public static final String TYPE_JSON = "json";
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    @Getter
+    private final String id = UUID.randomUUID().toString();
+    @Getter
+    private final String type;
+    @Getter
+    private final String workspaceId;
+    private final List<String> fileNames;
+    private final long createdAt = System.currentTimeMillis();
+
+    private State state = State.QUEUED;
+    private final Map<String, Integer> progress = new LinkedHashMap<>();
+    private List<String> results = Collections.emptyList();
+    // aasx 작업 결과 Environment (결과 조회 시 JSON 문자열 배열로 직렬화)
+    @Getter
+    private List<Environment> environments = Collections.emptyList();
+    private String error;
+    private Long finishedAt;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // SSE 전송 실행기, 전송 예약 여부, 전송 직렬화 잠금 (이벤트 순서 보장)
+    private final Executor eventExecutor;
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+    private final ReentrantLock sendLock = new ReentrantLock();
+
+    public IngestJob(String type, String workspaceId, List<String> fileNames, Executor eventExecutor) {
+        this.eventExecutor = eventExecutor;
+        this.type = type;
+        this.workspaceId = workspaceId;
+        this.fileNames = Collections.unmodifiableList(new ArrayList<>(fileNames));
+        progress.put(STAGE_PARSED, 0);
+        progress.put(STAGE_HASHED, 0);
+        progress.put(STAGE_STORED, 0);
+        progress.put(STAGE_PACKAGED, 0);
+    }
+
+    public void start() {
+        lock.lock();
+        try {
+            state = State.RUNNING;
+            publish();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onStage(String stage, String fileName) {
+        lock.lock();
+        try {
+            progress.merge(stage, 1, Integer::sum);
+            log.debug("작업 {} 진행: {} ({})", id, stage, fileName);
+            publish();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void succeed(List<String> results, List<Environment> environments) {
+        lock.lock();
+        try {
+            this.results = Collections.unmodifiableList(new ArrayList<>(results));
+            this.environments = environments;
+            finish(State.SUCCEEDED, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void fail(String error) {
+        lock.lock();
+        try {
+            finish(State.FAILED, error);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isFinished() {
+        return getFinishedAt() != null;
+    }
+
+    public Long getFinishedAt() {
+        lock.lock();
+        try {
+            return finishedAt;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public IngestJobStatus snapshot() {
+        lock.lock();
+        try {
+            return new IngestJobStatus(id, type, state.name(), fileNames, new LinkedHashMap<>(progress),
+                    results, error, createdAt, finishedAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * SSE 구독 추가: 현재 상태를 전송하고, 이미 끝난 작업이면 전송 후 종료
+     */
+    public void subscribe(SseEmitter emitter) {
+        emitter.onCompletion(() -> removeEmitter(emitter));
+        emitter.onTimeout(() -> removeEmitter(emitter));
+        emitter.onError(e -> removeEmitter(emitter));
+        emitters.add(emitter);
+        publish();
+    }
+
+    private void finish(State finalState, String error) {
+        this.state = finalState;
+        this.error = error;
+        this.finishedAt = System.currentTimeMillis();
+        publish();
+    }
+
+    private String eventName() {
+        switch (state) {
+            case SUCCEEDED:
+                return "done";
+            case FAILED:
+                return "failed";
+            default:
+                return "progress";
+        }
+    }
+
+    // 상태 변경 알림: 이미 전송이 예약되어 있으면 그 전송이 최신 상태를 보냄
+    private void publish() {
+        if (dispatchPending.getAndSet(true)) {
+            return;
+        }
+        try {
+            eventExecutor.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            dispatchPending.set(false);
+            log.debug("작업 {} SSE 전송 예약 실패: {}", id, e.getMessage());
+        }
+    }
+
+    // 구독자 전체에 현재 상태 전송, 끝난 작업이면 전송 후 구독 종료
+    // SSE 전송은 네트워크 I/O이므로 synchronized 대신 ReentrantLock (가상 스레드 고정 방지)
+    private void dispatch() {
+        sendLock.lock();
+        try {
+            dispatchPending.set(false);
+            IngestJobStatus status;
+            String eventName;
+            boolean finished;
+            lock.lock();
+            try {
+                status = snapshot();
+                eventName = eventName();
+                finished = finishedAt != null;
+            } finally {
+                lock.unlock();
+            }
+            for (SseEmitter emitter : emitters) {
+                if (!send(emitter, eventName, status)) {
+                    emitters.remove(emitter);
+                } else if (finished) {
+                    emitter.complete();
+                    emitters.remove(emitter);
+                }
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    private boolean send(SseEmitter emitter, String eventName, IngestJobStatus status) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(status));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // 클라이언트 연결 종료 → 구독 해제
+            log.debug("작업 {} SSE 전송 실패: {}", id, e.getMessage());
+            return false;
+        }
+    }
+
+    private void removeEmitter(SseEmitter emitter) {
+        emitters.remove(emitter);
+    }
+}
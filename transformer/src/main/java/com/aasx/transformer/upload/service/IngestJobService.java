@@ -0,0 +1,303 @@
+package com.aasx.transformer.upload.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 비동기 업로드 작업(job) 관리
+ * - 제출 시 업로드 파일을 {upload.temp-path}/ingest-jobs 임시 파일로 복사(요청이 끝나면 multipart 임시 파일이
+ *   삭제되므로)한 뒤 job ID를 바로 반환, 대기 중인 작업이 업로드 내용을 힙에 들고 있지 않음
+ *   (임시 파일은 작업이 끝나거나 제출이 거절되면 삭제, 비정상 종료로 남은 파일은 기동 시 삭제)
+ * - 실제 처리는 ingestJobExecutor(크기/큐 제한)에서 실행 → 요청 스레드를 점유하지 않음
+ * - 진행 상황은 상태 조회(폴링) 또는 SSE 구독으로 확인
+ * - 완료된 작업은 ingest.job-retention-minutes 후 정리
+ */
+@Slf4j
+@Service
+public class IngestJobService {
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    @Autowired
+    private JsonToAASXService jsonToAasxService;
+
+    @Autowired
+    @Qualifier("ingestJobExecutor")
+    private TaskExecutor ingestJobExecutor;
+
+    @Autowired
+    @Qualifier("ingestEventExecutor")
+    private TaskExecutor ingestEventExecutor;
+
+    @Value("${upload.temp-path}")
+    private String tempPath;
+
+    @Value("${ingest.job-retention-minutes:30}")
+    private long retentionMinutes;
+
+    @Value("${ingest.job-sse-timeout-ms:600000}")
+    private long sseTimeoutMillis;
+
+    private static final String SPOOL_DIR = "ingest-jobs";
+
+    // job ID → 작업
+    private final Map<String, IngestJob> jobs = new ConcurrentHashMap<>();
+
+    private Path spoolDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        spoolDir = Files.createDirectories(Paths.get(tempPath).resolve(SPOOL_DIR));
+        int deleted = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(spoolDir)) {
+            for (Path file : stream) {
+                deleted += Files.deleteIfExists(file) ? 1 : 0;
+            }
+        }
+        if (deleted > 0) {
+            log.warn("비정상 종료로 남은 업로드 작업 임시 파일 {}개 삭제", deleted);
+        }
+    }
+
+    /**
+     * AASX 업로드 작업 제출 (파싱 → 해시 → DB 등록 → Environment 캐시)
+     * 큐가 가득 차면 TaskRejectedException
+     */
+    public IngestJob submitAasx(String workspaceId, MultipartFile[] files) throws IOException {
+        return submit(IngestJob.TYPE_AASX, workspaceId, files, job -> {
+            List<Environment> environments = fileUploadService.uploadFiles(workspaceId, job.getUploads(), job.getJob());
+            Map<String, Environment> updated = fileUploadService.computeSHA256HashesForInMemoryFiles(workspaceId, job.getJob());
+            job.getJob().succeed(new ArrayList<>(updated.keySet()), environments);
+        });
+    }
+
+    /**
+     * JSON → AASX 등록 작업 제출
+     * 큐가 가득 차면 TaskRejectedException
+     */
+    public IngestJob submitJson(String workspaceId, MultipartFile[] files) throws IOException {
+        return submit(IngestJob.TYPE_JSON, workspaceId, files, job -> {
+            List<String> names = jsonToAasxService.generateAasxVariants(workspaceId, job.getUploads(), job.getJob());
+            job.getJob().succeed(names, Collections.emptyList());
+        });
+    }
+
+    /**
+     * 작업 조회 (다른 작업 공간의 작업은 보이지 않음), 없으면 null
+     */
+    public IngestJob find(String workspaceId, String jobId) {
+        IngestJob job = jobs.get(jobId);
+        if (job == null || !job.getWorkspaceId().equals(UploadWorkspaceRegistry.normalizeId(workspaceId))) {
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * 작업 진행 상황 SSE 구독
+     */
+    public SseEmitter subscribe(IngestJob job) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMillis);
+        job.subscribe(emitter);
+        return emitter;
+    }
+
+    // 완료 후 보관 기간이 지난 작업 정리
+    @Scheduled(fixedDelayString = "${ingest.job-purge-interval-ms:60000}")
+    public void purgeFinished() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            Long finishedAt = job.getFinishedAt();
+            return finishedAt != null && finishedAt < cutoff;
+        });
+    }
+
+    private IngestJob submit(String type, String workspaceId, MultipartFile[] files,
+            Consumer<JobContext> work) throws IOException {
+        if (files == null || files.length == 0) {
+            throw new IllegalArgumentException("최소 하나의 파일을 업로드해야 합니다.");
+        }
+        // 요청이 끝나면 multipart 임시 파일이 삭제되므로 제출 시점에 임시 파일로 복사
+        SpooledUpload[] uploads = new SpooledUpload[files.length];
+        List<String> fileNames = new ArrayList<>();
+        try {
+            for (int i = 0; i < files.length; i++) {
+                uploads[i] = new SpooledUpload(files[i], Files.createTempFile(spoolDir, "upload-", ".tmp"));
+                fileNames.add(files[i].getOriginalFilename());
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteSpooled(uploads);
+            throw e;
+        }
+
+        IngestJob job = new IngestJob(type, UploadWorkspaceRegistry.normalizeId(workspaceId), fileNames,
+                ingestEventExecutor);
+        JobContext context = new JobContext(job, uploads);
+        // 실행 전에 등록 → 202 직후의 조회/구독이나 바로 끝나는 작업도 항상 찾을 수 있음
+        jobs.put(job.getId(), job);
+        // 큐가 가득 차면 여기서 TaskRejectedException → 등록을 취소하고 임시 파일 삭제
+        try {
+            ingestJobExecutor.execute(() -> run(context, work));
+        } catch (RuntimeException e) {
+            jobs.remove(job.getId(), job);
+            context.release();
+            throw e;
+        }
+        log.info("업로드 작업 제출: {} (type={}, workspace={}, files={})", job.getId(), type, job.getWorkspaceId(),
+                fileNames);
+        return job;
+    }
+
+    private void run(JobContext context, Consumer<JobContext> work) {
+        IngestJob job = context.getJob();
+        long start = System.nanoTime();
+        job.start();
+        try {
+            work.accept(context);
+            log.info("업로드 작업 완료: {} ({} ms)", job.getId(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Throwable e) {
+            // Error(OOM 등)도 작업을 실패로 끝내야 RUNNING으로 남지 않음 (정리 대상이 되고 SSE 구독도 종료)
+            log.error("업로드 작업 실패: {} ({})", job.getId(), e.getMessage(), e);
+            job.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            if (e instanceof Error error) {
+                throw error;
+            }
+        } finally {
+            // 처리 후 임시 파일 삭제
+            context.release();
+        }
+    }
+
+    private static void deleteSpooled(SpooledUpload[] uploads) {
+        for (SpooledUpload upload : uploads) {
+            if (upload != null) {
+                upload.delete();
+            }
+        }
+    }
+
+    // 실행 중인 작업과 업로드 임시 파일
+    private static class JobContext {
+        private final IngestJob job;
+        private SpooledUpload[] uploads;
+
+        JobContext(IngestJob job, SpooledUpload[] uploads) {
+            this.job = job;
+            this.uploads = uploads;
+        }
+
+        IngestJob getJob() {
+            return job;
+        }
+
+        MultipartFile[] getUploads() {
+            return uploads;
+        }
+
+        void release() {
+            if (uploads != null) {
+                deleteSpooled(uploads);
+                uploads = null;
+            }
+        }
+    }
+
+    /**
+     * 요청 종료 후에도 읽을 수 있도록 내용을 임시 파일에 복사한 업로드 파일
+     */
+    private static class SpooledUpload implements MultipartFile {
+        private final String name;
+        private final String originalFilename;
+        private final String contentType;
+        private final Path file;
+        private final long size;
+
+        SpooledUpload(MultipartFile source, Path file) throws IOException {
+            this.name = source.getName();
+            this.originalFilename = source.getOriginalFilename();
+            this.contentType = source.getContentType();
+            this.file = file;
+            try (InputStream in = source.getInputStream()) {
+                this.size = Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException | RuntimeException e) {
+                delete();
+                throw e;
+            }
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return originalFilename;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(file);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(file, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("업로드 작업 임시 파일 삭제 실패: {} ({})", file, e.getMessage());
+            }
+        }
+    }
+}
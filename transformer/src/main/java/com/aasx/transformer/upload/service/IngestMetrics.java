@@ -0,0 +1,55 @@
+package com.aasx.transformer.upload.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import com.aasx.transformer.upload.dto.StageTiming;
+
+/**
+ * ✅ AASX 처리 단계별 소요 시간 누적
+ * - parse / extract / register / rewrite 단계별 호출 수, 누적/평균/최대 시간
+ * - 워커 풀 크기를 서버 사양에 맞게 조정할 때 참고용
+ */
+@Component
+public class IngestMetrics {
+
+    public static final String STAGE_PARSE = "parse";
+    public static final String STAGE_EXTRACT = "extract";
+    public static final String STAGE_REGISTER = "register";
+    public static final String STAGE_REWRITE = "rewrite";
+
+    private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+
+    private static class Stage {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+    }
+
+    public void record(String stage, long nanos) {
+        Stage s = stages.computeIfAbsent(stage, k -> new Stage());
+        s.count.increment();
+        s.totalNanos.add(nanos);
+        s.maxNanos.accumulate(nanos);
+    }
+
+    public List<StageTiming> snapshot() {
+        List<StageTiming> result = new ArrayList<>();
+        stages.forEach((name, s) -> {
+            long count = s.count.sum();
+            long totalMillis = TimeUnit.NANOSECONDS.toMillis(s.totalNanos.sum());
+            double avgMillis = count == 0 ? 0 : (double) totalMillis / count;
+            result.add(new StageTiming(name, count, totalMillis, avgMillis,
+                    TimeUnit.NANOSECONDS.toMillis(s.maxNanos.get())));
+        });
+        result.sort((a, b) -> a.getStage().compareTo(b.getStage()));
+        return result;
+    }
+}
@@ -0,0 +1,21 @@
+package com.aasx.transformer.upload.service;
+
+/**
+ * ✅ 업로드 처리 진행 상황 수신
+ * - 단계: parsed(Environment 파싱) → hashed(첨부파일 해시) → stored(DB 등록/URL 치환) → packaged(다운로드 준비 완료)
+ * - 패키지(파일) 하나가 단계를 마칠 때마다 호출되며, 여러 워커 스레드에서 동시에 호출될 수 있음
+ */
+@FunctionalInterface
+public interface IngestProgress {
+
+    String STAGE_PARSED = "parsed";
+    String STAGE_HASHED = "hashed";
+    String STAGE_STORED = "stored";
+    String STAGE_PACKAGED = "packaged";
+
+    // 진행 상황을 받지 않는 기본값 (동기 업로드 API)
+    IngestProgress NONE = (stage, fileName) -> {
+    };
+
+    void onStage(String stage, String fileName);
+}
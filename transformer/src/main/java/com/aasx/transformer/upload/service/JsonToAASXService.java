@@ -1,34 +1,32 @@
 package com.aasx.transformer.upload.service;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.AASXSerializer;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.DeserializationException;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.SerializationException;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.internal.visitor.AssetAdministrationShellElementWalkerVisitor;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.json.JsonDeserializer;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.xml.XmlSerializer;
 import org.eclipse.digitaltwin.aas4j.v3.model.AssetAdministrationShell;
 import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
 import org.eclipse.digitaltwin.aas4j.v3.model.File;
@@ -48,12 +46,17 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.aasx.transformer.storage.BlobStore;
 import com.aasx.transformer.upload.dto.FilesMeta;
 import com.aasx.transformer.upload.mapper.UploadMapper;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -63,8 +66,8 @@ public class JsonToAASXService {
     @Value("${upload.temp-path}")
     private String tempPath;
 
-    @Value("${upload.path}")
-    private String uploadPath;
+    @Autowired
+    private BlobStore blobStore;
 
     @Autowired
     private UploadMapper uploadMapper;
@@ -72,122 +75,188 @@ public class JsonToAASXService {
     @Autowired
     private FileUploadService fileUploadService;
 
+    @Autowired
+    private ThumbnailResolver thumbnailResolver;
+
+    @Autowired
+    private AasxPackageWriter aasxPackageWriter;
+
+    @Autowired
+    private AasxVariantCache variantCache;
+
     // JSON → Environment 파싱용 Deserializer
     private final JsonDeserializer deserializer = new JsonDeserializer();
-    // 업로드된 JSON 파일 이름 목록
-    private final List<String> uploadedFileNames = new CopyOnWriteArrayList<>();
-    // JSON→AASX 변환 후 생성된 AASX 파일 이름 목록
-    private final List<String> uploadedAasxFileNames = new CopyOnWriteArrayList<>();
-    // 업로드된 JSON 파일로부터 변환된 Environment 목록
-    private final List<Environment> uploadedEnvironments = new CopyOnWriteArrayList<>();
+    // 업로드된 JSON 파일 / AASX 파일 이름 목록은 작업 공간(X-Workspace-Id)별로 보관
+    @Autowired
+    private UploadWorkspaceRegistry workspaceRegistry;
+
+    /**
+     * 업로드된 JSON 원본 (내용 해시 → 파싱된 Environment)
+     * - AASX 변형은 다운로드 요청 시 이 원본으로부터 생성
+     * - 동일 내용의 JSON이 다시 업로드되면 파싱 없이 재사용
+     *   (URL별 FilesMeta는 첨부파일 등록/삭제로 바뀌므로 캐시하지 않고 revert 요청마다 일괄 조회)
+     * - 최근 사용 순으로 aasx.variant-cache.max-sources 개까지만 보관
+     *   (JSON 원본 바이트는 작업 공간에도 보관 → 여기서 제거되어도 다운로드 시 다시 파싱)
+     */
+    private final Map<String, JsonSource> sourcesByHash = Collections.synchronizedMap(
+            new LinkedHashMap<String, JsonSource>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, JsonSource> eldest) {
+                    return size() > maxSources;
+                }
+            });
+
+    @Value("${aasx.variant-cache.max-sources:32}")
+    private int maxSources;
+
+    private static final String URL_SUFFIX = "-url";
+    private static final String REVERT_SUFFIX = "-revert";
+    private static final String AASX_EXTENSION = ".aasx";
 
     /**
-     * JSON 파일명 → (URL → Deque<FilesMeta>) 매핑
-     * - 하나의 URL에 대응하는 여러 FilesMeta 정보를 순서대로 저장
-     * - AASX 생성 시 URL을 상대경로로 치환할 때 사용
+     * ✅ 업로드된 JSON 원본
+     * - environment: URL-only 상태의 Environment (작업 공간들이 공유하므로 수정하지 않음)
+     * - raw: JSON 원본 바이트 (revert 생성 시 이것으로 별도 Environment를 만들어 치환)
      */
-    private final Map<String, Map<String, Deque<FilesMeta>>> jsonMetaMap = new ConcurrentHashMap<>();;
+    @Getter
+    @AllArgsConstructor
+    private static class JsonSource {
+        private final String contentHash;
+        private final String jsonName;
+        private final Environment environment;
+        private final byte[] raw;
+    }
 
     /**
-     * 한 번의 호출로 URL-only / Revert(embed) 두 Variant를 모두 생성하고, 생성된 AASX 파일명 전체를 리턴
+     * JSON 파일들을 등록하고 URL-only / Revert(embed) 두 Variant의 AASX 파일명 전체를 리턴
+     * - 패키지는 여기서 만들지 않고, 다운로드 요청 시 resolveVariant()에서 생성·캐시
+     * - JSON 목록은 같은 작업 공간 안에서만 교체 (다른 사용자의 목록에는 영향 없음)
      *
-     * @param jsonFiles MultipartFile[] 형태로 업로드된 JSON 파일들
-     * @return 생성된 AASX 파일명 리스트 (예: ["example-url.aasx", "example-revert.aasx"])
+     * @param workspaceId 작업 공간 ID (X-Workspace-Id)
+     * @param jsonFiles   MultipartFile[] 형태로 업로드된 JSON 파일들
+     * @return AASX 파일명 리스트 (예: ["example-url.aasx", "example-revert.aasx"])
      */
-    public List<String> generateAasxVariants(MultipartFile[] jsonFiles) {
-        // 1) URL-only 형식 생성
-        uploadJsonFiles(jsonFiles, false);
-        List<String> urls = new ArrayList<>(uploadedAasxFileNames);
+    public List<String> generateAasxVariants(String workspaceId, MultipartFile[] jsonFiles) {
+        return generateAasxVariants(workspaceId, jsonFiles, IngestProgress.NONE);
+    }
 
-        // 2) Revert 형식 생성
-        uploadJsonFiles(jsonFiles, true);
-        List<String> revert = new ArrayList<>(uploadedAasxFileNames);
+    /**
+     * JSON 등록 (진행 상황 보고)
+     * - 파일별로 파싱/내용 해시(parsed, hashed), AASX 이름 등록(packaged) 완료 시 progress에 알림
+     * - 패키지 바이트는 다운로드 시 생성되므로 stored 단계는 없음
+     */
+    public List<String> generateAasxVariants(String workspaceId, MultipartFile[] jsonFiles, IngestProgress progress) {
+        if (jsonFiles == null || jsonFiles.length == 0) {
+            throw new IllegalArgumentException("최소 하나의 JSON 파일을 업로드해야 합니다.");
+        }
+        UploadWorkspace workspace = workspaceRegistry.getOrCreate(workspaceId);
+        LinkedHashMap<String, Environment> uploaded = new LinkedHashMap<>();
+
+        List<String> urls = new ArrayList<>();
+        List<String> revert = new ArrayList<>();
+        for (MultipartFile file : jsonFiles) {
+            String originalName = file.getOriginalFilename();
+            log.info("generateAasxVariants: 처리 중인 JSON 파일 = {}", originalName);
+
+            JsonSource source = registerJson(file);
+            progress.onStage(IngestProgress.STAGE_PARSED, originalName);
+            progress.onStage(IngestProgress.STAGE_HASHED, originalName);
+
+            // 저장된 JSON 파일명 → Environment
+            uploaded.put(originalName, source.getEnvironment());
+
+            // AASX 파일명 → 내용 해시 (다운로드 시 변형 생성/캐시 키)
+            String baseName = deriveBaseName(originalName);
+            workspace.getContentHashByBaseName().put(baseName, source.getContentHash());
+            workspace.getJsonSources().put(source.getContentHash(), source.getRaw());
+            urls.add(baseName + URL_SUFFIX + AASX_EXTENSION);
+            revert.add(baseName + REVERT_SUFFIX + AASX_EXTENSION);
+            progress.onStage(IngestProgress.STAGE_PACKAGED, originalName);
+        }
 
         // 두 리스트를 합쳐서 반환
         List<String> all = new ArrayList<>();
         all.addAll(urls);
         all.addAll(revert);
-        log.info("generateAasxVariants → 생성된 AASX 목록: {}", all);
+        // 어느 AASX 이름에서도 참조하지 않는 JSON 원본(같은 이름으로 다시 올린 이전 내용)은 제거
+        workspace.getJsonSources().keySet().retainAll(new HashSet<>(workspace.getContentHashByBaseName().values()));
+        workspace.publishJson(uploaded, all);
+        log.info("generateAasxVariants → AASX 목록: {}", all);
         return all;
     }
 
     /**
-     * JSON → Environment → AASX 패키지 생성 메인 로직
-     * - revertPaths == false → URL-only AASX 생성 (외부 URL 유지)
-     * - revertPaths == true → URL을 상대경로로 치환 후 AASX 생성
-     *
-     * @param jsonFiles   업로드된 JSON 파일들
-     * @param revertPaths true: URL을 상대경로로 치환하여 AASX 생성, false: URL-only
-     * @return 변환된 Environment 객체 리스트
+     * JSON 한 개 등록: 내용 해시가 같은 원본이 있으면 재사용, 없으면 파싱
      */
-    public List<Environment> uploadJsonFiles(MultipartFile[] jsonFiles, boolean revertPaths) {
-        if (jsonFiles == null || jsonFiles.length == 0) {
-            throw new IllegalArgumentException("최소 하나의 JSON 파일을 업로드해야 합니다.");
+    private JsonSource registerJson(MultipartFile file) {
+        String originalName = file.getOriginalFilename();
+        byte[] raw;
+        try {
+            raw = file.getBytes();
+        } catch (IOException e) {
+            log.error("JSON 읽기 오류: {}", e.getMessage());
+            throw new RuntimeException("JSON 읽기 실패: " + e.getMessage(), e);
         }
-        // 초기화: 이전 호출 시 저장된 상태를 클리어
-        uploadedFileNames.clear();
-        uploadedEnvironments.clear();
-        uploadedAasxFileNames.clear();
+        String contentHash = DigestUtils.sha256Hex(raw);
 
-        for (MultipartFile file : jsonFiles) {
-            String originalName = file.getOriginalFilename();
-            log.info("uploadJsonFiles: 처리 중인 JSON 파일 = {}", originalName);
+        JsonSource cached = sourcesByHash.get(contentHash);
+        if (cached != null) {
+            log.info("동일 내용 JSON 재업로드: {} (hash={}) → 파싱 생략", originalName, contentHash);
+            return cached;
+        }
 
-            // 1️⃣ JSON → Environment
-            Environment env = parseEnvironment(file);
+        return parseSource(contentHash, originalName, raw);
+    }
 
-            // 2️⃣ JSON 파일명 → DB 메타정보 미리 조회해서 jsonMetaMap에 저장
-            saveJsonMetaInfos(originalName, env);
+    /**
+     * JSON 원본 파싱 후 원본 캐시에 등록
+     */
+    private JsonSource parseSource(String contentHash, String originalName, byte[] raw) {
+        // 1️⃣ JSON → Environment
+        Environment env = parseEnvironment(raw);
 
-            // 초기 파일/리소스 참조 로그 출력 (디버깅 용도)
-            AtomicInteger fileRef = new AtomicInteger();
-            AtomicInteger resRef = new AtomicInteger();
+        // 초기 파일/리소스 참조 로그 출력 (디버깅 용도)
+        AtomicInteger fileRef = new AtomicInteger();
+        AtomicInteger resRef = new AtomicInteger();
 
-            log.info("[Init] 모델 내 File/Resource 참조 위치 출력 시작");
+        log.info("[Init] 모델 내 File/Resource 참조 위치 출력 시작");
 
-            new AssetAdministrationShellElementWalkerVisitor() {
-                @Override
-                public void visit(File f) {
-                    if (f.getValue() != null) {
-                        int idx = fileRef.incrementAndGet();
-                        log.info("[Init] File ref #{} → value='{}', objHash={}",
-                                idx, f.getValue(), System.identityHashCode(f));
-                    }
+        new AssetAdministrationShellElementWalkerVisitor() {
+            @Override
+            public void visit(File f) {
+                if (f.getValue() != null) {
+                    int idx = fileRef.incrementAndGet();
+                    log.info("[Init] File ref #{} → value='{}', objHash={}",
+                            idx, f.getValue(), System.identityHashCode(f));
                 }
+            }
 
-                @Override
-                public void visit(Resource r) {
-                    if (r != null && r.getPath() != null) {
-                        int idx = resRef.incrementAndGet();
-                        log.info("[Init] Resource ref #{} → path='{}', objHash={}",
-                                idx, r.getPath(), System.identityHashCode(r));
-                    }
+            @Override
+            public void visit(Resource r) {
+                if (r != null && r.getPath() != null) {
+                    int idx = resRef.incrementAndGet();
+                    log.info("[Init] Resource ref #{} → path='{}', objHash={}",
+                            idx, r.getPath(), System.identityHashCode(r));
                 }
-            }.visit(env);
-            log.info("[Init] 총 File refs: {}, 총 Resource refs: {}", fileRef.get(), resRef.get());
-            log.info("[Init] 모델 내 File/Resource 참조 위치 출력 종료");
-
-            // 저장된 JSON 파일명, Environment 리스트에 추가
-            uploadedFileNames.add(originalName);
-            uploadedEnvironments.add(env);
+            }
+        }.visit(env);
+        log.info("[Init] 총 File refs: {}, 총 Resource refs: {}", fileRef.get(), resRef.get());
+        log.info("[Init] 모델 내 File/Resource 참조 위치 출력 종료");
 
-            // 3️ 실제로 AASX 파일을 생성·저장
-            String baseName = deriveBaseName(originalName);
-            writeAasx(env, baseName, revertPaths, originalName);
-        }
-        return new ArrayList<>(uploadedEnvironments);
+        JsonSource source = new JsonSource(contentHash, originalName, env, raw);
+        sourcesByHash.put(contentHash, source);
+        return source;
     }
 
     /**
      * 1️⃣ JSON 바이너리를 Environment 객체로 파싱
      * 
-     * @param jsonFile MultipartFile 형태의 JSON 파일
+     * @param raw JSON 파일 내용
      * @return 파싱된 Environment 객체
      * @throws RuntimeException 파싱 실패 시
      */
-    private Environment parseEnvironment(MultipartFile jsonFile) {
+    private Environment parseEnvironment(byte[] raw) {
         try {
-            byte[] raw = jsonFile.getBytes();
             Environment env = deserializer.read(new ByteArrayInputStream(raw), Environment.class);
 
             // JSON 내 conceptDescriptions 가 제대로 로드되었는지 로그 확인
@@ -198,19 +267,23 @@ public class JsonToAASXService {
             }
 
             return env;
-        } catch (IOException | DeserializationException e) {
+        } catch (DeserializationException e) {
             log.error("JSON 파싱 오류: {}", e.getMessage());
             throw new RuntimeException("JSON 파싱 실패: " + e.getMessage(), e);
         }
     }
 
     /**
-     * 2️⃣ JSON 이름(jsonName)과 Environment(env)를 받아서
-     * URL → FilesMeta Deque 매핑을 생성하는 메소드
+     * 2️⃣ Environment(env)를 받아서
+     * URL → FilesMeta 목록 매핑을 생성하는 메소드 (같은 URL에 여러 메타가 있으면 순회 순서대로)
      */
-    private void saveJsonMetaInfos(String jsonName, Environment env) {
-        // AAS–Submodel–File/Resource 매핑을 저장할 임시 Map
-        Map<String, Deque<FilesMeta>> map = new HashMap<>();
+    private Map<String, List<FilesMeta>> loadJsonMetaInfos(Environment env) {
+        // AAS–Submodel–File/Resource 매핑을 저장할 Map
+        Map<String, List<FilesMeta>> map = new HashMap<>();
+
+        // 순회 중에는 (URL, 복합키) 쌍만 수집하고, DB 조회는 아래에서 한 번에 수행
+        List<String> urls = new ArrayList<>();
+        List<FilesMeta> keys = new ArrayList<>();
 
         // (1) 모든 Submodel을 순회
         for (Submodel sm : env.getSubmodels()) {
@@ -220,7 +293,7 @@ public class JsonToAASXService {
             // (예를 들어, AAS 목록 중 이 submodelId를 직접 참조하고 있는 첫 번째 AAS를 반환)
             String aasId = findAasIdForSubmodel(env, submodelId);
 
-            // (3) AAS 내부의 File/Resource 요소를 순회하며 URL→FilesMeta 매핑
+            // (3) AAS 내부의 File/Resource 요소를 순회하며 URL과 복합키 수집
             new AssetAdministrationShellElementWalkerVisitor() {
                 @Override
                 public void visit(org.eclipse.digitaltwin.aas4j.v3.model.File f) {
@@ -230,14 +303,8 @@ public class JsonToAASXService {
                     }
 
                     // findAasIdForSubmodel으로 찾아낸 aasId 사용
-                    FilesMeta meta = uploadMapper.selectFileMetaByPath(aasId, submodelId, f.getIdShort());
-                    if (meta != null) {
-                        // 같은 URL에 여러 개의 메타가 있을 수 있으므로 Deque에 순서대로 넣는다
-                        map.computeIfAbsent(url, k -> new ArrayDeque<>()).add(meta);
-                    } else {
-                        log.warn("DB에 files_meta 없음(File): aasId={}, submodelId={}, idShort={}",
-                                aasId, submodelId, f.getIdShort());
-                    }
+                    urls.add(url);
+                    keys.add(FileMetaRegistrationService.metaKey(aasId, submodelId, f.getIdShort()));
                 }
 
                 @Override
@@ -252,19 +319,46 @@ public class JsonToAASXService {
 
                     String idShort = ((SubmodelElement) r).getIdShort();
                     // findAasIdForSubmodel으로 찾아낸 aasId 사용
-                    FilesMeta meta = uploadMapper.selectFileMetaByPath(aasId, submodelId, idShort);
-                    if (meta != null) {
-                        map.computeIfAbsent(url, k -> new ArrayDeque<>()).add(meta);
-                    } else {
-                        log.warn("DB에 files_meta 없음(Resource): aasId={}, submodelId={}, idShort={}",
-                                aasId, submodelId, idShort);
-                    }
+                    urls.add(url);
+                    keys.add(FileMetaRegistrationService.metaKey(aasId, submodelId, idShort));
                 }
             }.visit(env);
         }
 
-        // 완성된 URL→Deque<FilesMeta> 매핑을 jsonMetaMap에 저장
-        jsonMetaMap.put(jsonName, map);
+        // (4) 복합키 목록으로 메타 일괄 조회
+        Map<String, FilesMeta> metaByKey = new HashMap<>();
+        for (FilesMeta found : uploadMapper.selectFileMetasByKeysChunked(keys)) {
+            metaByKey.put(FileMetaRegistrationService.compositeKey(found), found);
+        }
+
+        // (5) 순회 순서대로 URL→FilesMeta 매핑
+        for (int i = 0; i < keys.size(); i++) {
+            FilesMeta key = keys.get(i);
+            FilesMeta meta = metaByKey.get(FileMetaRegistrationService.compositeKey(key));
+            if (meta != null) {
+                // 같은 URL에 여러 개의 메타가 있을 수 있으므로 순서대로 넣는다
+                map.computeIfAbsent(urls.get(i), k -> new ArrayList<>()).add(meta);
+            } else {
+                log.warn("DB에 files_meta 없음: aasId={}, submodelId={}, idShort={}",
+                        key.getAasId(), key.getSubmodelId(), key.getIdShort());
+            }
+        }
+
+        // 완성된 URL→FilesMeta 목록 매핑 반환
+        return map;
+    }
+
+    // 해석된 URL → (상대경로, 해시, 확장자) 매핑의 요약 (메타가 바뀌면 revert 변형 캐시 키도 바뀜)
+    private static String metaDigest(Map<String, List<FilesMeta>> metaMap) {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        for (Map.Entry<String, List<FilesMeta>> entry : new TreeMap<>(metaMap).entrySet()) {
+            DigestUtils.updateDigest(digest, entry.getKey());
+            for (FilesMeta meta : entry.getValue()) {
+                DigestUtils.updateDigest(digest, "\n" + meta.getPath() + "\n" + meta.getHash() + meta.getExtension());
+            }
+            DigestUtils.updateDigest(digest, "\n\n");
+        }
+        return Hex.encodeHexString(digest.digest()).substring(0, 16);
     }
 
     /**
@@ -303,112 +397,144 @@ public class JsonToAASXService {
                 : originalName;
     }
 
+    /**
+     * ✅ 다운로드 요청된 AASX 변형 파일 반환 (없으면 생성 후 디스크 캐시)
+     * - "{base}-url.aasx" → URL-only, "{base}-revert.aasx" → URL을 상대경로로 치환 후 첨부파일 포함
+     * - 캐시 키는 JSON 내용 해시이므로 같은 내용의 JSON은 이름이 달라도 한 번만 생성
+     * - revert는 요청마다 URL별 FilesMeta를 일괄 조회해 그 요약을 키에 포함
+     *   (첨부파일 메타가 등록/삭제/재등록되면 새 패키지 생성, 이전 패키지는 LRU로 정리)
+     *
+     * @param workspaceId  작업 공간 ID (X-Workspace-Id)
+     * @param aasxFileName 다운로드 요청된 AASX 파일명
+     * @param includeFiles true: revert 변형, false: URL-only 변형
+     * @return AASX 파일 경로, 등록되지 않은 이름이면 null
+     */
+    public Path resolveVariant(String workspaceId, String aasxFileName, boolean includeFiles) throws IOException {
+        String suffix = (includeFiles ? REVERT_SUFFIX : URL_SUFFIX) + AASX_EXTENSION;
+        if (aasxFileName == null || !aasxFileName.endsWith(suffix)) {
+            return null;
+        }
+        String baseName = aasxFileName.substring(0, aasxFileName.length() - suffix.length());
+
+        UploadWorkspace workspace = workspaceRegistry.find(workspaceId);
+        String contentHash = workspace != null ? workspace.getContentHashByBaseName().get(baseName) : null;
+        if (contentHash == null) {
+            // 이전 방식(업로드 시 tempPath에 미리 생성)으로 남아 있는 파일
+            Path legacy = Paths.get(tempPath).resolve(aasxFileName).normalize();
+            return legacy.startsWith(Paths.get(tempPath).normalize()) && Files.isRegularFile(legacy) ? legacy : null;
+        }
+
+        JsonSource source = sourcesByHash.get(contentHash);
+        if (source == null) {
+            // 원본 캐시에서 제거됨 → 작업 공간의 JSON 원본 바이트로 다시 파싱
+            byte[] raw = workspace.getJsonSources().get(contentHash);
+            if (raw == null) {
+                log.warn("AASX 변형 원본 JSON 없음: {} (hash={})", aasxFileName, contentHash);
+                return null;
+            }
+            log.info("AASX 변형 원본 JSON 재파싱: {} (hash={})", aasxFileName, contentHash);
+            source = parseSource(contentHash, baseName + ".json", raw);
+        }
+        Map<String, List<FilesMeta>> metaMap = Collections.emptyMap();
+        String key = contentHash + URL_SUFFIX;
+        if (includeFiles) {
+            // DB 메타정보 조회 (URL → FilesMeta 목록, 복합키 일괄 조회 한 번)
+            metaMap = loadJsonMetaInfos(source.getEnvironment());
+            key = contentHash + "-" + metaDigest(metaMap) + REVERT_SUFFIX;
+        }
+        Path cached = variantCache.find(key);
+        if (cached != null) {
+            log.info("AASX 변형 캐시 사용: {} → {}", aasxFileName, key);
+            return cached;
+        }
+
+        JsonSource resolvedSource = source;
+        Map<String, List<FilesMeta>> resolvedMetas = metaMap;
+        try {
+            return variantCache.getOrCreate(key,
+                    target -> writeAasx(resolvedSource, resolvedMetas, includeFiles, target));
+        } catch (SerializationException e) {
+            log.error("AASX 패키지 생성 실패 for {}: {}", aasxFileName, e.getMessage());
+            throw new IOException("AASX 패키지 생성 실패: " + aasxFileName, e);
+        }
+    }
+
     /**
      * 3️ AASX 패키지 파일을 실제로 생성하고 디스크에 저장하는 헬퍼 메소드
      *
-     * 1) revertPaths == true: URL을 로컬 상대경로로 치환 (injectInMemoryFiles)
+     * 1) includeFiles == true: JSON 원본을 다시 파싱한 별도 Environment에서 URL을 로컬 상대경로로 치환
+     *    (injectAttachmentSources, 공유 중인 원본 Environment는 건드리지 않음)
      * 2) 모델 내 File/Resource 전체 참조 로그 출력 (디버깅 용도)
-     * 3) InMemoryFile 목록 구성 (getInMemoryFiles)
+     * 3) 첨부파일 목록 구성 (collectAttachmentSources)
      * 4) 중복 참조 제거 및 기본 썸네일(thumbnail) 제외
-     * 5) 최종 AASX 바이너리를 ByteArrayOutputStream으로 직렬화
-     * 6) 지정된 tempPath 디렉토리에 ".aasx" 파일로 저장
+     * 5) AasxPackageWriter로 target에 스트리밍 기록
      *
-     * @param env          변환할 AASX의 Environment 객체
-     * @param baseName     AASX 파일명(확장자 제외) 기본 이름
-     * @param includeFiles true이면 URL→상대경로 치환 후 InMemoryFile 포함, false이면 URL-only
-     * @param jsonName     원본 JSON 파일명(치환 시 jsonMetaMap 조회용)
+     * @param source       변환할 JSON 원본
+     * @param metaMap      URL → FilesMeta 목록 (revert에서만 사용)
+     * @param includeFiles true이면 URL→상대경로 치환 후 첨부파일 포함, false이면 URL-only
+     * @param target       AASX 파일 경로
      */
-    private void writeAasx(Environment env, String baseName, boolean includeFiles, String jsonName) {
-        try {
-            // 🔴 1) Revert(embed) 모드: URL을 상대경로로 치환
-            if (includeFiles) {
-                injectInMemoryFiles(env, jsonName);
-            }
-
-            // 2) 변환 후 모델 내 File/Resource 전체 참조 로그 출력 (디버깅 용도)
-            log.info("--- 모델 내 File/Resource 전체 참조 로그 시작 ---");
-            AtomicInteger fileIdx = new AtomicInteger(0), resIdx = new AtomicInteger(0);
-            new AssetAdministrationShellElementWalkerVisitor() {
-                @Override
-                public void visit(File f) {
-                    if (f.getValue() != null) {
-                        int idx = fileIdx.incrementAndGet();
-                        log.info("[Visit File #{}] value='{}' (obj={})",
-                                idx, f.getValue(), System.identityHashCode(f));
-                    }
-                }
-
-                @Override
-                public void visit(Resource r) {
-                    if (r != null && r.getPath() != null) {
-                        int idx = resIdx.incrementAndGet();
-                        log.info("[Visit Res  #{}] path ='{}' (obj={})",
-                                idx, r.getPath(), System.identityHashCode(r));
-                    }
+    private void writeAasx(JsonSource source, Map<String, List<FilesMeta>> metaMap, boolean includeFiles,
+            Path target) throws IOException, SerializationException {
+        // URL-only는 공유 원본을 읽기만 하고, revert는 치환용 사본 사용
+        Environment env = includeFiles ? parseEnvironment(source.getRaw()) : source.getEnvironment();
+
+        // 🔴 1) Revert(embed) 모드: URL을 상대경로로 치환 (상대경로 → 저장소 원본 파일)
+        Map<String, InputStreamSource> injected = includeFiles
+                ? injectAttachmentSources(env, source.getJsonName(), metaMap)
+                : Collections.emptyMap();
+
+        // 2) 변환 후 모델 내 File/Resource 전체 참조 로그 출력 (디버깅 용도)
+        log.info("--- 모델 내 File/Resource 전체 참조 로그 시작 ---");
+        AtomicInteger fileIdx = new AtomicInteger(0), resIdx = new AtomicInteger(0);
+        new AssetAdministrationShellElementWalkerVisitor() {
+            @Override
+            public void visit(File f) {
+                if (f.getValue() != null) {
+                    int idx = fileIdx.incrementAndGet();
+                    log.info("[Visit File #{}] value='{}' (obj={})",
+                            idx, f.getValue(), System.identityHashCode(f));
                 }
-            }.visit(env);
-            log.info("--- 총 File refs: {}, 총 Resource refs: {} ---", fileIdx.get(), resIdx.get());
-
-            // 🔵 3) InMemoryFile 목록 준비 (includeFiles==true일 때만 실제 파일 포함)
-            List<InMemoryFile> inMemFiles = includeFiles
-                    ? getInMemoryFiles(env)
-                    : Collections.emptyList();
-
-            // 4) default-thumbnail 경로가 InMemoryFile 목록에 남아 있으면 제외
-            // AssetInformation.getDefaultThumbnail().getPath()로 참조되는 파일은 이미 “기본 리소스”로
-            // 포함되므로,
-            // 중복을 방지하기 위해 InMemoryFile 목록에서 미리 제거
-            // - AASX 내부에 동일 파일이 여러 번 들어가지 않도록 최적화
-            String defaultThumb = env.getAssetAdministrationShells().stream()
-                    .map(aas -> aas.getAssetInformation())
-                    .filter(ai -> ai != null && ai.getDefaultThumbnail() != null)
-                    .map(ai -> ai.getDefaultThumbnail().getPath())
-                    .filter(p -> p != null && !p.isBlank())
-                    .findFirst()
-                    .orElse(null);
-
-            if (defaultThumb != null) {
-                String normThumb = fileUploadService.normalizePath(defaultThumb);
-                inMemFiles.removeIf(imf -> fileUploadService.normalizePath(imf.getPath()).equals(normThumb));
-                log.info("default-thumbnail '{}' (normalized='{}') 은 inMemFiles 에서 제거", defaultThumb, normThumb);
             }
 
-            // 5) 중복된 InMemoryFile(동일 path) 제거
-            if (includeFiles && !inMemFiles.isEmpty()) {
-                Map<String, InMemoryFile> deduped = inMemFiles.stream()
-                        .collect(Collectors.toMap(
-                                InMemoryFile::getPath,
-                                f -> f,
-                                (a, b) -> a));
-                inMemFiles = new ArrayList<>(deduped.values());
+            @Override
+            public void visit(Resource r) {
+                if (r != null && r.getPath() != null) {
+                    int idx = resIdx.incrementAndGet();
+                    log.info("[Visit Res  #{}] path ='{}' (obj={})",
+                            idx, r.getPath(), System.identityHashCode(r));
+                }
             }
+        }.visit(env);
+        log.info("--- 총 File refs: {}, 총 Resource refs: {} ---", fileIdx.get(), resIdx.get());
+
+        // 🔵 3) 첨부파일 목록 준비 (includeFiles==true일 때만 실제 파일 포함)
+        // 패키지 경로 → 원본 파일, 동일 path는 처음 것만 유지
+        Map<String, InputStreamSource> attachments = includeFiles
+                ? collectAttachmentSources(env, injected)
+                : new LinkedHashMap<>();
+
+        // 4) default-thumbnail 경로가 첨부파일 목록에 남아 있으면 제외
+        // AssetInformation.getDefaultThumbnail().getPath()로 참조되는 파일은 이미 “기본 리소스”로
+        // 포함되므로,
+        // 중복을 방지하기 위해 첨부파일 목록에서 미리 제거
+        // - AASX 내부에 동일 파일이 여러 번 들어가지 않도록 최적화
+        ThumbnailResolver.Thumbnail thumbnail = thumbnailResolver.resolveFirst(env);
+        String defaultThumb = thumbnail != null ? thumbnail.getPath() : null;
+
+        if (defaultThumb != null) {
+            String normThumb = fileUploadService.normalizePath(defaultThumb);
+            attachments.keySet().removeIf(path -> fileUploadService.normalizePath(path).equals(normThumb));
+            log.info("default-thumbnail '{}' (normalized='{}') 은 첨부파일 목록에서 제거", defaultThumb, normThumb);
+        }
 
-            // 6) InMemoryFile 목록 로그 출력
-            List<String> paths = inMemFiles.stream()
-                    .map(InMemoryFile::getPath)
-                    .collect(Collectors.toList());
-            log.info(">>> InMemoryFiles [{}개]: {}", paths.size(), paths);
-
-            // 7) AASX 파일명 결정: URL-only → "-url.aasx", Revert/embed → "-revert.aasx"
-            String suffix = includeFiles ? "-revert" : "-url";
-            String targetName = baseName + suffix + ".aasx";
-
-            // 8) AASX 패키징 직렬화
-            AASXSerializer serializer = new AASXSerializer(new XmlSerializer());
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            serializer.write(env, inMemFiles, baos);
-
-            // 9) tempPath 디렉토리에 AASX 파일로 저장
-            Path outPath = Paths.get(tempPath, targetName);
-            Files.createDirectories(outPath.getParent());
-            Files.write(outPath, baos.toByteArray());
-
-            uploadedAasxFileNames.add(targetName);
-            log.info("AASX 패키지 생성 및 저장 완료: {}", outPath);
+        // 5) 첨부파일 목록 로그 출력
+        log.info(">>> 첨부파일 [{}개]: {}", attachments.size(), attachments.keySet());
 
-        } catch (Exception e) {
-            log.error("AASX 패키지 생성 실패 for {}: {}", baseName, e.getMessage());
-        }
+        // 6) AASX 패키징: 대상 디렉토리의 임시 파일에 스트리밍 기록 후 원자적 이동
+        //    첨부파일은 저장소 원본에서 직접 스트리밍 (힙에 적재하지 않음)
+        aasxPackageWriter.write(env, attachments, target);
+        log.info("AASX 패키지 생성 및 저장 완료: {} ({})", target, source.getJsonName());
     }
 
     /**
@@ -416,53 +542,31 @@ public class JsonToAASXService {
      * DB에서 조회한 FilesMeta 정보를 기반으로 실제 상대경로(파일시스템 경로)로 치환
      *
      * 1) AssetAdministrationShellElementWalkerVisitor 로 모델 내 모든 File/Resource 순회
-     * 2) URL 값이 http로 시작하면 jsonMetaMap 에서 해당 URL에 매핑된 Deque<FilesMeta>를 꺼냄
+     * 2) URL 값이 http로 시작하면 metaMap 에서 해당 URL에 매핑된 FilesMeta를 순서대로 꺼냄
      * 3) FilesMeta.getPath 값을 상대경로로 사용하여
-     * - uploadPath 디렉토리에서 실제 파일을 tempPath/상대경로로 복사
-     * - File/Resource 객체의 value/path 필드를 상대경로로 설정
-     * - semanticId 필드는 null로 설정하여 직렬화 시 오류 방지
+     * - 저장소의 {hash}{ext} 원본 파일을 상대경로의 내용으로 기록 (복사하지 않고 패키징 시 스트리밍)
+     * - File/Resource 객체의 value/path 필드를 상대경로로 설정 (revert 전용 사본이므로 원복하지 않음)
      *
-     * @param env      변환 대상 Environment 객체
-     * @param jsonName 원본 JSON 파일명 (jsonMetaMap 조회 키)
+     * @param env      치환할 Environment (revert 생성용 사본)
+     * @param jsonName 로그용 JSON 파일 이름
+     * @param metaMap  URL → FilesMeta 목록 (요청 시 조회한 현재 메타)
+     * @return 상대경로 → 저장소 원본 스트림
      */
-    private void injectInMemoryFiles(Environment env, String jsonName) {
-        // JSON 이름에 매핑된 URL→Deque<FilesMeta> 맵 가져오기
-        Map<String, Deque<FilesMeta>> metaMap = jsonMetaMap.getOrDefault(jsonName, Map.of());
+    private Map<String, InputStreamSource> injectAttachmentSources(Environment env, String jsonName,
+            Map<String, List<FilesMeta>> metaMap) {
+        // URL별로 아직 사용하지 않은 FilesMeta (조회한 목록은 그대로 둠)
+        Map<String, Deque<FilesMeta>> remaining = new HashMap<>();
+        Map<String, InputStreamSource> injected = new HashMap<>();
 
         new AssetAdministrationShellElementWalkerVisitor() {
             @Override
             public void visit(File fileEl) {
                 String url = fileEl.getValue();
-                if (url == null || !url.startsWith("http"))
-                    return;
-
-                Deque<FilesMeta> deque = metaMap.get(url);
-                if (deque == null || deque.isEmpty()) {
-                    log.warn("메타 없음(File): json={} url={}", jsonName, url);
-                    return;
-                }
-                FilesMeta meta = deque.pollFirst(); // 해당 URL에 대응하는 첫 번째 FilesMeta 정보를 꺼냄
-
-                log.info("inject(File) 매핑 확인 → url='{}', aasId='{}', submodelId='{}', idShort='{}', path='{}'",
-                        url, meta.getAasId(), meta.getSubmodelId(), meta.getIdShort(), meta.getPath());
-
-                try {
-                    String hash = meta.getHash();
-                    String ext = meta.getExtension();
-                    String relPath = meta.getPath(); // DB에 저장된 상대경로
-
-                    // uploadPath/{hash}{ext} 에서 실제 파일을 읽어 tempPath/{relPath} 로 복사
-                    Path dst = Paths.get(tempPath, relPath);
-                    Files.createDirectories(dst.getParent());
-                    Files.copy(Paths.get(uploadPath, hash + ext),
-                            dst, StandardCopyOption.REPLACE_EXISTING);
-
+                String relPath = resolve(url, "File");
+                if (relPath != null) {
                     // 모델 내 File 요소의 value를 상대경로로 치환
                     fileEl.setValue(relPath);
                     log.info("치환 완료(File): {} → {}", url, relPath);
-
-                } catch (Exception ex) {
-                    log.error("injectInMemoryFiles 오류(File) for {}: {}", url, ex.getMessage());
                 }
             }
 
@@ -471,95 +575,101 @@ public class JsonToAASXService {
                 if (res == null)
                     return;
                 String url = res.getPath();
-                if (url == null || !url.startsWith("http"))
-                    return;
-
-                Deque<FilesMeta> deque = metaMap.get(url);
-                if (deque == null || deque.isEmpty()) {
-                    log.warn("메타 없음(Resource): json={} url={}", jsonName, url);
-                    return;
+                String relPath = resolve(url, "Resource");
+                if (relPath != null) {
+                    // 모델 내 Resource 요소의 path를 상대경로로 치환
+                    res.setPath(relPath);
+                    log.info("치환 완료(Resource): {} → {}", url, relPath);
                 }
-                FilesMeta meta = deque.pollFirst();
+            }
 
-                log.info("inject(Resource) 매핑 확인 → url='{}', aasId='{}', submodelId='{}', idShort='{}', path='{}'",
-                        url, meta.getAasId(), meta.getSubmodelId(), meta.getIdShort(), meta.getPath());
+            // URL에 대응하는 첫 번째 FilesMeta의 상대경로, 원본 파일이 없으면 null (치환하지 않음)
+            private String resolve(String url, String kind) {
+                if (url == null || !url.startsWith("http"))
+                    return null;
 
-                try {
-                    String hash = meta.getHash();
-                    String ext = meta.getExtension();
-                    String relPath = meta.getPath();
+                Deque<FilesMeta> deque = remaining.computeIfAbsent(url,
+                        k -> new ArrayDeque<>(metaMap.getOrDefault(k, List.of())));
+                if (deque.isEmpty()) {
+                    log.warn("메타 없음({}): json={} url={}", kind, jsonName, url);
+                    return null;
+                }
+                FilesMeta meta = deque.pollFirst(); // 해당 URL에 대응하는 첫 번째 FilesMeta 정보를 꺼냄
 
-                    // 실제 파일 복사
-                    Path dst = Paths.get(tempPath, relPath);
-                    Files.createDirectories(dst.getParent());
-                    Files.copy(Paths.get(uploadPath, hash + ext),
-                            dst, StandardCopyOption.REPLACE_EXISTING);
+                log.info("inject({}) 매핑 확인 → url='{}', aasId='{}', submodelId='{}', idShort='{}', path='{}'",
+                        kind, url, meta.getAasId(), meta.getSubmodelId(), meta.getIdShort(), meta.getPath());
 
-                    // 모델 내 Resource 요소의 path를 상대경로로 치환
-                    res.setPath(relPath);
-                    log.info("치환 완료(Resource): {} → {}", url, relPath);
-
-                } catch (Exception ex) {
-                    log.error("injectInMemoryFiles(Resource) 오류 for {}: {}", url, ex.getMessage());
+                String relPath = meta.getPath(); // DB에 저장된 상대경로
+                String hash = meta.getHash();
+                String extension = meta.getExtension();
+                if (!blobStore.exists(hash, extension)) {
+                    log.error("injectAttachmentSources 오류({}) for {}: 원본 파일 없음 {}{}", kind, url, hash, extension);
+                    return null;
                 }
+                injected.put(relPath, () -> blobStore.openStream(hash, extension));
+                return relPath;
             }
         }.visit(env);
+        return injected;
     }
 
     /**
-     * 🔵 injectInMemoryFiles()가 복사해 놓은 tempPath/{path} 파일들을 읽어
-     * InMemoryFile 인스턴스 목록으로 반환
-     * 
-     * AASXSerializer.write 시 실제 파일 컨텐츠를 포함하려면 InMemoryFile 리스트가 필요
+     * 🔵 모델 내 상대경로 File/Resource 참조를 패키지 경로 → 원본 파일 목록으로 반환
+     * - injectAttachmentSources()가 치환한 경로는 저장소 원본 파일
+     * - 그 외 상대경로는 tempPath/{path} 에 파일이 있을 때만 포함
      *
-     * @param env AASX 생성 대상 Environment 객체
-     * @return InMemoryFile 목록 (파일 바이트 + 경로)
+     * @param env      AASX 생성 대상 Environment 객체
+     * @param injected 상대경로 → 원본 파일 (치환 결과)
+     * @return 패키지 경로 → 원본 파일 (순회 순서, 동일 경로는 처음 것만)
      */
-    public List<InMemoryFile> getInMemoryFiles(Environment env) {
-        List<InMemoryFile> files = new ArrayList<>();
+    private Map<String, InputStreamSource> collectAttachmentSources(Environment env,
+            Map<String, InputStreamSource> injected) {
+        Map<String, InputStreamSource> files = new LinkedHashMap<>();
         new AssetAdministrationShellElementWalkerVisitor() {
             @Override
             public void visit(File fileEl) {
-                String val = fileEl.getValue();
-                if (val != null && !val.startsWith("http")) {
-                    Path p = Paths.get(tempPath, val);
-                    try {
-                        files.add(new InMemoryFile(Files.readAllBytes(p), val));
-                        log.debug("InMemoryFile 추가(File): {}", val);
-                    } catch (IOException e) {
-                        log.warn("InMemoryFile 생성 실패 ({}): {}", val, e.getMessage());
-                    }
-                }
+                add(fileEl.getValue(), "File");
             }
 
             @Override
             public void visit(Resource res) {
-                String path = res != null ? res.getPath() : null;
-                if (path != null && !path.startsWith("http")) {
-                    Path p = Paths.get(tempPath, path);
-                    try {
-                        files.add(new InMemoryFile(Files.readAllBytes(p), path));
-                        log.debug("InMemoryFile 추가(Resource): {}", path);
-                    } catch (IOException e) {
-                        log.warn("InMemoryFile 생성 실패 ({}): {}", path, e.getMessage());
+                add(res != null ? res.getPath() : null, "Resource");
+            }
+
+            private void add(String path, String kind) {
+                if (path == null || path.startsWith("http") || files.containsKey(path))
+                    return;
+                InputStreamSource source = injected.get(path);
+                if (source == null) {
+                    Path file = Paths.get(tempPath, path);
+                    if (!Files.isRegularFile(file)) {
+                        log.warn("첨부파일 원본 없음 ({}): {}", kind, path);
+                        return;
                     }
+                    source = new FileSystemResource(file);
                 }
+                files.put(path, source);
+                log.debug("첨부파일 추가({}): {}", kind, path);
             }
         }.visit(env);
         return files;
     }
 
     // 이하 getter들…
-    public List<String> getUploadedAasxFileNames() {
-        return new ArrayList<>(uploadedAasxFileNames);
+    public List<String> getUploadedAasxFileNames(String workspaceId) {
+        UploadWorkspace workspace = workspaceRegistry.find(workspaceId);
+        return workspace != null ? new ArrayList<>(workspace.getAasxVariantNames()) : new ArrayList<>();
     }
 
-    public List<String> getUploadedJsonFileNames() {
-        return new ArrayList<>(uploadedFileNames);
+    public List<String> getUploadedJsonFileNames(String workspaceId) {
+        UploadWorkspace workspace = workspaceRegistry.find(workspaceId);
+        return workspace != null ? workspace.getJsonFileNames() : new ArrayList<>();
     }
 
-    public List<Environment> getUploadedEnvironments() {
-        return new ArrayList<>(uploadedEnvironments);
+    // JSON 파일 이름으로 Environment 조회 (O(1)), 없으면 null
+    public Environment getUploadedEnvironment(String workspaceId, String jsonFileName) {
+        UploadWorkspace workspace = workspaceRegistry.find(workspaceId);
+        return workspace != null ? workspace.getJsonEnvironments().get(jsonFileName) : null;
     }
 
 }
@@ -0,0 +1,297 @@
+package com.aasx.transformer.upload.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.aasx.transformer.upload.dto.PackageCacheStats;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 업로드된 AASX 패키지 바이트 캐시 (힙 사용량 상한)
+ * - 힙에 보관하는 패키지 총 크기가 upload.package-cache.max-bytes를 넘으면
+ *   가장 오래 사용되지 않은 패키지부터 {temp-path}/package-cache 임시 파일로 내보냄
+ * - 내보낸 패키지는 읽을 때 메모리 매핑(MappedByteBuffer)으로 다시 열어 힙 복사 없이 스트리밍
+ * - 적중/미스/내보내기 횟수를 관리자 화면에서 조회
+ */
+@Slf4j
+@Component
+public class PackageByteCache {
+
+    private static final String SPILL_DIR = "package-cache";
+
+    @Value("${upload.temp-path}")
+    private String tempPath;
+
+    @Value("${upload.package-cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    // 키 → 엔트리 (접근 순서 = LRU 순서), this로 동기화
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 힙에 남아 있는 패키지 총 크기 (내보내기 예정 엔트리 제외)
+    private long heapBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder spillHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder spills = new LongAdder();
+
+    private static class Entry {
+        final String key;
+        final long length;
+        // bytes가 null이면 spillFile에서 읽음 (spillFile을 먼저 기록한 뒤 bytes를 비움)
+        volatile byte[] bytes;
+        volatile Path spillFile;
+        boolean spilling;
+        volatile boolean removed;
+
+        Entry(String key, byte[] bytes) {
+            this.key = key;
+            this.bytes = bytes;
+            this.length = bytes.length;
+        }
+    }
+
+    /**
+     * 패키지 저장 (같은 키가 있으면 교체), 예산을 넘으면 오래된 패키지를 디스크로 내보냄
+     */
+    public void put(String workspaceId, String fileName, byte[] bytes) {
+        Entry entry = new Entry(key(workspaceId, fileName), bytes);
+        Entry previous;
+        List<Entry> victims;
+        synchronized (this) {
+            previous = entries.put(entry.key, entry);
+            if (previous != null) {
+                detach(previous);
+            }
+            heapBytes += entry.length;
+            victims = selectVictims();
+        }
+        if (previous != null) {
+            release(previous);
+        }
+        victims.forEach(this::spill);
+    }
+
+    /**
+     * 패키지 읽기 스트림, 없으면 null
+     * - 힙에 있으면 ByteArrayInputStream
+     * - 내보낸 패키지는 메모리 매핑된 임시 파일에서 읽음
+     */
+    public InputStream open(String workspaceId, String fileName) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key(workspaceId, fileName));
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        byte[] bytes = entry.bytes;
+        if (bytes != null) {
+            hits.increment();
+            return new ByteArrayInputStream(bytes);
+        }
+        Path file = entry.spillFile;
+        if (file == null) {
+            // 읽는 사이 제거됨
+            misses.increment();
+            return null;
+        }
+        spillHits.increment();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // 매핑은 채널을 닫아도 유지됨
+            return new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, entry.length));
+        }
+    }
+
+    public void remove(String workspaceId, String fileName) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.remove(key(workspaceId, fileName));
+            if (entry != null) {
+                detach(entry);
+            }
+        }
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    // 작업 공간의 모든 패키지 제거 (새 업로드 / 작업 공간 만료 시)
+    public void removeWorkspace(String workspaceId) {
+        String prefix = workspaceId + "/";
+        List<Entry> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.key.startsWith(prefix)) {
+                    it.remove();
+                    detach(entry);
+                    removed.add(entry);
+                }
+            }
+        }
+        removed.forEach(this::release);
+    }
+
+    public synchronized PackageCacheStats snapshot() {
+        int spilled = 0;
+        long spilledBytes = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.bytes == null) {
+                spilled++;
+                spilledBytes += entry.length;
+            }
+        }
+        return new PackageCacheStats(entries.size(), entries.size() - spilled, spilled,
+                heapBytes, spilledBytes, maxBytes,
+                hits.sum(), spillHits.sum(), misses.sum(), spills.sum());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<Entry> all;
+        synchronized (this) {
+            all = new ArrayList<>(entries.values());
+            entries.clear();
+            heapBytes = 0;
+        }
+        all.forEach(this::release);
+    }
+
+    // 예산을 넘는 동안 LRU 순으로 힙 엔트리를 내보내기 대상으로 표시 (this 잠금 상태에서 호출)
+    private List<Entry> selectVictims() {
+        List<Entry> victims = new ArrayList<>();
+        Iterator<Entry> it = entries.values().iterator();
+        while (heapBytes > maxBytes && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.bytes != null && !entry.spilling) {
+                entry.spilling = true;
+                heapBytes -= entry.length;
+                victims.add(entry);
+            }
+        }
+        return victims;
+    }
+
+    // 맵에서 빠진 엔트리의 힙 사용량 차감 (this 잠금 상태에서 호출)
+    private void detach(Entry entry) {
+        entry.removed = true;
+        if (entry.bytes != null && !entry.spilling) {
+            heapBytes -= entry.length;
+        }
+    }
+
+    // 디스크로 내보내기 (잠금 밖에서 파일 기록)
+    private void spill(Entry entry) {
+        byte[] bytes = entry.bytes;
+        if (bytes == null || entry.removed) {
+            return;
+        }
+        Path file = null;
+        try {
+            Path dir = Paths.get(tempPath, SPILL_DIR);
+            Files.createDirectories(dir);
+            file = Files.createTempFile(dir, "pkg-", ".aasx");
+            Files.write(file, bytes);
+            entry.spillFile = file;
+            entry.bytes = null;
+            spills.increment();
+            log.info("패키지 캐시 내보내기: {} ({} bytes) → {}", entry.key, entry.length, file.getFileName());
+            if (entry.removed) {
+                release(entry);
+            }
+        } catch (IOException e) {
+            // 내보내기 실패 시 힙에 그대로 유지
+            log.warn("패키지 캐시 내보내기 실패: {} ({})", entry.key, e.getMessage());
+            deleteQuietly(file);
+            synchronized (this) {
+                entry.spilling = false;
+                if (!entry.removed) {
+                    heapBytes += entry.length;
+                }
+            }
+        }
+    }
+
+    private void release(Entry entry) {
+        entry.bytes = null;
+        Path file = entry.spillFile;
+        if (file != null) {
+            entry.spillFile = null;
+            deleteQuietly(file);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Windows에서 매핑이 남아 있으면 삭제 실패 → 종료 시 삭제
+            log.debug("패키지 캐시 임시 파일 삭제 실패: {}", file);
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    private static String key(String workspaceId, String fileName) {
+        return workspaceId + "/" + fileName;
+    }
+
+    // MappedByteBuffer를 InputStream으로 노출
+    private static class MappedInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        MappedInputStream(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.min(Math.max(n, 0), buffer.remaining());
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.aasx.transformer.upload.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.DeserializationException;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.SerializationException;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.json.JsonDeserializer;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.json.JsonSerializer;
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 패키지 지문(전체 AASX 바이트의 SHA-256) → 처리 완료된 Environment 캐시
+ * - 같은 패키지를 다시 업로드하면 XML 역직렬화, 첨부파일 추출/해시, DB 등록을 모두 건너뛰고
+ *   해시 URL이 이미 바인딩된 Environment를 그대로 사용 (재업로드가 멱등)
+ * - 첨부파일 메타가 삭제되면 해당 AAS를 포함하는 지문은 무효화 (다음 업로드에서 다시 등록)
+ * - 최대 upload.fingerprint-cache.max-entries개, 가장 오래 사용되지 않은 지문부터 제거 (LRU)
+ * - Environment는 가변 객체이므로 직렬화된 JSON으로 보관하고 조회마다 새 Environment로 복원
+ *   (여러 작업 공간이 같은 객체를 공유하다 한쪽의 재처리/수정이 다른 쪽에 번지지 않도록)
+ */
+@Slf4j
+@Component
+public class PackageFingerprintCache {
+
+    @Value("${upload.fingerprint-cache.max-entries:64}")
+    private int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // ObjectMapper 기반, 스레드 안전
+    private final JsonSerializer serializer = new JsonSerializer();
+    private final JsonDeserializer deserializer = new JsonDeserializer();
+
+    // 지문 → 처리 완료된 Environment JSON (접근 순서 = LRU 순서), this로 동기화
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static class Entry {
+        final byte[] json;
+        // 메타 삭제 시 무효화 대상 판별용
+        final Set<String> aasIds;
+
+        Entry(byte[] json, Set<String> aasIds) {
+            this.json = json;
+            this.aasIds = aasIds;
+        }
+    }
+
+    /**
+     * 처리 완료된 Environment 조회 (호출마다 새로 복원한 사본), 없으면 null
+     */
+    public Environment find(String fingerprint) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(fingerprint);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        try {
+            Environment environment = deserializer.read(new ByteArrayInputStream(entry.json), Environment.class);
+            hits.increment();
+            log.info("패키지 지문 캐시 적중: {} (hits={}, misses={})", fingerprint, hits.sum(), misses.sum());
+            return environment;
+        } catch (DeserializationException e) {
+            log.warn("패키지 지문 캐시 복원 실패: {} ({})", fingerprint, e.getMessage());
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * 해시 URL 바인딩까지 끝난 Environment 등록 (등록 시점의 내용을 직렬화해 보관)
+     */
+    public void put(String fingerprint, Environment environment) {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try {
+            serializer.write(json, environment);
+        } catch (SerializationException e) {
+            log.warn("패키지 지문 캐시 등록 실패: {} ({})", fingerprint, e.getMessage());
+            return;
+        }
+        Entry entry = new Entry(json.toByteArray(), collectAasIds(environment));
+        synchronized (this) {
+            entries.put(fingerprint, entry);
+            if (entries.size() > maxEntries) {
+                String eldest = entries.keySet().iterator().next();
+                entries.remove(eldest);
+                log.info("패키지 지문 캐시 제거 (최대 개수 초과): {}", eldest);
+            }
+        }
+    }
+
+    // 주어진 AAS ID를 포함하는 패키지 지문 무효화 (파일 메타 삭제 시)
+    public synchronized void invalidateByAasId(String aasId) {
+        entries.entrySet().removeIf(e -> {
+            if (e.getValue().aasIds.contains(aasId)) {
+                log.info("패키지 지문 캐시 무효화 (aasId={}): {}", aasId, e.getKey());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static Set<String> collectAasIds(Environment environment) {
+        if (environment.getAssetAdministrationShells() == null) {
+            return Collections.emptySet();
+        }
+        Set<String> ids = new HashSet<>();
+        for (AssetAdministrationShell shell : environment.getAssetAdministrationShells()) {
+            ids.add(shell.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,193 @@
+package com.aasx.transformer.upload.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.internal.AASXUtils;
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.aasx.transformer.deserializer.AASXFileDeserializer;
+import com.aasx.transformer.deserializer.ExtractedFile;
+import com.aasx.transformer.deserializer.UnchangedPartLookup;
+import com.aasx.transformer.deserializer.ZipCentralDirectory;
+import com.aasx.transformer.deserializer.ZipCentralDirectory.PartChecksum;
+import com.aasx.transformer.storage.BlobStore;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 패키지 리비전 캐시 (증분 업로드)
+ * - 같은 패키지(= 같은 AAS ID 집합)의 마지막 처리 결과를 보관
+ *   · 첨부파트별 ZIP CRC-32 / 크기 → 추출 결과(해시, 확장자)
+ *   · 복합키 + 해시 → 등록된 다운로드 URL
+ * - 내용이 일부만 바뀐 패키지를 다시 업로드하면 CRC가 같은 파트는 추출/해시를,
+ *   복합키와 해시가 같은 첨부파일은 DB 등록을 건너뛰고 이전 결과를 재사용
+ * - 첨부파일 메타가 삭제되면 해당 AAS의 리비전은 무효화
+ * - 최대 upload.revision-cache.max-entries개, 가장 오래 사용되지 않은 리비전부터 제거 (LRU)
+ */
+@Slf4j
+@Component
+public class PackageRevisionCache {
+
+    @Value("${upload.revision-cache.max-entries:128}")
+    private int maxEntries;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    // 패키지 식별자(정렬된 AAS ID) → 마지막 리비전 (접근 순서 = LRU 순서), this로 동기화
+    private final LinkedHashMap<String, Revision> revisions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static class PartRecord {
+        final long crc;
+        final long size;
+        final String hash;
+        final String extension;
+
+        PartRecord(long crc, long size, String hash, String extension) {
+            this.crc = crc;
+            this.size = size;
+            this.hash = hash;
+            this.extension = extension;
+        }
+    }
+
+    private static class Revision {
+        // partKey → 추출 결과
+        final Map<String, PartRecord> parts;
+        // "복합키#해시" → 다운로드 URL
+        final Map<String, String> urlByRegistration;
+
+        Revision(Map<String, PartRecord> parts, Map<String, String> urlByRegistration) {
+            this.parts = parts;
+            this.urlByRegistration = urlByRegistration;
+        }
+    }
+
+    /**
+     * 새 Environment와 파트 체크섬을 이전 리비전과 비교하는 조회기
+     * - CRC-32, 크기, 확장자가 같고 {hash}{ext} 물리 파일이 남아 있는 파트만 재사용
+     */
+    public UnchangedPartLookup unchangedParts(Environment environment, Map<String, PartChecksum> checksums) {
+        if (checksums.isEmpty()) {
+            return UnchangedPartLookup.NONE;
+        }
+        Revision previous = find(identityOf(environment));
+        if (previous == null) {
+            return UnchangedPartLookup.NONE;
+        }
+        return (path, partName) -> {
+            String key = ZipCentralDirectory.partKey(partName);
+            PartChecksum current = checksums.get(key);
+            PartRecord record = previous.parts.get(key);
+            if (current == null || record == null
+                    || current.getCrc() != record.crc || current.getSize() != record.size) {
+                return null;
+            }
+            String extension = AASXFileDeserializer.extensionOf(path);
+            if (!extension.equals(record.extension)
+                    || !blobStore.exists(record.hash, record.extension)) {
+                return null;
+            }
+            return new ExtractedFile(path, record.hash, record.size, extension);
+        };
+    }
+
+    /**
+     * 이전 리비전에서 같은 복합키 + 해시로 등록된 다운로드 URL, 없으면 빈 맵
+     */
+    public Map<String, String> registeredUrls(Environment environment) {
+        Revision previous = find(identityOf(environment));
+        return previous != null ? previous.urlByRegistration : Collections.emptyMap();
+    }
+
+    /**
+     * 해시 URL 바인딩까지 끝난 패키지의 리비전 기록 (이전 리비전 교체)
+     *
+     * @param checksums         파트별 ZIP CRC-32 / 크기 (비어 있으면 파트 재사용 정보 없이 기록)
+     * @param extractedFiles    이번에 사용한 추출 결과
+     * @param urlByRegistration "복합키#해시" → 다운로드 URL
+     */
+    public void record(Environment environment, Map<String, PartChecksum> checksums,
+            List<ExtractedFile> extractedFiles, Map<String, String> urlByRegistration) {
+        String identity = identityOf(environment);
+        if (identity.isEmpty()) {
+            return;
+        }
+        Map<String, PartRecord> parts = new HashMap<>();
+        for (ExtractedFile file : extractedFiles) {
+            String key = partKeyOf(file.getPath());
+            PartChecksum checksum = key != null ? checksums.get(key) : null;
+            if (checksum != null) {
+                parts.put(key, new PartRecord(checksum.getCrc(), checksum.getSize(), file.getHash(),
+                        file.getExtension()));
+            }
+        }
+        Revision revision = new Revision(parts, new HashMap<>(urlByRegistration));
+        synchronized (this) {
+            revisions.put(identity, revision);
+            if (revisions.size() > maxEntries) {
+                String eldest = revisions.keySet().iterator().next();
+                revisions.remove(eldest);
+                log.info("패키지 리비전 캐시 제거 (최대 개수 초과): {}", eldest);
+            }
+        }
+    }
+
+    // 주어진 AAS ID를 포함하는 패키지 리비전 무효화 (파일 메타 삭제 시)
+    public synchronized void invalidateByAasId(String aasId) {
+        revisions.keySet().removeIf(identity -> {
+            if (Arrays.asList(identity.split("\n")).contains(aasId)) {
+                log.info("패키지 리비전 캐시 무효화 (aasId={})", aasId);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public synchronized int size() {
+        return revisions.size();
+    }
+
+    private synchronized Revision find(String identity) {
+        return identity.isEmpty() ? null : revisions.get(identity);
+    }
+
+    public static String registrationKey(String compositeKey, String hash) {
+        return compositeKey + "#" + hash;
+    }
+
+    // 패키지 식별자: 정렬된 AAS ID를 줄바꿈으로 연결 (AAS가 없으면 빈 문자열 → 기록하지 않음)
+    private static String identityOf(Environment environment) {
+        if (environment.getAssetAdministrationShells() == null) {
+            return "";
+        }
+        TreeSet<String> ids = new TreeSet<>();
+        for (AssetAdministrationShell shell : environment.getAssetAdministrationShells()) {
+            if (shell.getId() != null) {
+                ids.add(shell.getId());
+            }
+        }
+        return String.join("\n", ids);
+    }
+
+    // File 요소 경로 → 추출 시 사용한 OPC 파트 이름과 같은 규칙의 키, 잘못된 경로면 null
+    private static String partKeyOf(String path) {
+        try {
+            String adjusted = AASXUtils.removeFilePartOfURI(path);
+            return ZipCentralDirectory.partKey(PackagingURIHelper.createPartName(adjusted).getName());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
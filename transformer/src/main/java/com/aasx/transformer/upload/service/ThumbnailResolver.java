@@ -0,0 +1,121 @@
+package com.aasx.transformer.upload.service;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetInformation;
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.eclipse.digitaltwin.aas4j.v3.model.Resource;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ AssetInformation.defaultThumbnail 조회
+ * - aas4j 타입 API(AssetInformation / Resource)로 경로, contentType, globalAssetId 조회
+ * - Resource.getPath()가 비어있는 경우에만 구현 클래스의 getValue()/getValueUrl() 을 fallback으로 사용
+ *   (클래스별 MethodHandle을 한 번만 찾아 캐시, 없으면 NO_ACCESSOR로 캐시)
+ */
+@Slf4j
+@Component
+public class ThumbnailResolver {
+
+    // 접근자가 없는 클래스 표시용
+    private static final MethodHandle NO_ACCESSOR = MethodHandles.constant(Object.class, null);
+
+    // Resource 구현 클래스 → 경로 fallback 접근자 (getValue → getValueUrl 순)
+    private static final ClassValue<MethodHandle> PATH_FALLBACK = new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            MethodHandle handle = findStringGetter(type, "getValue");
+            if (handle == null)
+                handle = findStringGetter(type, "getValueUrl");
+            return handle != null ? handle : NO_ACCESSOR;
+        }
+    };
+
+    @Getter
+    @AllArgsConstructor
+    public static class Thumbnail {
+        private final String aasId;
+        private final String globalAssetId;
+        private final String path;
+        private final String contentType;
+
+        // 썸네일 메타 복합키: "aasId::globalAssetId::파일명"
+        public String compositeKey() {
+            return aasId + "::" + globalAssetId + "::" + new File(path).getName();
+        }
+    }
+
+    /**
+     * AAS의 defaultThumbnail 조회
+     *
+     * @return 경로가 있는 썸네일, 없으면 null
+     */
+    public Thumbnail resolve(AssetAdministrationShell shell) {
+        AssetInformation assetInfo = shell.getAssetInformation();
+        if (assetInfo == null)
+            return null;
+        Resource thumb = assetInfo.getDefaultThumbnail();
+        if (thumb == null)
+            return null;
+
+        String path = pathOf(thumb);
+        if (path == null)
+            return null;
+        return new Thumbnail(shell.getId(), assetInfo.getGlobalAssetId(), path, thumb.getContentType());
+    }
+
+    /**
+     * Environment에서 경로가 있는 첫 번째 defaultThumbnail 조회
+     */
+    public Thumbnail resolveFirst(Environment environment) {
+        if (environment.getAssetAdministrationShells() == null)
+            return null;
+        for (AssetAdministrationShell shell : environment.getAssetAdministrationShells()) {
+            Thumbnail thumbnail = resolve(shell);
+            if (thumbnail != null)
+                return thumbnail;
+        }
+        return null;
+    }
+
+    // Resource 경로: getPath() 우선, 비어있으면 캐시된 fallback 접근자
+    String pathOf(Resource thumb) {
+        String path = thumb.getPath();
+        if (path != null && !path.isBlank())
+            return path;
+
+        MethodHandle fallback = PATH_FALLBACK.get(thumb.getClass());
+        if (fallback == NO_ACCESSOR)
+            return null;
+        try {
+            Object raw = fallback.invoke(thumb);
+            return raw instanceof String && !((String) raw).isBlank() ? (String) raw : null;
+        } catch (Throwable t) {
+            log.warn("default thumbnail 경로 fallback 조회 실패 ({}): {}", thumb.getClass().getSimpleName(), t.toString());
+            return null;
+        }
+    }
+
+    // public 인자 없는 String 반환 메서드를 (Object)Object 형태의 MethodHandle로 변환, 없으면 null
+    private static MethodHandle findStringGetter(Class<?> type, String name) {
+        try {
+            java.lang.reflect.Method method = type.getMethod(name);
+            if (method.getReturnType() != String.class || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                return null;
+            }
+            return MethodHandles.publicLookup().unreflect(method)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
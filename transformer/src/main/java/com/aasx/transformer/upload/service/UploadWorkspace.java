@@ -0,0 +1,102 @@
+package com.aasx.transformer.upload.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+
+import com.aasx.transformer.deserializer.ExtractedFile;
+import com.aasx.transformer.deserializer.ZipCentralDirectory.PartChecksum;
+
+import lombok.Getter;
+
+/**
+ * ✅ 업로드 작업 공간 (X-Workspace-Id 단위)
+ * - 사용자(브라우저 세션)마다 업로드한 AASX / JSON 목록을 분리하여 서로 덮어쓰지 않도록 함
+ * - 패키지 바이트는 PackageByteCache에 (작업 공간 ID, 파일 이름) 키로 보관
+ * - 패키지 목록은 업로드가 끝날 때 새 맵으로 통째로 교체 → 조회는 잠금 없이 O(1)
+ * - 마지막 사용 시각을 기록하여 UploadWorkspaceRegistry가 TTL/LRU로 정리
+ */
+@Getter
+public class UploadWorkspace {
+
+    private final String id;
+
+    // 마지막 사용 시각 (TTL/LRU 정리 기준)
+    private volatile long lastAccessMillis = System.currentTimeMillis();
+
+    // AASX 파일 이름 → Environment (업로드 순서, 읽기 전용 스냅샷)
+    private volatile Map<String, Environment> packages = Collections.emptyMap();
+    // 업로드 시 단일 패스로 추출된 첨부파일 (해시 등록 시 한 번 소비 후 제거)
+    private final Map<String, List<ExtractedFile>> extractedFiles = new ConcurrentHashMap<>();
+    // AASX 파일 이름 → 패키지 지문 (전체 바이트의 SHA-256)
+    private final Map<String, String> packageFingerprints = new ConcurrentHashMap<>();
+    // 해시 URL 바인딩까지 끝난 패키지 (지문 캐시 재사용 포함) → 해시 등록 단계 생략
+    private final Set<String> processedPackages = ConcurrentHashMap.newKeySet();
+    // AASX 파일 이름 → ZIP 파트별 CRC-32 / 크기 (이전 리비전과의 증분 비교용)
+    private final Map<String, Map<String, PartChecksum>> partChecksums = new ConcurrentHashMap<>();
+
+    // JSON 파일 이름 → Environment (업로드 순서, 읽기 전용 스냅샷)
+    private volatile Map<String, Environment> jsonEnvironments = Collections.emptyMap();
+    // JSON 업로드 시 등록된 AASX 파일 이름 목록
+    private volatile List<String> aasxVariantNames = Collections.emptyList();
+    // AASX 기본 이름("{base}-url.aasx"의 base) → JSON 내용 해시
+    private final Map<String, String> contentHashByBaseName = new ConcurrentHashMap<>();
+    // JSON 내용 해시 → JSON 원본 바이트 (공유 원본 캐시에서 제거되어도 AASX 변형을 다시 만들 수 있도록)
+    private final Map<String, byte[]> jsonSources = new ConcurrentHashMap<>();
+
+    // 같은 작업 공간 안의 업로드는 순서대로 처리 (다른 작업 공간과는 독립)
+    // 잠금 안에서 패키지 처리를 기다리므로 가상 스레드 고정(pinning)을 피하기 위해 ReentrantLock 사용
+    private final ReentrantLock uploadLock = new ReentrantLock();
+
+    public UploadWorkspace(String id) {
+        this.id = id;
+    }
+
+    public void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+
+    // 새 AASX 업로드 시작: 이전 패키지 상태 제거
+    public void resetPackages() {
+        packages = Collections.emptyMap();
+        extractedFiles.clear();
+        packageFingerprints.clear();
+        processedPackages.clear();
+        partChecksums.clear();
+    }
+
+    // AASX 업로드 결과 반영 (순서 유지)
+    public void publishPackages(LinkedHashMap<String, Environment> uploaded) {
+        packages = Collections.unmodifiableMap(new LinkedHashMap<>(uploaded));
+    }
+
+    // 패키지 하나의 Environment 교체 (캐시 무효화 후 재처리 결과, 순서 유지)
+    public void replacePackage(String fileName, Environment environment) {
+        if (packages.containsKey(fileName)) {
+            LinkedHashMap<String, Environment> replaced = new LinkedHashMap<>(packages);
+            replaced.put(fileName, environment);
+            packages = Collections.unmodifiableMap(replaced);
+        }
+    }
+
+    // JSON 업로드 결과 반영 (순서 유지)
+    public void publishJson(LinkedHashMap<String, Environment> uploaded, List<String> variantNames) {
+        jsonEnvironments = Collections.unmodifiableMap(new LinkedHashMap<>(uploaded));
+        aasxVariantNames = Collections.unmodifiableList(new ArrayList<>(variantNames));
+    }
+
+    public List<String> getPackageFileNames() {
+        return new ArrayList<>(packages.keySet());
+    }
+
+    public List<String> getJsonFileNames() {
+        return new ArrayList<>(jsonEnvironments.keySet());
+    }
+}
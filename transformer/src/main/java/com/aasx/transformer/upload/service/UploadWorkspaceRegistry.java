@@ -0,0 +1,128 @@
+package com.aasx.transformer.upload.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ✅ 업로드 작업 공간 레지스트리
+ * - 요청 헤더 X-Workspace-Id로 작업 공간을 구분 (헤더가 없거나 형식이 잘못되면 기본 작업 공간)
+ * - workspace.ttl-minutes 동안 사용되지 않은 작업 공간은 주기적으로 제거
+ * - 작업 공간 수가 workspace.max-count를 넘으면 가장 오래 사용되지 않은 것부터 제거 (LRU)
+ */
+@Slf4j
+@Component
+public class UploadWorkspaceRegistry {
+
+    public static final String HEADER = "X-Workspace-Id";
+    public static final String DEFAULT_ID = "default";
+
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    @Value("${workspace.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${workspace.max-count:256}")
+    private int maxCount;
+
+    @Autowired
+    private EnvironmentCache environmentCache;
+
+    @Autowired
+    private PackageByteCache packageByteCache;
+
+    private final Map<String, UploadWorkspace> workspaces = new ConcurrentHashMap<>();
+
+    /**
+     * 작업 공간 조회, 없으면 생성 (업로드 시 사용)
+     */
+    public UploadWorkspace getOrCreate(String workspaceId) {
+        String id = normalizeId(workspaceId);
+        UploadWorkspace workspace = workspaces.computeIfAbsent(id, k -> {
+            log.info("작업 공간 생성: {}", k);
+            return new UploadWorkspace(k);
+        });
+        workspace.touch();
+        if (workspaces.size() > maxCount) {
+            evictLeastRecentlyUsed(id);
+        }
+        return workspace;
+    }
+
+    /**
+     * 작업 공간 조회, 없으면 null (조회 요청으로 작업 공간을 만들지 않음)
+     */
+    public UploadWorkspace find(String workspaceId) {
+        UploadWorkspace workspace = workspaces.get(normalizeId(workspaceId));
+        if (workspace != null) {
+            workspace.touch();
+        }
+        return workspace;
+    }
+
+    public int size() {
+        return workspaces.size();
+    }
+
+    /**
+     * TTL이 지난 작업 공간 제거
+     */
+    @Scheduled(fixedDelayString = "${workspace.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(ttlMinutes);
+        workspaces.values().removeIf(workspace -> {
+            if (workspace.getLastAccessMillis() >= cutoff) {
+                return false;
+            }
+            release(workspace, "만료");
+            return true;
+        });
+    }
+
+    // 작업 공간 수 초과 시 가장 오래 사용되지 않은 작업 공간 제거 (방금 사용한 keepId 제외)
+    private void evictLeastRecentlyUsed(String keepId) {
+        while (workspaces.size() > maxCount) {
+            UploadWorkspace oldest = null;
+            for (UploadWorkspace workspace : workspaces.values()) {
+                if (workspace.getId().equals(keepId)) {
+                    continue;
+                }
+                if (oldest == null || workspace.getLastAccessMillis() < oldest.getLastAccessMillis()) {
+                    oldest = workspace;
+                }
+            }
+            if (oldest == null || !workspaces.remove(oldest.getId(), oldest)) {
+                return;
+            }
+            release(oldest, "최대 개수 초과");
+        }
+    }
+
+    private void release(UploadWorkspace workspace, String reason) {
+        workspace.resetPackages();
+        packageByteCache.removeWorkspace(workspace.getId());
+        environmentCache.clear(workspace.getId());
+        log.info("작업 공간 제거 ({}): {}", reason, workspace.getId());
+    }
+
+    // 헤더 값 검증: 없거나 형식이 잘못되면 기본 작업 공간
+    public static String normalizeId(String workspaceId) {
+        if (workspaceId == null || workspaceId.isBlank()) {
+            return DEFAULT_ID;
+        }
+        String id = workspaceId.trim();
+        if (!VALID_ID.matcher(id).matches()) {
+            log.warn("잘못된 작업 공간 ID → 기본 작업 공간 사용: '{}'", id);
+            return DEFAULT_ID;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,161 @@
+package com.aasx.transformer.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.AASXSerializer;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.xml.XmlSerializer;
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElement;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultEnvironment;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultFile;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.aasx.transformer.deserializer.AASXFileDeserializer;
+import com.aasx.transformer.deserializer.IngestedPackage;
+import com.aasx.transformer.storage.BlobCompressionPolicy;
+import com.aasx.transformer.storage.BlobDurability;
+import com.aasx.transformer.storage.FileSystemBlobStore;
+
+/**
+ * ✅ 실행 모드 부하 테스트 (기본 test 태스크에서 제외, ./gradlew benchmark 로 실행)
+ * - platform: Tomcat 기본 최대 스레드 수(200)의 고정 풀 + 플랫폼 스레드 첨부파일 풀
+ * - virtual: 요청마다 가상 스레드 + 가상 스레드 첨부파일 실행기 (spring.threads.virtual.enabled=true와 같은 구성)
+ * - 요청 1건 = AASX 단일 패스 처리(ZIP 해제 + 해시 + 디스크 저장) + SQLite 왕복을 흉내 낸 블로킹 대기
+ */
+@Tag("benchmark")
+class IngestExecutorModeBenchmarkTest {
+
+    private static final int REQUESTS = 2_000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int ATTACHMENTS = 4;
+    private static final int ATTACHMENT_SIZE = 64 * 1024;
+    // JDBC 왕복 등 CPU를 쓰지 않는 대기 시간
+    private static final long BLOCKING_MILLIS = 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void platformVersusVirtualThreads() throws Exception {
+        byte[] aasx = buildPackage();
+        AASXFileDeserializer deserializer = new AASXFileDeserializer();
+        BlobCompressionPolicy compressionPolicy = new BlobCompressionPolicy();
+        ReflectionTestUtils.setField(compressionPolicy, "policies", "");
+        compressionPolicy.init();
+        ReflectionTestUtils.setField(deserializer, "compressionPolicy", compressionPolicy);
+        FileSystemBlobStore blobStore = new FileSystemBlobStore();
+        ReflectionTestUtils.setField(blobStore, "uploadPath", dir.toString());
+        ReflectionTestUtils.setField(blobStore, "durability", BlobDurability.NONE);
+        blobStore.init();
+
+        // 워밍업
+        run(false, deserializer, blobStore, aasx, REQUESTS / 10);
+        run(true, deserializer, blobStore, aasx, REQUESTS / 10);
+
+        long[] platform = run(false, deserializer, blobStore, aasx, REQUESTS);
+        long[] virtual = run(true, deserializer, blobStore, aasx, REQUESTS);
+
+        report("platform", platform);
+        report("virtual ", virtual);
+    }
+
+    // 요청 count건을 동시에 제출하고 요청별 지연 시간(ns)을 반환 (마지막 원소는 전체 소요 시간)
+    private long[] run(boolean virtualThreads, AASXFileDeserializer deserializer, FileSystemBlobStore blobStore,
+            byte[] aasx, int count)
+            throws Exception {
+        IngestExecutorConfig config = new IngestExecutorConfig();
+        ReflectionTestUtils.setField(config, "virtualThreads", virtualThreads);
+        ReflectionTestUtils.setField(config, "attachmentPoolSize", 4);
+        ReflectionTestUtils.setField(config, "queueCapacity", 100);
+        ReflectionTestUtils.setField(config, "virtualConcurrencyLimit", 64);
+        AsyncTaskExecutor attachmentExecutor = config.attachmentIngestExecutor();
+
+        ExecutorService requests = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        long start = System.nanoTime();
+        try {
+            List<Future<Long>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long submitted = System.nanoTime();
+                futures.add(requests.submit(() -> {
+                    IngestedPackage ingested = deserializer.ingestAASXPackage(new ByteArrayInputStream(aasx),
+                            blobStore, attachmentExecutor);
+                    assertNotNull(ingested.getEnvironment());
+                    assertEquals(ATTACHMENTS, ingested.getFiles().size());
+                    Thread.sleep(BLOCKING_MILLIS);
+                    return System.nanoTime() - submitted;
+                }));
+            }
+            long[] latencies = new long[count + 1];
+            for (int i = 0; i < count; i++) {
+                latencies[i] = futures.get(i).get(5, TimeUnit.MINUTES);
+            }
+            latencies[count] = System.nanoTime() - start;
+            return latencies;
+        } finally {
+            requests.shutdown();
+            requests.awaitTermination(1, TimeUnit.MINUTES);
+            if (attachmentExecutor instanceof DisposableBean pool) {
+                pool.destroy();
+            } else if (attachmentExecutor instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static void report(String mode, long[] result) {
+        int count = result.length - 1;
+        long total = result[count];
+        long[] latencies = Arrays.copyOf(result, count);
+        Arrays.sort(latencies);
+        System.out.printf("[benchmark] %s: %d 요청 %d ms (%.0f req/s), p50 %.1f ms, p99 %.1f ms%n",
+                mode, count, TimeUnit.NANOSECONDS.toMillis(total), count / (total / 1e9),
+                latencies[count / 2] / 1e6, latencies[(int) (count * 0.99)] / 1e6);
+    }
+
+    private static byte[] buildPackage() throws Exception {
+        Random random = new Random(42);
+        List<SubmodelElement> elements = new ArrayList<>();
+        List<InMemoryFile> files = new ArrayList<>();
+        for (int i = 0; i < ATTACHMENTS; i++) {
+            String path = "/aasx/files/doc-" + i + ".bin";
+            byte[] content = new byte[ATTACHMENT_SIZE];
+            random.nextBytes(content);
+            elements.add(new DefaultFile.Builder().idShort("doc" + i).value(path)
+                    .contentType("application/octet-stream").build());
+            files.add(new InMemoryFile(content, path));
+        }
+        Environment environment = new DefaultEnvironment.Builder()
+                .submodels(new DefaultSubmodel.Builder()
+                        .id("https://example.com/submodel/benchmark")
+                        .idShort("Documents")
+                        .submodelElements(elements)
+                        .build())
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new AASXSerializer(new XmlSerializer()).write(environment, files, out);
+        return out.toByteArray();
+    }
+}
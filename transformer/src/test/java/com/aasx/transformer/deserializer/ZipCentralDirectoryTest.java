@@ -0,0 +1,57 @@
+package com.aasx.transformer.deserializer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.aasx.transformer.deserializer.ZipCentralDirectory.PartChecksum;
+
+class ZipCentralDirectoryTest {
+
+    @Test
+    void readsCrcAndSizePerPart() throws IOException {
+        byte[] manual = "manual manual manual".getBytes(StandardCharsets.UTF_8);
+        byte[] logo = "logo".getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.setComment("package comment");
+            write(zip, "aasx/files/Manual.pdf", manual);
+            write(zip, "aasx/files/logo.png", logo);
+        }
+
+        Map<String, PartChecksum> checksums = ZipCentralDirectory.read(out.toByteArray());
+
+        assertEquals(2, checksums.size());
+        assertEquals(new PartChecksum(crc(manual), manual.length), checksums.get("/aasx/files/manual.pdf"));
+        assertEquals(new PartChecksum(crc(logo), logo.length),
+                checksums.get(ZipCentralDirectory.partKey("/aasx/files/LOGO.png")));
+    }
+
+    @Test
+    void returnsEmptyForNonZip() {
+        assertTrue(ZipCentralDirectory.read("not a zip".getBytes(StandardCharsets.UTF_8)).isEmpty());
+        assertTrue(ZipCentralDirectory.read(new byte[0]).isEmpty());
+    }
+
+    private static void write(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+}
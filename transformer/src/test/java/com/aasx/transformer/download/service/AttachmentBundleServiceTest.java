@@ -0,0 +1,94 @@
+package com.aasx.transformer.download.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.aasx.transformer.storage.InMemoryBlobStore;
+import com.aasx.transformer.upload.dto.FilesMeta;
+
+class AttachmentBundleServiceTest {
+
+    private final AttachmentBundleService service = new AttachmentBundleService();
+    private final List<byte[]> contents = new ArrayList<>();
+
+    private final InMemoryBlobStore blobStore = new InMemoryBlobStore();
+
+    @BeforeEach
+    void setUp() {
+        FileDownloadService fileDownloadService = new FileDownloadService();
+        ReflectionTestUtils.setField(fileDownloadService, "blobStore", blobStore);
+        ReflectionTestUtils.setField(service, "fileDownloadService", fileDownloadService);
+        ReflectionTestUtils.setField(service, "blobStore", blobStore);
+    }
+
+    @Test
+    void storesCompressedMediaAndDeflatesOthers() throws IOException {
+        byte[] png = "png-bytes".getBytes();
+        byte[] txt = "hello hello hello hello".getBytes();
+        byte[] otherPng = "other-png-bytes".getBytes();
+        String pngHash = store(png, ".png");
+        String txtHash = store(txt, ".txt");
+        String otherPngHash = store(otherPng, ".png");
+
+        List<ZipEntry> entries = readZip(List.of(
+                meta("logo", ".png", "image/png", pngHash),
+                meta("notes", ".txt", "text/plain", txtHash),
+                // 같은 이름 + 다른 내용 → 이름 구분
+                meta("logo", ".png", "image/png", otherPngHash),
+                // 같은 이름 + 같은 내용 → 한 번만 포함
+                meta("notes", ".txt", "text/plain", txtHash),
+                // 물리 파일 없음 → 건너뜀
+                meta("missing", ".pdf", "application/pdf", DigestUtils.sha256Hex("missing"))));
+
+        assertEquals(3, entries.size());
+        assertEquals("logo.png", entries.get(0).getName());
+        assertEquals(ZipEntry.STORED, entries.get(0).getMethod());
+        assertEquals("notes.txt", entries.get(1).getName());
+        assertEquals(ZipEntry.DEFLATED, entries.get(1).getMethod());
+        assertEquals("logo (2).png", entries.get(2).getName());
+        assertArrayEquals(png, contents.get(0));
+        assertArrayEquals(txt, contents.get(1));
+        assertArrayEquals(otherPng, contents.get(2));
+    }
+
+    private List<ZipEntry> readZip(List<FilesMeta> metas) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.stream(metas).writeTo(out);
+
+        List<ZipEntry> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                contents.add(zip.readAllBytes());
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private String store(byte[] content, String extension) throws IOException {
+        return blobStore.put(new ByteArrayInputStream(content), extension).getHash();
+    }
+
+    private static FilesMeta meta(String name, String extension, String contentType, String hash) {
+        FilesMeta meta = new FilesMeta();
+        meta.setName(name);
+        meta.setExtension(extension);
+        meta.setContentType(contentType);
+        meta.setHash(hash);
+        return meta;
+    }
+}
@@ -0,0 +1,223 @@
+package com.aasx.transformer.download.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+class ByteRangeServiceTest {
+
+    private static final int SIZE = 10_000;
+
+    @TempDir
+    Path dir;
+
+    private final ByteRangeService service = new ByteRangeService();
+    private Path file;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[SIZE];
+        new Random(42).nextBytes(content);
+        file = dir.resolve("blob.bin");
+        Files.write(file, content);
+    }
+
+    @Test
+    void noRangeReturnsFullBody() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = respond(new HttpHeaders());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(SIZE, response.getHeaders().getContentLength());
+        assertArrayEquals(content, body(response));
+    }
+
+    @Test
+    void singleRangeReturnsPartialContent() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = respond(range("bytes=100-199"));
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 100-199/" + SIZE, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(100, response.getHeaders().getContentLength());
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 200), body(response));
+    }
+
+    @Test
+    void suffixAndOpenEndedRanges() throws IOException {
+        ResponseEntity<StreamingResponseBody> suffix = respond(range("bytes=-500"));
+        assertEquals("bytes 9500-9999/" + SIZE, suffix.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, SIZE - 500, SIZE), body(suffix));
+
+        ResponseEntity<StreamingResponseBody> open = respond(range("bytes=9000-"));
+        assertEquals("bytes 9000-9999/" + SIZE, open.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 9000, SIZE), body(open));
+    }
+
+    @Test
+    void multipleRangesReturnMultipartByteranges() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = respond(range("bytes=0-9,5000-5009"));
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        MediaType type = response.getHeaders().getContentType();
+        assertEquals("multipart", type.getType());
+        assertEquals("byteranges", type.getSubtype());
+        String boundary = type.getParameter("boundary");
+
+        byte[] body = body(response);
+        assertEquals(response.getHeaders().getContentLength(), body.length);
+
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        assertTrue(text.contains("--" + boundary + "\r\nContent-Type: application/octet-stream\r\nContent-Range: bytes 0-9/" + SIZE));
+        assertTrue(text.contains("Content-Range: bytes 5000-5009/" + SIZE + "\r\n\r\n"
+                + new String(Arrays.copyOfRange(content, 5000, 5010), StandardCharsets.ISO_8859_1)));
+        assertTrue(text.endsWith("\r\n--" + boundary + "--\r\n"));
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = respond(range("bytes=20000-"));
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */" + SIZE, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void malformedRangeIsIgnored() throws IOException {
+        for (String value : new String[] { "bytes=abc", "items=0-9", "bytes=9-0" }) {
+            ResponseEntity<StreamingResponseBody> response = respond(range(value));
+
+            assertEquals(HttpStatus.OK, response.getStatusCode(), value);
+            assertArrayEquals(content, body(response), value);
+        }
+    }
+
+    @Test
+    void multiRangeServesSatisfiableSubset() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = respond(range("bytes=20000-,0-9"));
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 0-9/" + SIZE, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 10), body(response));
+    }
+
+    @Test
+    void emptyFileIgnoresRange() throws IOException {
+        Path empty = Files.write(dir.resolve("empty.bin"), new byte[0]);
+
+        ResponseEntity<StreamingResponseBody> response = service.respond(empty,
+                MediaType.APPLICATION_OCTET_STREAM, new HttpHeaders(), range("bytes=0-"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(0, response.getHeaders().getContentLength());
+        assertEquals(0, body(response).length);
+    }
+
+    @Test
+    void ifRangeMismatchReturnsFullBody() throws IOException {
+        HttpHeaders request = range("bytes=0-9");
+        request.set(HttpHeaders.IF_RANGE, "\"other\"");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"current\"");
+
+        ResponseEntity<StreamingResponseBody> response = service.respond(file, MediaType.APPLICATION_OCTET_STREAM, headers, request);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(content, body(response));
+
+        request.set(HttpHeaders.IF_RANGE, "\"current\"");
+        response = service.respond(file, MediaType.APPLICATION_OCTET_STREAM, headers, request);
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+    }
+
+    @Test
+    void ifRangeDateMustMatchLastModified() throws IOException {
+        HttpHeaders request = range("bytes=0-9");
+        request.setIfUnmodifiedSince(Files.getLastModifiedTime(file).toMillis());
+        request.set(HttpHeaders.IF_RANGE, request.getFirst(HttpHeaders.IF_UNMODIFIED_SINCE));
+        assertEquals(HttpStatus.PARTIAL_CONTENT, respond(request).getStatusCode());
+
+        request.set(HttpHeaders.IF_RANGE, "Thu, 01 Jan 2015 00:00:00 GMT");
+        assertEquals(HttpStatus.OK, respond(request).getStatusCode());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void rangeThroughput() throws IOException {
+        Path large = dir.resolve("large.bin");
+        byte[] chunk = new byte[1 << 20];
+        new Random(7).nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(large)) {
+            for (int i = 0; i < 64; i++) {
+                out.write(chunk);
+            }
+        }
+        long length = Files.size(large);
+        long rangeSize = 1 << 20;
+
+        long sent = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < 5; round++) {
+            for (long pos = 0; pos < length; pos += rangeSize) {
+                HttpHeaders request = range("bytes=" + pos + "-" + (pos + rangeSize - 1));
+                ResponseEntity<StreamingResponseBody> response = service.respond(large,
+                        MediaType.APPLICATION_OCTET_STREAM, new HttpHeaders(), request);
+                CountingOutputStream sink = new CountingOutputStream();
+                response.getBody().writeTo(sink);
+                assertEquals(rangeSize, sink.count);
+                sent += sink.count;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[benchmark] 1MiB Range 응답 %d건: %.1f MiB/s%n",
+                sent / rangeSize, sent / (1024.0 * 1024.0) / seconds);
+    }
+
+    private ResponseEntity<StreamingResponseBody> respond(HttpHeaders request) throws IOException {
+        return service.respond(file, MediaType.APPLICATION_OCTET_STREAM, new HttpHeaders(), request);
+    }
+
+    private static HttpHeaders range(String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, value);
+        return headers;
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
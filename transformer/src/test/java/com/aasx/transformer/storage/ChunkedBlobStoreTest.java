@@ -0,0 +1,111 @@
+package com.aasx.transformer.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ChunkedBlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sharesChunksBetweenNearIdenticalRevisions() throws IOException {
+        byte[] first = bytes(600_000, 1);
+        // 중간에 100바이트가 삽입된 다음 리비전
+        byte[] second = new byte[first.length + 100];
+        System.arraycopy(first, 0, second, 0, 300_000);
+        System.arraycopy(bytes(100, 2), 0, second, 300_000, 100);
+        System.arraycopy(first, 300_000, second, 300_100, first.length - 300_000);
+
+        ChunkedBlobStore store = store();
+        String firstHash = store.put(new ByteArrayInputStream(first), ".step").getHash();
+        String secondHash = store.put(new ByteArrayInputStream(second), ".step", BlobCodec.GZIP).getHash();
+        // 같은 내용은 레시피를 새로 만들지 않음
+        store.put(new ByteArrayInputStream(first), ".step");
+
+        ChunkStoreStats stats = store.snapshot();
+        assertEquals(2, stats.getChunkedFiles());
+        assertEquals(first.length + second.length, stats.getLogicalBytes());
+        assertTrue(stats.getDedupRatio() > 1.5, "dedup ratio " + stats.getDedupRatio());
+
+        assertArrayEquals(first, read(store, firstHash, ".step"));
+        assertArrayEquals(second, read(store, secondHash, ".step"));
+        assertEquals(BlobCodec.IDENTITY, store.codec(secondHash, ".step"));
+        assertEquals(second.length, store.size(secondHash, ".step"));
+        try (SeekableByteChannel channel = store.open(secondHash, ".step")) {
+            ByteBuffer slice = ByteBuffer.allocate(1_000);
+            channel.position(450_000);
+            while (slice.hasRemaining()) {
+                channel.read(slice);
+            }
+            assertArrayEquals(Arrays.copyOfRange(second, 450_000, 451_000), slice.array());
+        }
+
+        // 재기동: 레시피에서 참조 수 재구성
+        ChunkedBlobStore reopened = store();
+        assertEquals(stats, reopened.snapshot());
+
+        assertTrue(reopened.delete(firstHash, ".step"));
+        assertFalse(reopened.exists(firstHash, ".step"));
+        assertArrayEquals(second, read(reopened, secondHash, ".step"));
+        assertTrue(reopened.delete(secondHash, ".step"));
+        assertEquals(0, reopened.snapshot().getUniqueChunks());
+        try (Stream<Path> walk = Files.walk(dir.resolve("chunks"))) {
+            assertEquals(0, walk.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void storesSmallAttachmentsAsFiles() throws IOException {
+        byte[] small = bytes(1_000, 3);
+
+        ChunkedBlobStore store = store();
+        String hash = store.put(new ByteArrayInputStream(small), ".png").getHash();
+
+        assertTrue(Files.isRegularFile(dir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+                .resolve(hash + ".png")));
+        assertEquals(0, store.snapshot().getChunkedFiles());
+        assertArrayEquals(small, read(store, hash, ".png"));
+    }
+
+    private ChunkedBlobStore store() {
+        ChunkedBlobStore store = new ChunkedBlobStore();
+        ReflectionTestUtils.setField(store, "uploadPath", dir.toString());
+        ReflectionTestUtils.setField(store, "durability", BlobDurability.NONE);
+        ReflectionTestUtils.setField(store, "fileThreshold", 100_000);
+        ReflectionTestUtils.setField(store, "minChunkSize", 2_048);
+        ReflectionTestUtils.setField(store, "avgChunkSize", 8_192);
+        ReflectionTestUtils.setField(store, "maxChunkSize", 32_768);
+        store.init();
+        return store;
+    }
+
+    private static byte[] read(BlobStore store, String hash, String extension) throws IOException {
+        try (InputStream in = store.openStream(hash, extension)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] bytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
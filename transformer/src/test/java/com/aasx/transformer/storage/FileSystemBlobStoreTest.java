@@ -0,0 +1,98 @@
+package com.aasx.transformer.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class FileSystemBlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesToShardedPath() throws IOException {
+        FileSystemBlobStore store = store(false);
+        byte[] content = "manual".getBytes(StandardCharsets.UTF_8);
+
+        StoredBlob blob = store.put(new ByteArrayInputStream(content), ".pdf");
+
+        String hash = DigestUtils.sha256Hex(content);
+        assertEquals(hash, blob.getHash());
+        assertEquals(content.length, blob.getSize());
+        Path stored = dir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".pdf");
+        assertEquals(stored, store.find(hash, ".pdf"));
+        assertArrayEquals(content, Files.readAllBytes(stored));
+        // 임시 파일은 남지 않음
+        try (var temps = Files.list(dir.resolve(".tmp"))) {
+            assertEquals(0, temps.count());
+        }
+
+        assertTrue(store.delete(hash, ".pdf"));
+        assertNull(store.find(hash, ".pdf"));
+    }
+
+    @Test
+    void storesCompressedAndDecodesOnRead() throws IOException {
+        FileSystemBlobStore store = store(false);
+        byte[] content = "ISO-10303-21;\n".repeat(200).getBytes(StandardCharsets.UTF_8);
+
+        StoredBlob blob = store.put(new ByteArrayInputStream(content), ".step", BlobCodec.GZIP);
+
+        // 해시와 크기는 원본 기준, 저장된 파일은 압축본
+        String hash = DigestUtils.sha256Hex(content);
+        assertEquals(hash, blob.getHash());
+        assertEquals(content.length, blob.getSize());
+        assertEquals(BlobCodec.GZIP, store.codec(hash, ".step"));
+        assertTrue(store.find(hash, ".step").getFileName().toString().endsWith(".step.gz"));
+        assertTrue(store.size(hash, ".step") < content.length);
+        try (var in = store.openStream(hash, ".step")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+
+        assertTrue(store.delete(hash, ".step"));
+        assertNull(store.find(hash, ".step"));
+    }
+
+    @Test
+    void migratesFlatLayoutAndQuarantinesCorruptFiles() throws IOException {
+        byte[] good = "good".getBytes(StandardCharsets.UTF_8);
+        String goodHash = DigestUtils.sha256Hex(good);
+        Files.write(dir.resolve(goodHash + ".png"), good);
+        // 잘린 파일: 이름의 해시와 내용이 다름
+        String truncatedHash = DigestUtils.sha256Hex("complete content");
+        Files.write(dir.resolve(truncatedHash + ".txt"), "compl".getBytes(StandardCharsets.UTF_8));
+        // 이전 버전이 남긴 임시 파일
+        Files.write(dir.resolve("upload-123.tmp"), new byte[] { 1 });
+
+        FileSystemBlobStore store = store(true);
+
+        assertFalse(Files.exists(dir.resolve(goodHash + ".png")));
+        assertArrayEquals(good, Files.readAllBytes(store.find(goodHash, ".png")));
+        assertNull(store.find(truncatedHash, ".txt"));
+        assertTrue(Files.exists(dir.resolve(".corrupt").resolve(truncatedHash + ".txt")));
+        assertFalse(Files.exists(dir.resolve("upload-123.tmp")));
+    }
+
+    private FileSystemBlobStore store(boolean verifyOnMigrate) {
+        FileSystemBlobStore store = new FileSystemBlobStore();
+        ReflectionTestUtils.setField(store, "uploadPath", dir.toString());
+        ReflectionTestUtils.setField(store, "durability", BlobDurability.FILE);
+        ReflectionTestUtils.setField(store, "migrateFlatLayout", true);
+        ReflectionTestUtils.setField(store, "verifyOnMigrate", verifyOnMigrate);
+        store.init();
+        return store;
+    }
+}
@@ -0,0 +1,131 @@
+package com.aasx.transformer.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class PackBlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesReadsAndDeletesAcrossRestart() throws IOException {
+        byte[] small = bytes(1_000, 1);
+        byte[] large = bytes(200_000, 2);
+
+        PackBlobStore store = store(1 << 20);
+        String smallHash = store.put(new ByteArrayInputStream(small), ".png").getHash();
+        String largeHash = store.put(new ByteArrayInputStream(large), ".pdf").getHash();
+        // 같은 내용은 한 번만 저장, small-threshold를 넘는 첨부파일은 팩 대신 샤드 경로에 저장
+        store.put(new ByteArrayInputStream(small), ".png");
+        assertEquals(1, store.count());
+        assertTrue(Files.isRegularFile(dir.resolve(largeHash.substring(0, 2)).resolve(largeHash.substring(2, 4))
+                .resolve(largeHash + ".pdf")));
+
+        assertArrayEquals(small, read(store, smallHash, ".png"));
+        assertArrayEquals(large, read(store, largeHash, ".pdf"));
+        try (SeekableByteChannel channel = store.open(largeHash, ".pdf")) {
+            ByteBuffer slice = ByteBuffer.allocate(10);
+            channel.position(150_000).read(slice);
+            assertArrayEquals(Arrays.copyOfRange(large, 150_000, 150_010), slice.array());
+        }
+        assertTrue(store.delete(smallHash, ".png"));
+        store.close();
+
+        // 재기동: 팩을 다시 읽어 색인 재구성 (삭제 레코드 반영)
+        PackBlobStore reopened = store(1 << 20);
+        assertFalse(reopened.exists(smallHash, ".png"));
+        assertArrayEquals(large, read(reopened, largeHash, ".pdf"));
+        assertThrows(NoSuchFileException.class, () -> reopened.open(smallHash, ".png"));
+        reopened.close();
+    }
+
+    @Test
+    void truncatesTornRecordAtPackEnd() throws IOException {
+        byte[] content = bytes(5_000, 3);
+        PackBlobStore store = store(1 << 20);
+        String hash = store.put(new ByteArrayInputStream(content), ".bin").getHash();
+        store.close();
+
+        // 쓰기 도중 종료: 다음 레코드의 앞부분만 기록된 상태
+        Path pack = dir.resolve("packs").resolve("pack-000001.pack");
+        long intact = Files.size(pack);
+        Files.write(pack, new byte[] { 0x41, 0x41, 0x58 }, StandardOpenOption.APPEND);
+
+        PackBlobStore reopened = store(1 << 20);
+        assertEquals(intact, Files.size(pack));
+        assertArrayEquals(content, read(reopened, hash, ".bin"));
+        reopened.close();
+    }
+
+    @Test
+    void compactsSealedPackAfterDelete() throws IOException {
+        byte[] first = bytes(1_000, 4);
+        byte[] second = bytes(1_000, 5);
+        byte[] third = bytes(1_000, 6);
+
+        // 팩 하나에 레코드 하나씩 (pack-1, pack-2, 쓰는 중인 pack-3)
+        PackBlobStore store = store(1_500);
+        String firstHash = store.put(new ByteArrayInputStream(first), ".png").getHash();
+        String secondHash = store.put(new ByteArrayInputStream(second), ".png").getHash();
+        String thirdHash = store.put(new ByteArrayInputStream(third), ".png").getHash();
+        assertTrue(store.delete(firstHash, ".png"));
+
+        assertEquals(1, store.compact());
+        Path packs = dir.resolve("packs");
+        assertFalse(Files.exists(packs.resolve("pack-000001.pack")));
+        assertTrue(Files.exists(packs.resolve("pack-000002.pack")));
+        // 봉인 팩은 팩 전체 매핑에서 읽음
+        assertArrayEquals(second, read(store, secondHash, ".png"));
+        assertEquals(0, store.compact());
+        store.close();
+
+        PackBlobStore reopened = store(1_500);
+        assertFalse(reopened.exists(firstHash, ".png"));
+        assertArrayEquals(second, read(reopened, secondHash, ".png"));
+        assertArrayEquals(third, read(reopened, thirdHash, ".png"));
+        reopened.close();
+    }
+
+    private PackBlobStore store(long maxPackBytes) {
+        PackBlobStore store = new PackBlobStore();
+        ReflectionTestUtils.setField(store, "uploadPath", dir.toString());
+        ReflectionTestUtils.setField(store, "durability", BlobDurability.NONE);
+        ReflectionTestUtils.setField(store, "maxPackBytes", maxPackBytes);
+        ReflectionTestUtils.setField(store, "smallThreshold", 100_000);
+        ReflectionTestUtils.setField(store, "compactDeadRatio", 0.5);
+        store.init();
+        return store;
+    }
+
+    private static byte[] read(BlobStore store, String hash, String extension) throws IOException {
+        try (InputStream in = store.openStream(hash, extension)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] bytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
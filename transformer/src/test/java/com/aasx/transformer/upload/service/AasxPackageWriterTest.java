@@ -0,0 +1,104 @@
+package com.aasx.transformer.upload.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.AASXDeserializer;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.xml.XmlDeserializer;
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetKind;
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElement;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetInformation;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultEnvironment;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultFile;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+
+class AasxPackageWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private final AasxPackageWriter writer = new AasxPackageWriter();
+
+    @Test
+    void roundTripsAttachmentsThroughSkeletonRewrite() throws Exception {
+        // 버퍼보다 큰 첨부파일, 작은 텍스트, placeholder와 같은 접두어로 시작하는 내용
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        contents.put("/aasx/files/manual.pdf", random(200_000, 1));
+        contents.put("/aasx/files/drawing.step", "ISO-10303-21;".getBytes(StandardCharsets.UTF_8));
+        contents.put("/aasx/files/notes.txt", "aasx-placeholder:not-a-marker".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, InputStreamSource> attachments = new LinkedHashMap<>();
+        List<SubmodelElement> files = new ArrayList<>();
+        int i = 0;
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            attachments.put(entry.getKey(), new ByteArrayResource(entry.getValue()));
+            files.add(new DefaultFile.Builder().idShort("File" + (i++)).contentType("application/octet-stream")
+                    .value(entry.getKey()).build());
+        }
+        Path target = dir.resolve("out").resolve("package.aasx");
+
+        writer.write(environment(files), attachments, target);
+
+        // 임시 골격/부분 파일은 남지 않음
+        try (Stream<Path> list = Files.list(target.getParent())) {
+            assertEquals(List.of(target), list.toList());
+        }
+        try (InputStream in = Files.newInputStream(target)) {
+            AASXDeserializer deserializer = new AASXDeserializer(new XmlDeserializer(), in);
+            Environment read = deserializer.read();
+            assertEquals("https://example.com/aas/1", read.getAssetAdministrationShells().get(0).getId());
+            assertEquals(contents.size(), read.getSubmodels().get(0).getSubmodelElements().size());
+
+            // aas-suppl 관계를 따라 읽은 첨부파일이 원본 경로/내용과 일치
+            List<InMemoryFile> related = deserializer.getRelatedFiles();
+            assertEquals(contents.size(), related.size());
+            for (InMemoryFile file : related) {
+                assertTrue(contents.containsKey(file.getPath()), file.getPath());
+                assertArrayEquals(contents.get(file.getPath()), file.getFileContent(), file.getPath());
+            }
+        }
+    }
+
+    private static Environment environment(List<SubmodelElement> files) {
+        return new DefaultEnvironment.Builder()
+                .assetAdministrationShells(List.of(new DefaultAssetAdministrationShell.Builder()
+                        .id("https://example.com/aas/1")
+                        .idShort("Product")
+                        .assetInformation(new DefaultAssetInformation.Builder()
+                                .assetKind(AssetKind.INSTANCE)
+                                .globalAssetId("https://example.com/asset/1")
+                                .build())
+                        .build()))
+                .submodels(List.of(new DefaultSubmodel.Builder()
+                        .id("https://example.com/sm/documentation")
+                        .idShort("Documentation")
+                        .submodelElements(files)
+                        .build()))
+                .build();
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
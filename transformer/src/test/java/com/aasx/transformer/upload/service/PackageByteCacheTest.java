@@ -0,0 +1,83 @@
+package com.aasx.transformer.upload.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.aasx.transformer.upload.dto.PackageCacheStats;
+
+class PackageByteCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private final PackageByteCache cache = new PackageByteCache();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "tempPath", dir.toString());
+        ReflectionTestUtils.setField(cache, "maxBytes", 2500L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void spillsLeastRecentlyUsedAndReadsBackFromDisk() throws IOException {
+        byte[] a = bytes(1000, 1);
+        byte[] b = bytes(1000, 2);
+        byte[] c = bytes(1000, 3);
+        cache.put("ws", "a.aasx", a);
+        cache.put("ws", "b.aasx", b);
+        // a를 최근 사용으로 갱신 → c 추가 시 b가 내보내져야 함
+        assertArrayEquals(a, read("ws", "a.aasx"));
+        cache.put("ws", "c.aasx", c);
+
+        PackageCacheStats stats = cache.snapshot();
+        assertEquals(3, stats.getEntries());
+        assertEquals(1, stats.getSpilledEntries());
+        assertEquals(2000, stats.getHeapBytes());
+        assertEquals(1000, stats.getSpilledBytes());
+
+        assertArrayEquals(b, read("ws", "b.aasx"));
+        assertArrayEquals(c, read("ws", "c.aasx"));
+        assertEquals(1, cache.snapshot().getSpillHits());
+    }
+
+    @Test
+    void removeWorkspaceDropsOnlyItsEntries() throws IOException {
+        cache.put("ws1", "a.aasx", bytes(100, 1));
+        cache.put("ws2", "a.aasx", bytes(100, 2));
+
+        cache.removeWorkspace("ws1");
+
+        assertNull(cache.open("ws1", "a.aasx"));
+        assertArrayEquals(bytes(100, 2), read("ws2", "a.aasx"));
+        assertEquals(1, cache.snapshot().getMisses());
+    }
+
+    private byte[] read(String workspaceId, String fileName) throws IOException {
+        try (InputStream in = cache.open(workspaceId, fileName)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] bytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
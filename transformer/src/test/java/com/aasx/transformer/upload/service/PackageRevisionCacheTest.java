@@ -0,0 +1,152 @@
+package com.aasx.transformer.upload.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.AASXSerializer;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.xml.XmlSerializer;
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetKind;
+import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetInformation;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultEnvironment;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultFile;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.aasx.transformer.deserializer.AASXFileDeserializer;
+import com.aasx.transformer.deserializer.ExtractedFile;
+import com.aasx.transformer.deserializer.IngestedPackage;
+import com.aasx.transformer.deserializer.ZipCentralDirectory;
+import com.aasx.transformer.storage.BlobCodec;
+import com.aasx.transformer.storage.BlobCompressionPolicy;
+import com.aasx.transformer.storage.InMemoryBlobStore;
+import com.aasx.transformer.storage.StoredBlob;
+
+class PackageRevisionCacheTest {
+
+    private static final String AAS_ID = "https://example.com/aas/1";
+    private static final String SUBMODEL_ID = "https://example.com/sm/documentation";
+    private static final String MANUAL_PATH = "/aasx/files/manual.pdf";
+    private static final String DRAWING_PATH = "/aasx/files/drawing.step";
+
+    private final CountingBlobStore blobStore = new CountingBlobStore();
+    private final AASXFileDeserializer deserializer = new AASXFileDeserializer();
+    private final PackageRevisionCache cache = new PackageRevisionCache();
+
+    @BeforeEach
+    void setUp() {
+        BlobCompressionPolicy compressionPolicy = new BlobCompressionPolicy();
+        ReflectionTestUtils.setField(compressionPolicy, "policies", "");
+        compressionPolicy.init();
+        ReflectionTestUtils.setField(deserializer, "compressionPolicy", compressionPolicy);
+        ReflectionTestUtils.setField(cache, "maxEntries", 128);
+        ReflectionTestUtils.setField(cache, "blobStore", blobStore);
+    }
+
+    @Test
+    void reusesUnchangedPartsOfPreviousRevision() throws IOException {
+        byte[] manual = "manual v1".getBytes(StandardCharsets.UTF_8);
+        byte[] revisionA = aasx(manual, "drawing v1".getBytes(StandardCharsets.UTF_8));
+        // 도면 하나만 바뀐 다음 리비전
+        byte[] revisionB = aasx(manual, "drawing v2".getBytes(StandardCharsets.UTF_8));
+
+        // 리비전 A: 이전 기록이 없으므로 모든 첨부파일 추출 후 등록 결과 기록
+        IngestedPackage first = ingest(revisionA);
+        assertEquals(2, blobStore.puts.get());
+        Map<String, String> urls = new HashMap<>();
+        for (ExtractedFile file : first.getFiles()) {
+            urls.put(registrationKey(file), "http://localhost/api/transformer/download/" + file.getHash()
+                    + file.getExtension());
+        }
+        cache.record(first.getEnvironment(), ZipCentralDirectory.read(revisionA), first.getFiles(), urls);
+
+        // 리비전 B: 바뀐 도면만 추출
+        blobStore.puts.set(0);
+        IngestedPackage second = ingest(revisionB);
+        assertEquals(1, blobStore.puts.get());
+        ExtractedFile manualB = file(second, MANUAL_PATH);
+        ExtractedFile drawingB = file(second, DRAWING_PATH);
+        assertEquals(file(first, MANUAL_PATH).getHash(), manualB.getHash());
+        assertNotEquals(file(first, DRAWING_PATH).getHash(), drawingB.getHash());
+
+        // 바뀌지 않은 매뉴얼은 이전 URL 그대로, 바뀐 도면만 새로 등록 대상
+        Map<String, String> previous = cache.registeredUrls(second.getEnvironment());
+        assertEquals(urls.get(registrationKey(manualB)), previous.get(registrationKey(manualB)));
+        assertFalse(previous.containsKey(registrationKey(drawingB)));
+    }
+
+    private IngestedPackage ingest(byte[] aasx) {
+        Map<String, ZipCentralDirectory.PartChecksum> checksums = ZipCentralDirectory.read(aasx);
+        return deserializer.ingestAASXPackage(new ByteArrayInputStream(aasx), blobStore, Runnable::run,
+                environment -> cache.unchangedParts(environment, checksums));
+    }
+
+    private static ExtractedFile file(IngestedPackage ingested, String path) {
+        return ingested.getFiles().stream()
+                .filter(f -> f.getPath().equals(path))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static String registrationKey(ExtractedFile file) {
+        String idShort = file.getPath().equals(MANUAL_PATH) ? "Manual" : "Drawing";
+        return PackageRevisionCache.registrationKey(AAS_ID + "::" + SUBMODEL_ID + "::" + idShort, file.getHash());
+    }
+
+    private static byte[] aasx(byte[] manual, byte[] drawing) throws IOException {
+        Environment environment = new DefaultEnvironment.Builder()
+                .assetAdministrationShells(List.of(new DefaultAssetAdministrationShell.Builder()
+                        .id(AAS_ID)
+                        .idShort("Product")
+                        .assetInformation(new DefaultAssetInformation.Builder()
+                                .assetKind(AssetKind.INSTANCE)
+                                .globalAssetId("https://example.com/asset/1")
+                                .build())
+                        .build()))
+                .submodels(List.of(new DefaultSubmodel.Builder()
+                        .id(SUBMODEL_ID)
+                        .idShort("Documentation")
+                        .submodelElements(List.of(
+                                new DefaultFile.Builder().idShort("Manual").contentType("application/pdf")
+                                        .value(MANUAL_PATH).build(),
+                                new DefaultFile.Builder().idShort("Drawing").contentType("model/step")
+                                        .value(DRAWING_PATH).build()))
+                        .build()))
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            new AASXSerializer(new XmlSerializer()).write(environment,
+                    List.of(new InMemoryFile(manual, MANUAL_PATH), new InMemoryFile(drawing, DRAWING_PATH)), out);
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // 저장소 put 호출 수 = 실제로 추출/해시한 첨부파일 수
+    private static class CountingBlobStore extends InMemoryBlobStore {
+        final AtomicInteger puts = new AtomicInteger();
+
+        @Override
+        public StoredBlob put(InputStream in, String extension, BlobCodec codec) throws IOException {
+            puts.incrementAndGet();
+            return super.put(in, extension, codec);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.aasx.transformer.upload.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetInformation;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultResource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * ✅ default thumbnail 조회 마이크로벤치마크 (기본 test 태스크에서 제외, ./gradlew benchmark 로 실행)
+ * - 기존 방식: 호출마다 Method 조회 + invoke, 예외로 getValue → getValueUrl → getPath 분기
+ * - ThumbnailResolver: 타입 API 직접 호출
+ */
+@Tag("benchmark")
+class ThumbnailResolverBenchmarkTest {
+
+    private static final int SHELLS = 1_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURE_ROUNDS = 50;
+
+    @Test
+    void typedResolverVersusReflection() {
+        List<AssetAdministrationShell> shells = new ArrayList<>();
+        for (int i = 0; i < SHELLS; i++) {
+            shells.add(new DefaultAssetAdministrationShell.Builder()
+                    .id("https://example.com/aas/" + i)
+                    .assetInformation(new DefaultAssetInformation.Builder()
+                            .globalAssetId("https://example.com/asset/" + i)
+                            .defaultThumbnail(new DefaultResource.Builder()
+                                    .path("/aasx/thumbnail-" + i + ".png")
+                                    .contentType("image/png")
+                                    .build())
+                            .build())
+                    .build());
+        }
+
+        ThumbnailResolver resolver = new ThumbnailResolver();
+
+        // 두 방식의 결과가 같은지 먼저 확인
+        for (AssetAdministrationShell shell : shells) {
+            assertEquals(reflectiveCompositeKey(shell), resolver.resolve(shell).compositeKey());
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runReflection(shells);
+            runTyped(resolver, shells);
+        }
+
+        long reflectionNanos = 0;
+        long typedNanos = 0;
+        long sink = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += runReflection(shells);
+            reflectionNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            sink += runTyped(resolver, shells);
+            typedNanos += System.nanoTime() - start;
+        }
+
+        long ops = (long) SHELLS * MEASURE_ROUNDS;
+        System.out.printf("[benchmark] thumbnail 조회 %d회: reflection %.1f ns/op, typed %.1f ns/op (x%.1f), sink=%d%n",
+                ops, (double) reflectionNanos / ops, (double) typedNanos / ops,
+                (double) reflectionNanos / Math.max(1, typedNanos), sink);
+    }
+
+    private static long runReflection(List<AssetAdministrationShell> shells) {
+        long total = 0;
+        for (AssetAdministrationShell shell : shells) {
+            total += reflectiveCompositeKey(shell).length();
+        }
+        return total;
+    }
+
+    private static long runTyped(ThumbnailResolver resolver, List<AssetAdministrationShell> shells) {
+        long total = 0;
+        for (AssetAdministrationShell shell : shells) {
+            total += resolver.resolve(shell).compositeKey().length();
+        }
+        return total;
+    }
+
+    // 기존 collectCompositeKeys / collectMetas 의 reflection 흐름
+    private static String reflectiveCompositeKey(AssetAdministrationShell shell) {
+        try {
+            Object assetInfo = shell.getAssetInformation();
+            Object thumb = assetInfo.getClass().getMethod("getDefaultThumbnail").invoke(assetInfo);
+
+            String thumbVal = null;
+            try {
+                Method mVal = thumb.getClass().getMethod("getValue");
+                thumbVal = (String) mVal.invoke(thumb);
+            } catch (NoSuchMethodException | ClassCastException e1) {
+                try {
+                    Method mVal2 = thumb.getClass().getMethod("getValueUrl");
+                    thumbVal = (String) mVal2.invoke(thumb);
+                } catch (NoSuchMethodException | ClassCastException e2) {
+                    Method mVal3 = thumb.getClass().getMethod("getPath");
+                    thumbVal = (String) mVal3.invoke(thumb);
+                }
+            }
+            thumb.getClass().getMethod("getContentType").invoke(thumb);
+
+            String globalAssetId = (String) assetInfo.getClass().getMethod("getGlobalAssetId").invoke(assetInfo);
+            return shell.getId() + "::" + globalAssetId + "::" + new java.io.File(thumbVal).getName();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}